@@ -0,0 +1,89 @@
+package ecsploit.benchmarks;
+
+import ecsploit.benchmarks.BenchComponents.*;
+import ecsploit.ecs.core.ArchetypeQuery;
+import ecsploit.ecs.core.Category;
+import ecsploit.ecs.core.Manager;
+import ecsploit.ecs.core.StorageEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Weighs the archetype mirror against the plain sparse sets. {@code attachDetach} detaches and reattaches the Velocity
+ * of a churn sized batch of random entities, which under {@link StorageEngine#ARCHETYPE} also moves every entity
+ * between two archetypes. {@code categoryJoin2} joins Position and Velocity through a Category, which iterates the
+ * sparse sets with either engine, and {@code queryJoin2} performs the same join over the packed chunk columns.
+ * <p>
+ *     Note: {@code queryJoin2} only runs with the ARCHETYPE engine and returns immediately with SPARSE_SET
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+@State(Scope.Benchmark)
+public class ArchetypeBenchmark extends WorldState {
+
+    @Param({"SPARSE_SET", "ARCHETYPE"})
+    public StorageEngine storageEngine;
+
+    private Category join2;
+    private ArchetypeQuery query2;
+    private int[] targets;
+
+    protected Manager newManager() {
+        return new Manager(storageEngine);
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.createWorld();
+        this.join2 = manager.categoryT(positionType, velocityType);
+        if (storageEngine == StorageEngine.ARCHETYPE) this.query2 = manager.query(positionType, velocityType);
+
+        this.targets = new int[this.churnSize()];
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = random.nextInt(entityCount);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void churn() {
+        this.churnEntities();
+    }
+
+    @Benchmark
+    public void attachDetach() {
+        for (int entityID: targets) {
+            if (velocityType.has(entityID)) manager.detachT(entityID, velocityType);
+        }
+        for (int entityID: targets) {
+            manager.attachT(entityID, velocityType).vx = 1;
+        }
+    }
+
+    @Benchmark
+    public void categoryJoin2() {
+        join2.forEachEntity(eID -> {
+            Position position = positionType.retrieve(eID);
+            Velocity velocity = velocityType.retrieve(eID);
+            position.x += velocity.vx;
+            position.y += velocity.vy;
+        });
+    }
+
+    @Benchmark
+    public void queryJoin2() {
+        if (query2 == null) return;
+        query2.forEachChunk(chunk -> {
+            Position[] positions = chunk.column(positionType);
+            Velocity[] velocities = chunk.column(velocityType);
+            for (int row = 0; row < chunk.size(); row++) {
+                positions[row].x += velocities[row].vx;
+                positions[row].y += velocities[row].vy;
+            }
+        });
+    }
+}
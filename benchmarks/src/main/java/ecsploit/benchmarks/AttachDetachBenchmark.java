@@ -0,0 +1,107 @@
+package ecsploit.benchmarks;
+
+import ecsploit.benchmarks.BenchComponents.Tag;
+import ecsploit.ecs.core.ComponentType;
+import ecsploit.ecs.core.ExecuteSystem;
+import ecsploit.ecs.core.Manager;
+import ecsploit.ecs.injection.ExecuteBefore;
+import ecsploit.ecs.injection.TypeTarget;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@code attachT/detachT} of a tag component on a churn sized batch of random entities. The immediate variants
+ * call the manager directly while the deferred variants go through systems so that every operation is queued and
+ * flushed by {@code ComponentManager.clean()} at the end of each system.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+@State(Scope.Benchmark)
+public class AttachDetachBenchmark extends WorldState {
+
+    @ExecuteBefore(DeferredDetachSystem.class)
+    public static final class DeferredAttachSystem extends ExecuteSystem {
+
+        @TypeTarget(Tag.class) protected ComponentType<Tag> tagType;
+
+        private Manager manager;
+        int[] targets;
+
+        public void init(Manager manager) {
+            this.manager = manager;
+        }
+
+        protected void execute() {
+            for (int entityID: targets) {
+                manager.attachT(entityID, tagType);
+            }
+        }
+    }
+
+    public static final class DeferredDetachSystem extends ExecuteSystem {
+
+        @TypeTarget(Tag.class) protected ComponentType<Tag> tagType;
+
+        private Manager manager;
+        int[] targets;
+
+        public void init(Manager manager) {
+            this.manager = manager;
+        }
+
+        protected void execute() {
+            for (int entityID: targets) {
+                manager.detachT(entityID, tagType);
+            }
+        }
+    }
+
+    private int[] targets;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.createWorld();
+        this.manager.categoryT(positionType, tagType); //Category observers are part of the cost of an attach
+
+        this.targets = new int[this.churnSize()];
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = random.nextInt(entityCount);
+        }
+
+        DeferredAttachSystem attachSystem = new DeferredAttachSystem();
+        DeferredDetachSystem detachSystem = new DeferredDetachSystem();
+        attachSystem.targets = targets;
+        detachSystem.targets = targets;
+        this.manager.system(attachSystem);
+        this.manager.system(detachSystem);
+    }
+
+    @Benchmark
+    public void immediateAttachDetach() {
+        for (int entityID: targets) {
+            manager.attachT(entityID, tagType);
+        }
+        for (int entityID: targets) {
+            manager.detachT(entityID, tagType);
+        }
+    }
+
+    @Benchmark
+    public void immediateAttachDetachByClass() {
+        for (int entityID: targets) {
+            manager.attach(entityID, Tag.class);
+        }
+        for (int entityID: targets) {
+            manager.detach(entityID, Tag.class);
+        }
+    }
+
+    @Benchmark
+    public void deferredAttachDetach() {
+        manager.update();
+    }
+}
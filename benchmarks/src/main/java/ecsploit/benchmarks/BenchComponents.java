@@ -0,0 +1,28 @@
+package ecsploit.benchmarks;
+
+import ecsploit.ecs.core.Component;
+
+/**
+ * Minimal component set shared by every benchmark. Kept deliberately small so that the measured cost is dominated by
+ * the ECS bookkeeping rather than by component construction.
+ */
+final class BenchComponents {
+
+    private BenchComponents() {}
+
+    public static final class Position extends Component {
+        public int x;
+        public int y;
+    }
+
+    public static final class Velocity extends Component {
+        public int vx;
+        public int vy;
+    }
+
+    public static final class Health extends Component {
+        public int hp;
+    }
+
+    public static final class Tag extends Component {}
+}
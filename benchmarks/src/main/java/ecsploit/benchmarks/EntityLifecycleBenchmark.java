@@ -0,0 +1,67 @@
+package ecsploit.benchmarks;
+
+import ecsploit.ecs.core.Entity;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@code Manager.entity()/destroy(...)} and their id based counterparts. Each invocation creates and destroys
+ * a churn sized batch of entities on top of a world which already holds {@code entityCount} entities.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+@State(Scope.Benchmark)
+public class EntityLifecycleBenchmark extends WorldState {
+
+    private Entity[] entities;
+    private int[] entityIDs;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.createWorld();
+        this.entities = new Entity[this.churnSize()];
+        this.entityIDs = new int[this.churnSize()];
+    }
+
+    @Benchmark
+    public void createDestroyEntity(Blackhole blackhole) {
+        for (int i = 0; i < entities.length; i++) {
+            entities[i] = manager.entity();
+        }
+        blackhole.consume(entities);
+        for (Entity entity: entities) {
+            manager.destroy(entity);
+        }
+    }
+
+    @Benchmark
+    public void createDestroyEntityID(Blackhole blackhole) {
+        for (int i = 0; i < entityIDs.length; i++) {
+            entityIDs[i] = manager.entityID();
+        }
+        blackhole.consume(entityIDs);
+        for (int entityID: entityIDs) {
+            manager.destroyID(entityID);
+        }
+    }
+
+    /**
+     * Destroying populated entities walks the component bits of every entity and fires detach observers
+     */
+    @Benchmark
+    public void createDestroyPopulated(Blackhole blackhole) {
+        for (int i = 0; i < entityIDs.length; i++) {
+            entityIDs[i] = manager.entityID();
+            this.populate(entityIDs[i]);
+        }
+        blackhole.consume(entityIDs);
+        for (int entityID: entityIDs) {
+            manager.destroyID(entityID);
+        }
+    }
+}
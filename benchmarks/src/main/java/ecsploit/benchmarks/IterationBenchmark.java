@@ -0,0 +1,64 @@
+package ecsploit.benchmarks;
+
+import ecsploit.benchmarks.BenchComponents.*;
+import ecsploit.ecs.core.Category;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@code Category.forEachEntity} joining one, two and three component types. The world is churned before
+ * every measurement iteration so that the category order drifts away from the component storage order.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+@State(Scope.Benchmark)
+public class IterationBenchmark extends WorldState {
+
+    private Category join1;
+    private Category join2;
+    private Category join3;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.createWorld();
+        this.join1 = manager.categoryT(positionType);
+        this.join2 = manager.categoryT(positionType, velocityType);
+        this.join3 = manager.categoryT(positionType, velocityType, healthType);
+    }
+
+    @Setup(Level.Iteration)
+    public void churn() {
+        this.churnEntities();
+    }
+
+    @Benchmark
+    public void forEachJoin1() {
+        join1.forEachEntity(eID -> positionType.retrieve(eID).x++);
+    }
+
+    @Benchmark
+    public void forEachJoin2() {
+        join2.forEachEntity(eID -> {
+            Position position = positionType.retrieve(eID);
+            Velocity velocity = velocityType.retrieve(eID);
+            position.x += velocity.vx;
+            position.y += velocity.vy;
+        });
+    }
+
+    @Benchmark
+    public void forEachJoin3() {
+        join3.forEachEntity(eID -> {
+            Position position = positionType.retrieve(eID);
+            Velocity velocity = velocityType.retrieve(eID);
+            Health health = healthType.retrieve(eID);
+            position.x += velocity.vx;
+            position.y += velocity.vy;
+            health.hp--;
+        });
+    }
+}
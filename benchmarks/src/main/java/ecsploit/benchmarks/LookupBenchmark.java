@@ -0,0 +1,78 @@
+package ecsploit.benchmarks;
+
+import ecsploit.benchmarks.BenchComponents.*;
+import ecsploit.ecs.core.Category;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the random access paths: {@code ComponentType.retrieve} on random entity ids and {@code getCategoryT} on a
+ * manager where every possible category of the benchmark components has already been registered.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+@State(Scope.Benchmark)
+public class LookupBenchmark extends WorldState {
+
+    private static final int RETRIEVES_PER_INVOCATION = 1024;
+
+    private final int[] retrieveTargets = new int[RETRIEVES_PER_INVOCATION];
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.createWorld();
+        for (int i = 0; i < retrieveTargets.length; i++) {
+            retrieveTargets[i] = random.nextInt(entityCount); //Every entity has a position
+        }
+
+        manager.categoryT(positionType);
+        manager.categoryT(velocityType);
+        manager.categoryT(healthType);
+        manager.categoryT(tagType);
+        manager.categoryT(positionType, velocityType);
+        manager.categoryT(positionType, healthType);
+        manager.categoryT(positionType, tagType);
+        manager.categoryT(velocityType, healthType);
+        manager.categoryT(velocityType, tagType);
+        manager.categoryT(healthType, tagType);
+        manager.categoryT(positionType, velocityType, healthType);
+        manager.categoryT(positionType, velocityType, tagType);
+        manager.categoryT(positionType, healthType, tagType);
+        manager.categoryT(velocityType, healthType, tagType);
+        manager.categoryT(positionType, velocityType, healthType, tagType);
+    }
+
+    @Setup(Level.Iteration)
+    public void churn() {
+        this.churnEntities();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RETRIEVES_PER_INVOCATION)
+    public int retrieve() {
+        int sum = 0;
+        for (int entityID: retrieveTargets) {
+            sum += positionType.retrieve(entityID).x;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public Category getCategoryT1() {
+        return manager.categoryT(healthType);
+    }
+
+    @Benchmark
+    public Category getCategoryT3() {
+        return manager.categoryT(positionType, velocityType, healthType);
+    }
+
+    @Benchmark
+    public Category getCategoryByClass3() {
+        return manager.category(Position.class, Velocity.class, Health.class);
+    }
+}
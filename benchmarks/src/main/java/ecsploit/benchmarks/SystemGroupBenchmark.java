@@ -0,0 +1,95 @@
+package ecsploit.benchmarks;
+
+import ecsploit.benchmarks.BenchComponents.*;
+import ecsploit.ecs.core.Category;
+import ecsploit.ecs.core.ComponentType;
+import ecsploit.ecs.core.ExecuteSystem;
+import ecsploit.ecs.core.Manager;
+import ecsploit.ecs.injection.CatTarget;
+import ecsploit.ecs.injection.ExecuteAfter;
+import ecsploit.ecs.injection.TypeTarget;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a full {@code Manager.update()} tick through the root SystemGroup: a movement system, a health system and a
+ * churn system which toggles the Velocity component of a churn sized batch of random entities with deferred attaches
+ * and detaches.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+@State(Scope.Benchmark)
+public class SystemGroupBenchmark extends WorldState {
+
+    public static final class MovementSystem extends ExecuteSystem {
+
+        @TypeTarget(Position.class) protected ComponentType<Position> positionType;
+        @TypeTarget(Velocity.class) protected ComponentType<Velocity> velocityType;
+        @CatTarget({Position.class, Velocity.class}) protected Category movingCat;
+
+        protected void execute() {
+            movingCat.forEachEntity(eID -> {
+                Position position = positionType.retrieve(eID);
+                Velocity velocity = velocityType.retrieve(eID);
+                position.x += velocity.vx;
+                position.y += velocity.vy;
+            });
+        }
+    }
+
+    @ExecuteAfter(MovementSystem.class)
+    public static final class HealthSystem extends ExecuteSystem {
+
+        @TypeTarget(Health.class) protected ComponentType<Health> healthType;
+        @CatTarget(Health.class) protected Category healthCat;
+
+        protected void execute() {
+            healthCat.forEachEntity(eID -> healthType.retrieve(eID).hp--);
+        }
+    }
+
+    @ExecuteAfter(HealthSystem.class)
+    public static final class ChurnSystem extends ExecuteSystem {
+
+        @TypeTarget(Velocity.class) protected ComponentType<Velocity> velocityType;
+
+        private final Random random = new Random(0xEC5);
+        private Manager manager;
+        int entityCount;
+        int churnSize;
+
+        public void init(Manager manager) {
+            this.manager = manager;
+        }
+
+        protected void execute() {
+            for (int i = 0; i < churnSize; i++) {
+                int entityID = random.nextInt(entityCount);
+                if (manager.detachT(entityID, velocityType) == null) manager.attachT(entityID, velocityType);
+            }
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.createWorld();
+
+        ChurnSystem churnSystem = new ChurnSystem();
+        churnSystem.entityCount = entityCount;
+        churnSystem.churnSize = churn == 0 ? 0 : this.churnSize();
+
+        manager.system(new MovementSystem());
+        manager.system(new HealthSystem());
+        manager.system(churnSystem);
+    }
+
+    @Benchmark
+    public void update() {
+        manager.update();
+    }
+}
@@ -0,0 +1,87 @@
+package ecsploit.benchmarks;
+
+import ecsploit.benchmarks.BenchComponents.*;
+import ecsploit.ecs.core.ComponentType;
+import ecsploit.ecs.core.Manager;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Base world shared by the benchmarks. A world of {@code entityCount} entities is created where every entity has a
+ * Position, roughly two thirds have a Velocity and one third have a Health component.
+ * <p>
+ *     {@code churn} is the fraction of the world which is destroyed and recreated (or detached and reattached) between
+ *     measurements. Churn scrambles the dense order of the SparseLists and DenseLists which is what production worlds
+ *     look like after a few minutes of play.
+ * </p>
+ */
+@State(Scope.Benchmark)
+public abstract class WorldState {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int entityCount;
+
+    @Param({"0.0", "0.01", "0.1"})
+    public double churn;
+
+    protected Manager manager;
+    protected ComponentType<Position> positionType;
+    protected ComponentType<Velocity> velocityType;
+    protected ComponentType<Health> healthType;
+    protected ComponentType<Tag> tagType;
+
+    protected final Random random = new Random(0xEC5);
+
+    /**
+     * @return empty manager the world is created in
+     */
+    protected Manager newManager() {
+        return new Manager();
+    }
+
+    protected void createWorld() {
+        this.manager = this.newManager();
+
+        this.positionType = manager.type(Position.class);
+        this.positionType.registerConstructor(Position::new);
+        this.velocityType = manager.type(Velocity.class);
+        this.velocityType.registerConstructor(Velocity::new);
+        this.healthType = manager.type(Health.class);
+        this.healthType.registerConstructor(Health::new);
+        this.tagType = manager.type(Tag.class);
+        this.tagType.registerConstructor(Tag::new);
+
+        for (int i = 0; i < entityCount; i++) {
+            this.populate(manager.entityID());
+        }
+    }
+
+    protected void populate(int entityID) {
+        manager.attachT(entityID, positionType);
+        if (entityID % 3 != 0) manager.attachT(entityID, velocityType).vx = 1;
+        if (entityID % 3 == 1) manager.attachT(entityID, healthType).hp = 100;
+    }
+
+    /**
+     * @return number of entities touched by one churn pass, at least one so that churn=0 still measures something
+     */
+    protected int churnSize() {
+        return Math.max(1, (int) (entityCount * churn));
+    }
+
+    /**
+     * Destroys and recreates a random {@link #churnSize() churn sized} subset of the world
+     */
+    protected void churnEntities() {
+        if (churn == 0) return;
+        int total = this.churnSize();
+        for (int i = 0; i < total; i++) {
+            int entityID = random.nextInt(entityCount);
+            manager.destroyID(entityID);
+            this.populate(manager.entityID());
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package ecsploit.ecs.core;
+
+import ecsploit.utils.collections.BitString;
+import ecsploit.utils.collections.DenseList;
+
+import java.util.Arrays;
+
+/**
+ * Unique combination of component types. All entities of an archetype are packed into chunks where only the last chunk
+ * may be partially filled.
+ */
+final class Archetype {
+
+    final BitString componentBits;
+    final ComponentType<?>[] types; //Sorted by component id
+    private final int[] componentToColumn;
+
+    final DenseList<ArchetypeChunk> chunks = new DenseList<>(4);
+
+    //Cached transitions to neighbouring archetypes indexed by component id
+    private Archetype[] attachEdges = new Archetype[0];
+    private Archetype[] detachEdges = new Archetype[0];
+
+    Archetype(BitString componentBits, ComponentType<?>[] types) {
+        this.componentBits = componentBits;
+        this.types = types;
+
+        int maxComponentID = -1;
+        for (ComponentType<?> type: types) {
+            maxComponentID = Math.max(maxComponentID, type.getComponentID());
+        }
+        this.componentToColumn = new int[maxComponentID + 1];
+        Arrays.fill(this.componentToColumn, -1);
+        for (int i = 0; i < types.length; i++) {
+            this.componentToColumn[types[i].getComponentID()] = i;
+        }
+    }
+
+    int columnOf(int componentID) {
+        if (componentID >= componentToColumn.length) return -1;
+        return componentToColumn[componentID];
+    }
+
+    int size() {
+        if (chunks.isEmpty()) return 0;
+        return (chunks.size() - 1) * ArchetypeChunk.CAPACITY + chunks.fastGet(chunks.size() - 1).size;
+    }
+
+    ArchetypeChunk lastChunk() {
+        return chunks.fastGet(chunks.size() - 1);
+    }
+
+    /**
+     * @return the last chunk of the archetype or a newly allocated chunk if the last chunk is full
+     */
+    ArchetypeChunk chunkWithSpace() {
+        if (chunks.isEmpty() || this.lastChunk().isFull()) {
+            chunks.add(new ArchetypeChunk(this));
+        }
+        return this.lastChunk();
+    }
+
+    Archetype getAttachEdge(int componentID) {
+        return componentID < attachEdges.length ? attachEdges[componentID] : null;
+    }
+
+    void setAttachEdge(int componentID, Archetype archetype) {
+        if (componentID >= attachEdges.length) attachEdges = Arrays.copyOf(attachEdges, componentID + 1);
+        attachEdges[componentID] = archetype;
+    }
+
+    Archetype getDetachEdge(int componentID) {
+        return componentID < detachEdges.length ? detachEdges[componentID] : null;
+    }
+
+    void setDetachEdge(int componentID, Archetype archetype) {
+        if (componentID >= detachEdges.length) detachEdges = Arrays.copyOf(detachEdges, componentID + 1);
+        detachEdges[componentID] = archetype;
+    }
+
+    public String toString() {
+        StringBuilder out = new StringBuilder("Archetype[");
+        for (int i = 0; i < types.length; i++) {
+            out.append(types[i].getComponentName());
+            if (i + 1 < types.length) out.append(", ");
+        }
+        return out.append("]").toString();
+    }
+}
@@ -0,0 +1,74 @@
+package ecsploit.ecs.core;
+
+/**
+ * Fixed size block of entities sharing the exact same set of components. Each component type of the archetype is
+ * stored in its own column where the row of a component instance is the row of its entity.
+ * <p>
+ *     Example Usage:
+ *     <pre>
+ *         {@code
+ *         query.forEachChunk(chunk -> {
+ *             Position[] positions = chunk.column(positionType);
+ *             Velocity[] velocities = chunk.column(velocityType);
+ *             for (int row = 0; row < chunk.size(); row++) {
+ *                 positions[row].x += velocities[row].vx;
+ *             }
+ *         });
+ *         }
+ *     </pre>
+ * </p>
+ */
+public final class ArchetypeChunk {
+
+    public static final int CAPACITY = 1024;
+
+    final Archetype archetype;
+    final int[] entityIDs = new int[CAPACITY];
+    final Component[][] columns;
+    int size;
+
+    ArchetypeChunk(Archetype archetype) {
+        this.archetype = archetype;
+        this.columns = new Component[archetype.types.length][];
+        for (int i = 0; i < columns.length; i++) {
+            this.columns[i] = archetype.types[i].newColumn(CAPACITY);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    boolean isFull() {
+        return size == CAPACITY;
+    }
+
+    /**
+     * @param row index of entity within the chunk
+     * @return id of the entity stored at the given row
+     */
+    public int entityID(int row) {
+        return this.entityIDs[row];
+    }
+
+    /**
+     * Direct access to the component column of the chunk. Only the first {@link #size() size} rows are valid.
+     * @throws IllegalArgumentException if the chunk's archetype does not contain the ComponentType
+     *
+     * @param componentType type of component column to retrieve
+     * @param <T> type of component
+     * @return array of component instances indexed by row
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Component> T[] column(ComponentType<T> componentType) {
+        int columnIndex = this.archetype.columnOf(componentType.getComponentID());
+        if (columnIndex == -1) {
+            throw new IllegalArgumentException(componentType + " is not part of the archetype of this chunk");
+        }
+        return (T[]) this.columns[columnIndex];
+    }
+
+    public String toString() {
+        return "ArchetypeChunk(size=" + size + ", archetype=" + archetype + ")";
+    }
+}
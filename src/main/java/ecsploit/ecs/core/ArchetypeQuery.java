@@ -0,0 +1,65 @@
+package ecsploit.ecs.core;
+
+import ecsploit.utils.collections.BitString;
+import ecsploit.utils.collections.DenseList;
+
+/**
+ * Real-time view of every archetype containing at least the queried component types. Only available when the manager
+ * uses the {@link StorageEngine#ARCHETYPE archetype} storage engine.
+ */
+public final class ArchetypeQuery {
+
+    final BitString componentBits;
+    private final DenseList<Archetype> archetypes = new DenseList<>(8);
+
+    ArchetypeQuery(BitString componentBits) {
+        this.componentBits = componentBits;
+    }
+
+    void addInternalArchetype(Archetype archetype) {
+        this.archetypes.add(archetype);
+    }
+
+    /**
+     * @return total number of entities matching the query
+     */
+    public int size() {
+        int size = 0;
+        for (int i = 0; i < archetypes.size(); i++) {
+            size += archetypes.fastGet(i).size();
+        }
+        return size;
+    }
+
+    /**
+     * Iterate linearly through every non-empty chunk matching the query.
+     * <p>
+     *     Note: attaching or detaching components of the queried entities moves them between chunks. Only do so while
+     *     the manager defers component operations, i.e. inside the execute method of an ExecuteSystem.
+     * </p>
+     *
+     * @param action invoked per chunk
+     */
+    public void forEachChunk(ChunkAction action) {
+        for (int i = 0; i < archetypes.size(); i++) {
+            DenseList<ArchetypeChunk> chunks = archetypes.fastGet(i).chunks;
+            for (int j = 0; j < chunks.size(); j++) {
+                ArchetypeChunk chunk = chunks.fastGet(j);
+                if (chunk.size > 0) action.accept(chunk);
+            }
+        }
+    }
+
+    /**
+     * Iterate through every entity matching the query in chunk order.
+     *
+     * @param action invoked per entity
+     */
+    public void forEachEntity(EntityAction action) {
+        this.forEachChunk(chunk -> {
+            for (int row = 0; row < chunk.size; row++) {
+                action.accept(chunk.entityIDs[row]);
+            }
+        });
+    }
+}
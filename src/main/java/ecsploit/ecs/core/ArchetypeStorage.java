@@ -0,0 +1,212 @@
+package ecsploit.ecs.core;
+
+import ecsploit.utils.collections.BitString;
+import ecsploit.utils.collections.CollectionUtils;
+import ecsploit.utils.collections.DenseList;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Experimental storage engine which mirrors the component bits of every entity by moving the entity into the chunks of
+ * the archetype matching its bits. The sparse sets of the ComponentTypes stay the primary storage.
+ */
+final class ArchetypeStorage {
+
+    private final Map<BitString, Archetype> archetypes = new HashMap<>();
+    private final Archetype emptyArchetype;
+
+    private final Map<BitString, ArchetypeQuery> queries = new HashMap<>();
+    private final DenseList<ArchetypeQuery> queryList = new DenseList<>(16);
+
+    //Location of every entity in the storage indexed by entity id
+    private ArchetypeChunk[] entityToChunk = new ArchetypeChunk[64];
+    private int[] entityToRow = new int[64];
+
+    ArchetypeStorage() {
+        this.emptyArchetype = this.createArchetype(new BitString(), new ComponentType<?>[0]);
+    }
+
+    private Archetype createArchetype(BitString componentBits, ComponentType<?>[] types) {
+        Archetype archetype = new Archetype(componentBits, types);
+        this.archetypes.put(componentBits, archetype);
+        for (int i = 0; i < queryList.size(); i++) {
+            ArchetypeQuery query = queryList.fastGet(i);
+            if (componentBits.includes(query.componentBits)) query.addInternalArchetype(archetype);
+        }
+        return archetype;
+    }
+
+    private Archetype getAttachArchetype(Archetype from, ComponentType<?> componentType) {
+        int componentID = componentType.getComponentID();
+        Archetype to = from.getAttachEdge(componentID);
+        if (to != null) return to;
+
+        BitString componentBits = new BitString(from.componentBits);
+        componentBits.set(componentID);
+        to = archetypes.get(componentBits);
+        if (to == null) {
+            ComponentType<?>[] types = Arrays.copyOf(from.types, from.types.length + 1);
+            int index = types.length - 1;
+            while (index > 0 && types[index - 1].getComponentID() > componentID) { //Keep types sorted by id
+                types[index] = types[index - 1];
+                index--;
+            }
+            types[index] = componentType;
+            to = this.createArchetype(componentBits, types);
+        }
+        from.setAttachEdge(componentID, to);
+        to.setDetachEdge(componentID, from);
+        return to;
+    }
+
+    private Archetype getDetachArchetype(Archetype from, ComponentType<?> componentType) {
+        int componentID = componentType.getComponentID();
+        Archetype to = from.getDetachEdge(componentID);
+        if (to != null) return to;
+
+        BitString componentBits = new BitString(from.componentBits);
+        componentBits.clear(componentID);
+        to = archetypes.get(componentBits);
+        if (to == null) {
+            ComponentType<?>[] types = new ComponentType<?>[from.types.length - 1];
+            int counter = 0;
+            for (ComponentType<?> type: from.types) {
+                if (type != componentType) types[counter++] = type;
+            }
+            to = this.createArchetype(componentBits, types);
+        }
+        from.setDetachEdge(componentID, to);
+        to.setAttachEdge(componentID, from);
+        return to;
+    }
+
+    ArchetypeQuery getQuery(BitString componentBits) {
+        ArchetypeQuery query = queries.get(componentBits);
+        if (query != null) return query;
+
+        query = new ArchetypeQuery(componentBits);
+        for (Archetype archetype: archetypes.values()) {
+            if (archetype.componentBits.includes(componentBits)) query.addInternalArchetype(archetype);
+        }
+        this.queries.put(componentBits, query);
+        this.queryList.add(query);
+        return query;
+    }
+
+    void insertEntity(int entityID) {
+        if (entityID >= entityToChunk.length) {
+            this.entityToChunk = Arrays.copyOf(entityToChunk, CollectionUtils.getGrowLength(entityID));
+            this.entityToRow = Arrays.copyOf(entityToRow, entityToChunk.length);
+        }
+        ArchetypeChunk chunk = emptyArchetype.chunkWithSpace();
+        int row = chunk.size++;
+        chunk.entityIDs[row] = entityID;
+        this.entityToChunk[entityID] = chunk;
+        this.entityToRow[entityID] = row;
+    }
+
+    /**
+     * Inserts a contiguous range of new entities directly into the archetype of the given component types, skipping the
+     * intermediate archetypes a per component attach would move through. Components must already be attached to the
+     * ComponentTypes.
+     */
+    void insertEntities(int firstEntityID, int count, ComponentType<?>[] componentTypes) {
+        if (firstEntityID + count > entityToChunk.length) {
+            this.entityToChunk = Arrays.copyOf(entityToChunk, Math.max(firstEntityID + count, CollectionUtils.getGrowLength(firstEntityID)));
+            this.entityToRow = Arrays.copyOf(entityToRow, entityToChunk.length);
+        }
+        Archetype archetype = emptyArchetype;
+        for (ComponentType<?> componentType: componentTypes) {
+            if (archetype.columnOf(componentType.getComponentID()) == -1) archetype = this.getAttachArchetype(archetype, componentType);
+        }
+
+        for (int entityID = firstEntityID; entityID < firstEntityID + count; entityID++) {
+            ArchetypeChunk chunk = archetype.chunkWithSpace();
+            int row = chunk.size++;
+            chunk.entityIDs[row] = entityID;
+            for (int i = 0; i < archetype.types.length; i++) {
+                chunk.columns[i][row] = archetype.types[i].getInternal(entityID);
+            }
+            this.entityToChunk[entityID] = chunk;
+            this.entityToRow[entityID] = row;
+        }
+    }
+
+    void removeEntity(int entityID) {
+        ArchetypeChunk chunk = entityToChunk[entityID];
+        if (chunk == null) return;
+        this.removeRow(chunk, entityToRow[entityID]);
+        this.entityToChunk[entityID] = null;
+    }
+
+    /**
+     * Stores the current component instance of the entity in its chunk, moving the entity to a new archetype if the
+     * component was not already part of its archetype.
+     */
+    void attach(int entityID, ComponentType<?> componentType) {
+        ArchetypeChunk chunk = entityToChunk[entityID];
+        if (chunk == null) return;
+        Component componentInstance = componentType.getInternal(entityID);
+
+        int columnIndex = chunk.archetype.columnOf(componentType.getComponentID());
+        if (columnIndex != -1) {
+            chunk.columns[columnIndex][entityToRow[entityID]] = componentInstance;
+            return;
+        }
+        Archetype to = this.getAttachArchetype(chunk.archetype, componentType);
+        ArchetypeChunk newChunk = this.moveEntity(entityID, to);
+        newChunk.columns[to.columnOf(componentType.getComponentID())][entityToRow[entityID]] = componentInstance;
+    }
+
+    void detach(int entityID, ComponentType<?> componentType) {
+        ArchetypeChunk chunk = entityToChunk[entityID];
+        if (chunk == null || chunk.archetype.columnOf(componentType.getComponentID()) == -1) return;
+        this.moveEntity(entityID, this.getDetachArchetype(chunk.archetype, componentType));
+    }
+
+    private ArchetypeChunk moveEntity(int entityID, Archetype to) {
+        ArchetypeChunk fromChunk = entityToChunk[entityID];
+        int fromRow = entityToRow[entityID];
+        Archetype from = fromChunk.archetype;
+
+        ArchetypeChunk toChunk = to.chunkWithSpace();
+        int toRow = toChunk.size++;
+        toChunk.entityIDs[toRow] = entityID;
+        for (int i = 0; i < to.types.length; i++) {
+            int fromColumn = from.columnOf(to.types[i].getComponentID());
+            if (fromColumn != -1) toChunk.columns[i][toRow] = fromChunk.columns[fromColumn][fromRow];
+        }
+
+        this.removeRow(fromChunk, fromRow);
+        this.entityToChunk[entityID] = toChunk;
+        this.entityToRow[entityID] = toRow;
+        return toChunk;
+    }
+
+    /**
+     * Removes a row from a chunk by filling the gap with the very last row of the archetype so that only the last chunk
+     * of an archetype can ever be partially filled.
+     */
+    private void removeRow(ArchetypeChunk chunk, int row) {
+        Archetype archetype = chunk.archetype;
+        ArchetypeChunk lastChunk = archetype.lastChunk();
+        int lastRow = lastChunk.size - 1;
+
+        if (chunk != lastChunk || row != lastRow) {
+            int movedEntityID = lastChunk.entityIDs[lastRow];
+            chunk.entityIDs[row] = movedEntityID;
+            for (int i = 0; i < chunk.columns.length; i++) {
+                chunk.columns[i][row] = lastChunk.columns[i][lastRow];
+            }
+            this.entityToChunk[movedEntityID] = chunk;
+            this.entityToRow[movedEntityID] = row;
+        }
+        for (int i = 0; i < lastChunk.columns.length; i++) {
+            lastChunk.columns[i][lastRow] = null;
+        }
+        lastChunk.size--;
+        if (lastChunk.size == 0) archetype.chunks.removeLast();
+    }
+}
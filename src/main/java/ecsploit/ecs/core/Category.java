@@ -1,8 +1,12 @@
 package ecsploit.ecs.core;
 
+import ecsploit.utils.collections.BitString;
+import ecsploit.utils.collections.DenseList;
 import ecsploit.utils.collections.SparseList;
 
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.function.IntPredicate;
 
 /**
@@ -10,11 +14,53 @@ import java.util.function.IntPredicate;
  */
 public class Category {
 
+    /**
+     * Default number of entities processed by a single task of {@link #parallelForEachEntity(EntityAction)}
+     */
+    public static final int DEFAULT_PARALLEL_CHUNK_SIZE = 4096;
+
     final SparseList entities = new SparseList();
+    final ComponentManager componentManager;
+    final BitString componentBits; //Queried components or NULL if the category is not managed by the ComponentManager
+    final BitString excludedBits; //Components none of which may be attached or NULL if nothing is excluded
+    final BitString anyBits; //Components at least one of which must be attached or NULL if there is no such condition
+
+    protected final EntityStream addStream;
+    protected final EntityStream removeStream;
+    protected final EntityStream changeStream;
+
+    private DenseList<FilteredCategory> filteredCategories; //NULL until the first filtered category is created
+    private int addFilterObserverID;
+    private int removeFilterObserverID;
+    private int changeFilterObserverID;
+
+    Category(ComponentManager componentManager) {
+        this(componentManager, null);
+    }
+
+    Category(ComponentManager componentManager, BitString componentBits) {
+        this(componentManager, componentBits, null, null);
+    }
+
+    Category(ComponentManager componentManager, BitString componentBits, BitString excludedBits, BitString anyBits) {
+        this.componentManager = componentManager;
+        this.componentBits = componentBits;
+        this.excludedBits = excludedBits;
+        this.anyBits = anyBits;
+
+        this.addStream = new EntityStream(componentManager);
+        this.removeStream = new EntityStream(componentManager);
+        this.changeStream = new EntityStream(componentManager);
+    }
 
-    protected final EntityStream addStream = new EntityStream();
-    protected final EntityStream removeStream = new EntityStream();
-    protected final EntityStream changeStream = new EntityStream();
+    /**
+     * @return true if an entity with the given component bits belongs to this category
+     */
+    boolean matches(BitString entityBits) {
+        return entityBits.includes(componentBits)
+                && (excludedBits == null || !entityBits.intersects(excludedBits))
+                && (anyBits == null || entityBits.intersects(anyBits));
+    }
 
     public int size() {
         return this.entities.size();
@@ -29,11 +75,84 @@ public class Category {
         this.addStream.notifyObservers(entityID);
     }
 
+    /**
+     * Adds a contiguous range of entity ids which are not yet part of the category and notifies the add observers with
+     * a single batch.
+     */
+    void addInternalRange(int firstEntityID, int count) {
+        this.entities.addRange(firstEntityID, count);
+        if (this.addStream.getObserverCount() == 0 && !componentManager.getMetrics().isEnabled()) return;
+        int[] added = new int[count];
+        for (int i = 0; i < count; i++) added[i] = firstEntityID + i;
+        this.addStream.notifyObservers(added, 0, count);
+    }
+
+    /**
+     * Adds an entity without notifying the add observers. Used to rebuild categories when restoring snapshots.
+     */
+    void restoreInternalEntity(int entityID) {
+        this.entities.add(entityID);
+    }
+
     void removeInternalEntity(int entityID) {
         this.entities.fastRemove(entityID);
         this.removeStream.notifyObservers(entityID);
     }
 
+    /**
+     * Removes every listed entity contained by the category before notifying the remove observers of the removed
+     * entities with a single batch.
+     */
+    void removeInternalEntities(int[] entityIDs, int count) {
+        int totalRemoved = 0;
+        int[] removed = null;
+        for (int i = 0; i < count; i++) {
+            int entityID = entityIDs[i];
+            if (!this.entities.contains(entityID)) continue;
+            this.entities.fastRemove(entityID);
+            if (removed == null) removed = new int[count - i];
+            removed[totalRemoved++] = entityID;
+        }
+        if (totalRemoved > 0) this.removeStream.notifyObservers(removed, 0, totalRemoved);
+    }
+
+    /**
+     * Re-evaluates the listed entities against their current component bits so that entities which no longer match are
+     * removed and entities which now match are added. Observers are notified once every entity has been updated.
+     */
+    void updateInternalEntities(int[] entityIDs, int count, BitString[] entityToComponentBits) {
+        int totalRemoved = 0;
+        int totalAdded = 0;
+        int[] changed = null; //Removed entities fill the array from the front and added entities from the back
+        for (int i = 0; i < count; i++) {
+            int entityID = entityIDs[i];
+            boolean matches = this.matches(entityToComponentBits[entityID]);
+            if (matches == this.entities.contains(entityID)) continue;
+            if (changed == null) changed = new int[count - i];
+            if (matches) {
+                this.entities.add(entityID);
+                changed[changed.length - ++totalAdded] = entityID;
+            } else {
+                this.entities.fastRemove(entityID);
+                changed[totalRemoved++] = entityID;
+            }
+        }
+        if (totalRemoved > 0) this.removeStream.notifyObservers(changed, 0, totalRemoved);
+        if (totalAdded == 0) return;
+        for (int i = changed.length - totalAdded, j = changed.length - 1; i < j; i++, j--) { //Restore the order of addition
+            int entityID = changed[i];
+            changed[i] = changed[j];
+            changed[j] = entityID;
+        }
+        this.addStream.notifyObservers(changed, changed.length - totalAdded, totalAdded);
+    }
+
+    void resetStreamCounters() {
+        this.addStream.resetCounters();
+        this.removeStream.resetCounters();
+        this.changeStream.resetCounters();
+    }
+
     void notifyChangeObservers(int entityID) {
         this.changeStream.notifyObservers(entityID);
     }
@@ -53,6 +172,104 @@ public class Category {
         }
     }
 
+    /**
+     * Invoke an action for every entity of the category whose component was attached or changed after the tick.
+     *
+     * @param componentType type of the component whose changes are queried
+     * @param tick tick to compare against, usually {@link ExecuteSystem#lastRunTick()}
+     * @param action invoked per changed entity
+     */
+    public void forEachChangedSince(ComponentType<? extends Component> componentType, int tick, EntityAction action) {
+        for (int i = 0; i < this.entities.size(); i++) {
+            int entityID = this.entities.fastGet(i);
+            if (componentType.changedSince(entityID, tick)) action.accept(entityID);
+        }
+    }
+
+    /**
+     * See {@link #parallelForEachEntity(EntityAction, int) parallelForEachEntity} for more details.
+     *
+     * @param action invoked per entity, possibly from several threads at once
+     */
+    public void parallelForEachEntity(EntityAction action) {
+        this.parallelForEachEntity(action, DEFAULT_PARALLEL_CHUNK_SIZE);
+    }
+
+    /**
+     * Iterate through every entity in the category by splitting the entities into ranges which are processed
+     * concurrently by the worker pool of the manager.
+     * <p>
+     *     Notes:
+     *     <ul>
+     *         <li>The action may run on several threads at once and must only modify the components of the entity it
+     *         is given</li>
+     *         <li>Components attached and detached during the pass are recorded in per-worker buffers. Attached
+     *         components can't be retrieved and detached components remain retrievable until the pass ends</li>
+     *         <li>Buffered operations are merged when the pass ends and follow the usual immediate or deferred rules
+     *         from there on</li>
+     *         <li>Creating or destroying entities and notifying change observers during the pass is not supported</li>
+     *     </ul>
+     * </p>
+     *
+     * @param action invoked per entity, possibly from several threads at once
+     * @param chunkSize minimum number of consecutive entities processed by a single task. Categories of at most this
+     * many entities and worker pools with a parallelism of 1 are processed on the calling thread
+     */
+    public void parallelForEachEntity(EntityAction action, int chunkSize) {
+        if (chunkSize <= 0) throw new IllegalArgumentException("Chunk size must be positive");
+        int size = this.entities.size();
+        if (size == 0) return;
+
+        if (!componentManager.beginParallelPass()) { //Already inside a parallel pass: stay on the current worker
+            this.forEachEntity(action);
+            return;
+        }
+        try {
+            ForkJoinPool workerPool = componentManager.getWorkerPool();
+            int parallelism = workerPool.getParallelism();
+            //About four tasks per worker, smaller tasks only add scheduling overhead
+            int leafSize = Math.max(chunkSize, (size + 4 * parallelism - 1) / (4 * parallelism));
+            if (parallelism <= 1 || size <= leafSize) { //Splitting can't pay off, stay on the calling thread
+                new ParallelEntityTask(this.entities.getInnerList(), 0, size, size, action).compute();
+            } else {
+                workerPool.invoke(new ParallelEntityTask(this.entities.getInnerList(), 0, size, leafSize, action));
+            }
+        } finally {
+            componentManager.endParallelPass();
+        }
+    }
+
+    private static final class ParallelEntityTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int[] entityIDs;
+        private final int start;
+        private final int end;
+        private final int chunkSize;
+        private final EntityAction action;
+
+        ParallelEntityTask(int[] entityIDs, int start, int end, int chunkSize, EntityAction action) {
+            this.entityIDs = entityIDs;
+            this.start = start;
+            this.end = end;
+            this.chunkSize = chunkSize;
+            this.action = action;
+        }
+
+        protected void compute() {
+            if (end - start <= chunkSize) {
+                for (int i = start; i < end; i++) {
+                    action.accept(entityIDs[i]);
+                }
+                return;
+            }
+            int middle = (start + end) >>> 1;
+            invokeAll(new ParallelEntityTask(entityIDs, start, middle, chunkSize, action),
+                    new ParallelEntityTask(entityIDs, middle, end, chunkSize, action));
+        }
+    }
+
     /**
      * @return list of all entityIDs associated with the category
      */
@@ -61,34 +278,92 @@ public class Category {
     }
 
     /**
-     * Generate a Category from all entities in the current category where all
+     * Gets the category of every entity in this category which fulfills the condition. Filtered categories are cached
+     * by the identity of the condition, so filtering with the same predicate instance again returns the same category
+     * and increases its reference count. Every call should be paired with a {@link FilteredCategory#dispose() dispose}
+     * once the category is no longer needed.
+     * <p>
+     *     Notes:
+     *     <ul>
+     *         <li>The condition is tested when an entity enters this category and whenever a change of the entity is
+     *         notified, e.g. by {@link ComponentType#notifyChangeObservers(int) notifyChangeObservers}</li>
+     *         <li>Capturing lambdas create a new predicate per evaluation. Keep a reference to the predicate to share
+     *         the filtered category</li>
+     *     </ul>
+     * </p>
      *
      * @param filterCondition condition under which all the entities in the new Category fulfill
      * @return a Category where all entities fulfill the filtered condition
      */
-    public Category filter(IntPredicate filterCondition) {
-        Category filteredCat = new Category();
-        if (!entities.isEmpty()) {
-            for (int i = this.entities.size() - 1; i >= 0; i--) {
-                int eID = this.entities.fastGet(i);
-                if (filterCondition.test(eID)) {
-                    filteredCat.addInternalEntity(eID);
-                }
+    public FilteredCategory filter(IntPredicate filterCondition) {
+        if (filteredCategories == null) this.filteredCategories = new DenseList<>(4);
+        for (int i = 0; i < filteredCategories.size(); i++) {
+            FilteredCategory filteredCat = filteredCategories.fastGet(i);
+            if (filteredCat.filterCondition == filterCondition) {
+                filteredCat.referenceCount++;
+                return filteredCat;
             }
         }
-        this.addStream.connectObserver(eID -> {
+
+        FilteredCategory filteredCat = new FilteredCategory(this, filterCondition);
+        for (int i = this.entities.size() - 1; i >= 0; i--) {
+            int eID = this.entities.fastGet(i);
             if (filterCondition.test(eID)) filteredCat.addInternalEntity(eID);
-        });
-        this.removeStream.connectObserver(eID -> {
-            if (filteredCat.has(eID)) filteredCat.removeInternalEntity(eID);
-        });
-        this.changeStream.connectObserver(eID -> {
-            if (!filteredCat.has(eID) && filterCondition.test(eID)) {
-                filteredCat.addInternalEntity(eID);
-            } else if (filteredCat.has(eID)){
-                filteredCat.removeInternalEntity(eID);
-            }
-        });
+        }
+        if (filteredCategories.isEmpty()) { //A single batch observer per stream dispatches to every filtered category
+            this.addFilterObserverID = this.addStream.connectObserver(this::addToFilteredCategories);
+            this.removeFilterObserverID = this.removeStream.connectObserver(this::removeFromFilteredCategories);
+            this.changeFilterObserverID = this.changeStream.connectObserver(this::changeInFilteredCategories);
+        }
+        this.filteredCategories.add(filteredCat);
         return filteredCat;
     }
+
+    /**
+     * Refills the cached filtered categories after a snapshot restored this category, without notifying any observer.
+     */
+    void restoreFilteredCategories() {
+        if (filteredCategories == null) return;
+        for (int i = 0; i < filteredCategories.size(); i++) {
+            FilteredCategory filteredCat = filteredCategories.fastGet(i);
+            for (int j = 0; j < this.entities.size(); j++) {
+                int eID = this.entities.fastGet(j);
+                if (filteredCat.filterCondition.test(eID)) filteredCat.restoreInternalEntity(eID);
+            }
+            filteredCat.restoreFilteredCategories();
+        }
+    }
+
+    void disposeFilteredCategory(FilteredCategory filteredCat) {
+        for (int i = 0; i < filteredCategories.size(); i++) {
+            if (filteredCategories.fastGet(i) != filteredCat) continue;
+            this.filteredCategories.fastRemove(i);
+            break;
+        }
+        if (!filteredCategories.isEmpty()) return;
+        this.addStream.disconnectObserver(addFilterObserverID);
+        this.removeStream.disconnectObserver(removeFilterObserverID);
+        this.changeStream.disconnectObserver(changeFilterObserverID);
+    }
+
+    private void addToFilteredCategories(int[] entityIDs, int offset, int length) {
+        for (int i = filteredCategories.size() - 1; i >= 0; i--) {
+            FilteredCategory filteredCat = filteredCategories.fastGet(i);
+            for (int j = offset; j < offset + length; j++) filteredCat.parentAdded(entityIDs[j]);
+        }
+    }
+
+    private void removeFromFilteredCategories(int[] entityIDs, int offset, int length) {
+        for (int i = filteredCategories.size() - 1; i >= 0; i--) {
+            FilteredCategory filteredCat = filteredCategories.fastGet(i);
+            for (int j = offset; j < offset + length; j++) filteredCat.parentRemoved(entityIDs[j]);
+        }
+    }
+
+    private void changeInFilteredCategories(int[] entityIDs, int offset, int length) {
+        for (int i = filteredCategories.size() - 1; i >= 0; i--) {
+            FilteredCategory filteredCat = filteredCategories.fastGet(i);
+            for (int j = offset; j < offset + length; j++) filteredCat.parentChanged(entityIDs[j]);
+        }
+    }
 }
@@ -0,0 +1,27 @@
+package ecsploit.ecs.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event spanning the creation of a managed category including the backfill of existing entities
+ */
+@Name("ecsploit.CategoryCreation")
+@Label("Category Creation")
+@Category("ECSPloit")
+@Description("Creation of a category and backfill of the entities which already match it")
+final class CategoryCreationEvent extends Event {
+
+    @Label("Kind")
+    @Description("Category, filtered category or owning group")
+    String kind;
+
+    @Label("Components")
+    String components;
+
+    @Label("Backfilled Entities")
+    int backfilledEntities;
+}
@@ -0,0 +1,149 @@
+package ecsploit.ecs.core;
+
+import ecsploit.utils.collections.BitString;
+
+/**
+ * Builder of categories matched by component masks: entities must have all of the {@link #all(Class[]) all}
+ * components, none of the {@link #none(Class[]) none} components and at least one of the {@link #any(Class[]) any}
+ * components. Categories are matched incrementally on every attach and detach just like plain categories, so exclusion
+ * costs the same as a plain component query.
+ * <p>
+ *     Example Usage:
+ *     <pre>
+ *         {@code
+ *         Category awakeMovables = manager.filter()
+ *                 .all(Transform.class, Velocity.class)
+ *                 .none(Sleeping.class)
+ *                 .category();
+ *         }
+ *     </pre>
+ * </p>
+ */
+public final class CategoryFilter {
+
+    private final ComponentManager componentManager;
+
+    private final BitString allBits = new BitString();
+    private final BitString excludedBits = new BitString();
+    private final BitString anyBits = new BitString();
+
+    CategoryFilter(ComponentManager componentManager) {
+        this.componentManager = componentManager;
+    }
+
+    @SafeVarargs
+    private void setAll(BitString bits, Class<? extends Component>... componentClasses) {
+        for (Class<? extends Component> componentClass: componentClasses) {
+            bits.set(componentManager.getComponentType(componentClass).getComponentID());
+        }
+    }
+
+    @SafeVarargs
+    private void setAll(BitString bits, ComponentType<? extends Component>... componentTypes) {
+        for (ComponentType<? extends Component> componentType: componentTypes) {
+            bits.set(componentType.getComponentID());
+        }
+    }
+
+    /**
+     * @param componentClasses components every entity of the category must have
+     */
+    @SafeVarargs
+    public final CategoryFilter all(Class<? extends Component>... componentClasses) {
+        this.setAll(allBits, componentClasses);
+        return this;
+    }
+
+    @SafeVarargs
+    public final CategoryFilter allT(ComponentType<? extends Component>... componentTypes) {
+        this.setAll(allBits, componentTypes);
+        return this;
+    }
+
+    /**
+     * @param componentClasses components no entity of the category may have
+     */
+    @SafeVarargs
+    public final CategoryFilter none(Class<? extends Component>... componentClasses) {
+        this.setAll(excludedBits, componentClasses);
+        return this;
+    }
+
+    @SafeVarargs
+    public final CategoryFilter noneT(ComponentType<? extends Component>... componentTypes) {
+        this.setAll(excludedBits, componentTypes);
+        return this;
+    }
+
+    /**
+     * @param componentClasses components at least one of which every entity of the category must have
+     */
+    @SafeVarargs
+    public final CategoryFilter any(Class<? extends Component>... componentClasses) {
+        this.setAll(anyBits, componentClasses);
+        return this;
+    }
+
+    @SafeVarargs
+    public final CategoryFilter anyT(ComponentType<? extends Component>... componentTypes) {
+        this.setAll(anyBits, componentTypes);
+        return this;
+    }
+
+    /**
+     * Gets the Category matching the filter. Filters with equal masks share the same Category.
+     *
+     * @return real-time updated Category reference
+     * @throws IllegalArgumentException when neither all nor any components are given or a component is both required
+     * and excluded
+     */
+    public Category category() {
+        return componentManager.getCategory(allBits, excludedBits, anyBits, false);
+    }
+
+    /**
+     * Gets the Category matching the filter like {@link #category()} but a new Category is only filled with its
+     * entities once it is first read. See {@link Manager#lazyCategory(Class[])} for more details.
+     *
+     * @return real-time updated Category reference
+     * @throws IllegalArgumentException when neither all nor any components are given or a component is both required
+     * and excluded
+     */
+    public Category lazyCategory() {
+        return componentManager.getCategory(allBits, excludedBits, anyBits, true);
+    }
+
+    /**
+     * Registry key of a filtered category
+     */
+    static final class Key {
+
+        final BitString allBits;
+        final BitString excludedBits;
+        final BitString anyBits;
+
+        Key(BitString allBits, BitString excludedBits, BitString anyBits) {
+            this.allBits = new BitString(allBits);
+            this.excludedBits = excludedBits.isEmpty() ? null : new BitString(excludedBits);
+            this.anyBits = anyBits.isEmpty() ? null : new BitString(anyBits);
+        }
+
+        private static boolean bitsEqual(BitString a, BitString b) {
+            return a == null ? b == null : a.equals(b);
+        }
+
+        public int hashCode() {
+            int hash = allBits.hashCode();
+            hash = 31 * hash + (excludedBits == null ? 0 : excludedBits.hashCode());
+            return 31 * hash + (anyBits == null ? 0 : anyBits.hashCode());
+        }
+
+        public boolean equals(Object object) {
+            if (!(object instanceof Key)) return false;
+            Key other = (Key) object;
+            return allBits.equals(other.allBits)
+                    && bitsEqual(excludedBits, other.excludedBits)
+                    && bitsEqual(anyBits, other.anyBits);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package ecsploit.ecs.core;
+
+public interface ChunkAction {
+
+    void accept(ArchetypeChunk chunk);
+
+}
@@ -0,0 +1,21 @@
+package ecsploit.ecs.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event spanning a flush of the deferred commands
+ */
+@Name("ecsploit.Clean")
+@Label("Clean")
+@Category("ECSPloit")
+@Description("Flush of the deferred attaches, detaches and destructions")
+final class CleanEvent extends Event {
+
+    @Label("Commands")
+    @Description("Number of deferred commands applied, including commands recorded by observers while cleaning")
+    int commands;
+}
@@ -0,0 +1,26 @@
+package ecsploit.ecs.core;
+
+/**
+ * Component kind whose data lives entirely in primitive columns of its ComponentType instead of in component instances.
+ * No instance is ever constructed for a ColumnComponent: attaching one returns NULL and the data is accessed through the
+ * columns registered on the ComponentType.
+ * <p>
+ *     Example Usage:
+ *     <pre>
+ *         {@code
+ *         public class Body extends ColumnComponent {}
+ *         ComponentType<Body> bodyType = manager.type(Body.class);
+ *         FloatColumn x = bodyType.floatColumn("x");
+ *         FloatColumn vx = bodyType.floatColumn("vx");
+ *
+ *         float[] xs = x.array();
+ *         float[] vxs = vx.array();
+ *         for (int i = 0; i < bodyType.size(); i++) xs[i] += vxs[i];
+ *         }
+ *     </pre>
+ * </p>
+ */
+public abstract class ColumnComponent extends Component {
+
+    protected ColumnComponent() {}
+}
@@ -0,0 +1,173 @@
+package ecsploit.ecs.core;
+
+import ecsploit.utils.collections.CollectionUtils;
+import ecsploit.utils.debug.ToStringBuilder;
+
+import java.util.Arrays;
+
+/**
+ * Recordable list of structural entity commands stored in parallel primitive arrays, so recording a command never
+ * allocates once the buffer has enough capacity. The manager uses one internally to defer component operations during
+ * system updates and systems can fill their own buffers to {@link Manager#submit(CommandBuffer) submit} later.
+ * <p>
+ *     Entities created by the buffer are referred to by negative placeholder ids until the buffer is submitted.
+ * </p>
+ * <p>
+ *     Example Usage:
+ *     <pre>
+ *         {@code
+ *         CommandBuffer commands = new CommandBuffer();
+ *         commands.reserve(1024);
+ *         int bullet = commands.create();
+ *         commands.attach(bullet, bulletType);
+ *         commands.destroy(expiredEntityID);
+ *         ...
+ *         manager.submit(commands);
+ *         bulletType.retrieve(commands.resolve(bullet)).speed = 10;
+ *         commands.clear();
+ *         }
+ *     </pre>
+ * </p>
+ * <p>
+ *     Note: Component ids are only meaningful to the manager which created the ComponentType so a buffer should only be
+ *     submitted to that manager.
+ * </p>
+ */
+public final class CommandBuffer {
+
+    static final int ATTACH = 0;
+    static final int DETACH = 1;
+    static final int DESTROY = 2;
+    static final int CREATE = 3;
+
+    int size = 0;
+    int[] opCodes;
+    int[] entityIDs;
+    int[] componentIDs;
+
+    private int totalCreated = 0;
+    private int totalResolved = 0;
+    private int[] createdEntityIDs = new int[0]; //Placeholder -(i + 1) resolves to createdEntityIDs[i] once submitted
+
+    public CommandBuffer() {
+        this(64);
+    }
+
+    public CommandBuffer(int initialCapacity) {
+        this.opCodes = new int[initialCapacity];
+        this.entityIDs = new int[initialCapacity];
+        this.componentIDs = new int[initialCapacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Grows the buffer once so that the given number of additional commands can be recorded without resizing.
+     *
+     * @param additionalCommands number of commands which will be recorded
+     */
+    public void reserve(int additionalCommands) {
+        int capacity = size + additionalCommands;
+        if (capacity > opCodes.length) this.resize(capacity);
+    }
+
+    private void resize(int capacity) {
+        this.opCodes = Arrays.copyOf(opCodes, capacity);
+        this.entityIDs = Arrays.copyOf(entityIDs, capacity);
+        this.componentIDs = Arrays.copyOf(componentIDs, capacity);
+    }
+
+    void push(int opCode, int entityID, int componentID) {
+        if (size >= opCodes.length) this.resize(CollectionUtils.getGrowLength(size));
+        this.opCodes[size] = opCode;
+        this.entityIDs[size] = entityID;
+        this.componentIDs[size] = componentID;
+        this.size++;
+    }
+
+    /**
+     * Records the attachment of a component.
+     *
+     * @param entityID id of an existing entity or a placeholder returned by {@link #create()}
+     * @param componentType type of component to attach
+     */
+    public void attach(int entityID, ComponentType<? extends Component> componentType) {
+        this.push(ATTACH, entityID, componentType.getComponentID());
+    }
+
+    /**
+     * Records the detachment of a component.
+     *
+     * @param entityID id of an existing entity or a placeholder returned by {@link #create()}
+     * @param componentType type of component to detach
+     */
+    public void detach(int entityID, ComponentType<? extends Component> componentType) {
+        this.push(DETACH, entityID, componentType.getComponentID());
+    }
+
+    /**
+     * Records the destruction of an entity.
+     *
+     * @param entityID id of an existing entity or a placeholder returned by {@link #create()}
+     */
+    public void destroy(int entityID) {
+        this.push(DESTROY, entityID, -1);
+    }
+
+    /**
+     * Records the creation of an entity.
+     *
+     * @return negative placeholder id which can be used by later commands of this buffer and turned into the id of the
+     * created entity with {@link #resolve(int) resolve} once the buffer has been submitted
+     */
+    public int create() {
+        int placeholder = -(++totalCreated);
+        this.push(CREATE, placeholder, -1);
+        return placeholder;
+    }
+
+    /**
+     * @param entityID placeholder returned by {@link #create()} or any other entity id
+     * @return id of the entity created for the placeholder during the last submit or the id itself if it is not a
+     * placeholder
+     * @throws IllegalStateException when the placeholder has not been submitted yet
+     */
+    public int resolve(int entityID) {
+        if (entityID >= 0) return entityID;
+        int index = -entityID - 1;
+        if (index >= totalResolved) {
+            throw new IllegalStateException("Placeholder " + entityID + " has not been submitted yet");
+        }
+        return createdEntityIDs[index];
+    }
+
+    void setCreated(int placeholder, int entityID) {
+        int index = -placeholder - 1;
+        if (index >= createdEntityIDs.length) this.createdEntityIDs = Arrays.copyOf(createdEntityIDs, Math.max(totalCreated, index + 1));
+        this.createdEntityIDs[index] = entityID;
+        this.totalResolved = Math.max(totalResolved, index + 1);
+    }
+
+    /**
+     * Removes every recorded command and forgets resolved placeholders while keeping the capacity of the buffer.
+     */
+    public void clear() {
+        this.size = 0;
+        this.totalCreated = 0;
+        this.totalResolved = 0;
+    }
+
+    public String toString() {
+        return ToStringBuilder.from(this)
+                .withPrim("size", size)
+                .withPrim("capacity", opCodes.length)
+                .withPrim("totalCreated", totalCreated)
+                .toString();
+    }
+}
@@ -0,0 +1,67 @@
+package ecsploit.ecs.core;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Binary encoding of the fields of a component used by {@link Manager#saveSnapshot(java.nio.file.Path) snapshots}.
+ * Registered per ComponentType through {@link ComponentType#registerCodec(ComponentCodec) registerCodec}, so no
+ * reflection is involved when saving or loading. Columns of a ComponentType are stored without a codec.
+ * <p>
+ *     Example Usage:
+ *     <pre>
+ *         {@code
+ *         transformType.registerCodec(new ComponentCodec<>() {
+ *             public int maxEncodedSize() {
+ *                 return 2 * Float.BYTES;
+ *             }
+ *             public void encode(Transform transform, ByteBuffer out) {
+ *                 out.putFloat(transform.x).putFloat(transform.y);
+ *             }
+ *             public void decode(Transform transform, ByteBuffer in) {
+ *                 transform.setPos(in.getFloat(), in.getFloat());
+ *             }
+ *         });
+ *         }
+ *     </pre>
+ * </p>
+ *
+ * @param <T> type of component
+ */
+public interface ComponentCodec<T extends Component> {
+
+    /**
+     * @return upper bound of the number of bytes written by a single {@link #encode(Component, ByteBuffer) encode}
+     */
+    int maxEncodedSize();
+
+    /**
+     * Writes the fields of the component at the current position of the buffer. At least
+     * {@link #maxEncodedSize() maxEncodedSize} bytes are remaining and the buffer is little endian.
+     */
+    void encode(T component, ByteBuffer out);
+
+    /**
+     * Reads back the fields written by {@link #encode(Component, ByteBuffer) encode} into a freshly constructed or
+     * pooled component instance.
+     */
+    void decode(T component, ByteBuffer in);
+
+    /**
+     * Codec of tag components without fields, which stores nothing but membership. Snapshots refuse to save a
+     * non-columnar component without a codec, so tags opt out of encoding explicitly.
+     *
+     * @param <T> type of component
+     * @return codec writing and reading 0 bytes
+     */
+    static <T extends Component> ComponentCodec<T> fieldless() {
+        return new ComponentCodec<>() {
+            public int maxEncodedSize() {
+                return 0;
+            }
+
+            public void encode(T component, ByteBuffer out) {}
+
+            public void decode(T component, ByteBuffer in) {}
+        };
+    }
+}
@@ -1,10 +1,14 @@
 package ecsploit.ecs.core;
 
 import ecsploit.utils.collections.BitString;
+import ecsploit.utils.collections.CollectionUtils;
 import ecsploit.utils.collections.DenseList;
-import ecsploit.utils.collections.DenseQueue;
 
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 final class ComponentManager {
 	
@@ -14,21 +18,54 @@ final class ComponentManager {
 	//Map from entityID to respective component bits
 	private BitString[] entityToComponentBits = new BitString[64];
 
-	private final DenseList<BitString> categoryBitStrings = new DenseList<>(); //List of BitStrings in same order as categories
-	private final DenseList<Category> categories = new DenseList<>(); //List of all entityGroups
+	//Minimum number of entities of a seed type before a new category is backfilled by the worker pool
+	static final int PARALLEL_BACKFILL_THRESHOLD = 1 << 16;
+
+	//Registry of categories by queried component bits
+	private final Map<BitString, Category> categories = new HashMap<>();
+	private final Map<CategoryFilter.Key, Category> filteredCategories = new HashMap<>();
+	private final BitString scratchQueryBits = new BitString(); //Only used outside of parallel passes
+
+	//Inverted index from component id to every category which queries the component
+	private DenseList<Category>[] componentToCategories = newCategoryIndex(16);
+	private final DenseList<Category> indexedCategories = new DenseList<>(16);
 
 	//Attach and Detach strategies
 	private ComponentOperationStrategy attachStrategy;
 	private ComponentOperationStrategy detachStrategy;
 
-	//Deferred component operations
-	private final DenseQueue<ComponentOperation> deferredAttaches = new DenseQueue<>();
-	private final DenseQueue<ComponentOperation> deferredDetaches = new DenseQueue<>();
+	//Optional chunked storage which mirrors the component bits when using the archetype storage engine
+	final ArchetypeStorage archetypeStorage;
+
+	//Deferred component operations and entity destructions
+	private final CommandBuffer deferredCommands = new CommandBuffer(256);
+
+	//While cleaning, notifications are queued per stream and delivered as one batch per stream
+	boolean batchingNotifications = false;
+	private final DenseList<EntityStream> queuedStreams = new DenseList<>(16);
+
+	//Change detection tick, advanced before and after every system update
+	private int currentTick = 1;
+
+	//Parallel passes record component operations in one buffer per worker thread
+	private ForkJoinPool workerPool = ForkJoinPool.commonPool();
+	private boolean parallelPass = false;
+	private ComponentOperationStrategy serialAttachStrategy;
+	private ComponentOperationStrategy serialDetachStrategy;
+	private final DenseList<WorkerBuffer> workerBuffers = new DenseList<>(16);
+	private final ThreadLocal<WorkerBuffer> localWorkerBuffer = ThreadLocal.withInitial(() -> {
+		WorkerBuffer workerBuffer = new WorkerBuffer();
+		synchronized (this.workerBuffers) {
+			this.workerBuffers.add(workerBuffer);
+		}
+		return workerBuffer;
+	});
 	
 	private final Manager manager;
 	
-	ComponentManager(Manager manager) {
+	ComponentManager(Manager manager, StorageEngine storageEngine) {
 		this.manager = manager;
+		this.archetypeStorage = storageEngine == StorageEngine.ARCHETYPE ? new ArchetypeStorage() : null;
 
 		this.setToImmediateStrategy();
 	}
@@ -36,29 +73,224 @@ final class ComponentManager {
 	void createComponentBitsInternal(int entityID) {
 		if (entityID >= this.entityToComponentBits.length) this.entityToComponentBits = Arrays.copyOf(this.entityToComponentBits, entityID + (entityID >>> 1) + 1);
 		entityToComponentBits[entityID] = new BitString();
+		if (archetypeStorage != null) archetypeStorage.insertEntity(entityID);
+	}
+
+	/**
+	 * Creates the component bits of a contiguous range of new entities and attaches every component type to all of
+	 * them. With the immediate strategy, each ComponentType and every matching category is updated with a single batched
+	 * insertion before any observer is notified. Observers of the categories are notified before the attach observers.
+	 * The deferred strategy records one attach operation per component.
+	 */
+	void createEntitiesInternal(int firstEntityID, int count, ComponentType<?>[] componentTypes) {
+		int endEntityID = firstEntityID + count;
+		if (endEntityID > this.entityToComponentBits.length) this.entityToComponentBits = Arrays.copyOf(this.entityToComponentBits, endEntityID + (endEntityID >>> 1));
+
+		if (this.attachStrategy != ComponentManager.immediateAttachStrategy) {
+			for (int entityID = firstEntityID; entityID < endEntityID; entityID++) {
+				this.createComponentBitsInternal(entityID);
+				for (ComponentType<?> componentType: componentTypes) this.attachT(entityID, componentType);
+			}
+			return;
+		}
+
+		//Duplicate types are dropped so that every component is inserted exactly once
+		BitString mask = new BitString();
+		ComponentType<?>[] uniqueTypes = new ComponentType<?>[componentTypes.length];
+		int totalTypes = 0;
+		for (ComponentType<?> componentType: componentTypes) {
+			if (mask.get(componentType.getComponentID())) continue;
+			mask.set(componentType.getComponentID());
+			uniqueTypes[totalTypes++] = componentType;
+		}
+		if (totalTypes < uniqueTypes.length) uniqueTypes = Arrays.copyOf(uniqueTypes, totalTypes);
+
+		for (int entityID = firstEntityID; entityID < endEntityID; entityID++) {
+			this.entityToComponentBits[entityID] = new BitString(mask);
+		}
+		for (ComponentType<?> componentType: uniqueTypes) {
+			componentType.addInternalRange(firstEntityID, count);
+		}
+		if (archetypeStorage != null) archetypeStorage.insertEntities(firstEntityID, count, uniqueTypes);
+
+		//Like single attaches, category observers are notified before attach observers and only once every category is
+		//up to date
+		boolean batching = this.batchingNotifications;
+		this.batchingNotifications = true;
+		try {
+			for (ComponentType<?> componentType: uniqueTypes) {
+				DenseList<Category> dependentCategories = this.getDependentCategories(componentType.getComponentID());
+				if (dependentCategories == null) continue;
+				for (int i = 0; i < dependentCategories.size(); i++) {
+					Category category = dependentCategories.fastGet(i);
+					//Categories depending on several of the types are matched through the first one only
+					if (category.has(firstEntityID) || !category.matches(mask)) continue;
+					category.addInternalRange(firstEntityID, count);
+				}
+			}
+			int[] createdIDs = null;
+			for (ComponentType<?> componentType: uniqueTypes) {
+				if (componentType.attachStream().getObserverCount() == 0 && !this.getMetrics().isEnabled()) continue;
+				if (createdIDs == null) {
+					createdIDs = new int[count];
+					for (int i = 0; i < count; i++) createdIDs[i] = firstEntityID + i;
+				}
+				componentType.notifyAttachObservers(createdIDs, 0, count);
+			}
+		} finally {
+			if (!batching) this.flushQueuedStreams();
+		}
 	}
 
 	void deleteComponentBitsInternal(int entityID) {
 		BitString componentBits = this.entityToComponentBits[entityID];
 
-		while(!componentBits.isEmpty()) {
-			int index = componentBits.indexOfLSB();
-			this.detachT(entityID, componentTypeMap.getFromID(index));
+		//Components are detached immediately but the entity is only ever removed from categories, it must not enter
+		//categories which exclude the components detached first
+		for (int index = componentBits.nextSetBit(0); index >= 0; index = componentBits.nextSetBit(index + 1)) {
+			ComponentType<?> componentType = componentTypeMap.getFromID(index);
+			componentType.removeAndRecycleInternalEntity(entityID);
 			componentBits.clear(index);
+
+			DenseList<Category> dependentCategories = this.getDependentCategories(index);
+			if (dependentCategories != null) {
+				for (int i = 0; i < dependentCategories.size(); i++) {
+					Category category = dependentCategories.fastGet(i);
+					if (category.has(entityID)) category.removeInternalEntity(entityID);
+				}
+			}
+			componentType.notifyDetachObservers(entityID);
 		}
 		entityToComponentBits[entityID] = null;
+		if (archetypeStorage != null) archetypeStorage.removeEntity(entityID);
+	}
+
+	/**
+	 * Detaches every component of the listed entities one component type at a time and releases their component bits.
+	 * See {@link Manager#destroyAll(Category) wrapper} for more details.
+	 */
+	void deleteComponentBitsInternal(int[] entityIDs, int count) {
+		BitString attachedBits = new BitString();
+		for (int i = 0; i < count; i++) attachedBits.or(this.entityToComponentBits[entityIDs[i]]);
+		int[] detached = new int[count];
+		for (int index = attachedBits.nextSetBit(0); index >= 0; index = attachedBits.nextSetBit(index + 1)) {
+			this.detachAllInternal(componentTypeMap.getFromID(index), entityIDs, count, detached, true);
+		}
+
+		for (int i = 0; i < count; i++) {
+			this.entityToComponentBits[entityIDs[i]] = null;
+			if (archetypeStorage != null) archetypeStorage.removeEntity(entityIDs[i]);
+		}
+	}
+
+	/**
+	 * See {@link Manager#detachAll(Category, ComponentType) wrapper} for more details.
+	 */
+	void detachAll(Category category, ComponentType<?> componentType) {
+		int[] entityIDs = category.getEntityIDs();
+		if (this.detachStrategy != ComponentManager.immediateDetachStrategy) {
+			for (int entityID: entityIDs) this.detachT(entityID, componentType);
+			return;
+		}
+		this.detachAllInternal(componentType, entityIDs, entityIDs.length, new int[entityIDs.length], false);
+	}
+
+	/**
+	 * Immediately detaches the component type from every listed entity which contains it. Each dependent category is
+	 * updated with one batched update and detach observers are notified once the component type is consistent.
+	 *
+	 * @param detached scratch array at least as long as the number of entities
+	 * @param destroying whether the entities are being destroyed in which case they are only ever removed from
+	 * categories and the archetype storage is left to the caller
+	 */
+	private void detachAllInternal(ComponentType<?> componentType, int[] entityIDs, int count, int[] detached, boolean destroying) {
+		int componentID = componentType.getComponentID();
+		int totalDetached = 0;
+		for (int i = 0; i < count; i++) {
+			int entityID = entityIDs[i];
+			if (!componentType.has(entityID)) continue;
+			componentType.removeAndRecycleInternalEntity(entityID);
+			this.entityToComponentBits[entityID].clear(componentID);
+			if (!destroying && archetypeStorage != null) archetypeStorage.detach(entityID, componentType);
+			detached[totalDetached++] = entityID;
+		}
+		if (totalDetached == 0) return;
+
+		DenseList<Category> dependentCategories = this.getDependentCategories(componentID);
+		if (dependentCategories != null) {
+			for (int i = 0; i < dependentCategories.size(); i++) {
+				Category category = dependentCategories.fastGet(i);
+				if (destroying) {
+					category.removeInternalEntities(detached, totalDetached);
+				} else {
+					category.updateInternalEntities(detached, totalDetached, entityToComponentBits);
+				}
+			}
+		}
+		componentType.notifyDetachObservers(detached, 0, totalDetached);
 	}
 
 	<T extends Component> ComponentType<T> getComponentType(Class<T> componentClass) {
 		return componentTypeMap.getComponentType(componentClass);
 	}
 
-	private void setComponentBit(int entityID, int componentID) {
-		this.entityToComponentBits[entityID].set(componentID);
+	@SuppressWarnings("unchecked")
+	private static DenseList<Category>[] newCategoryIndex(int length) {
+		return (DenseList<Category>[]) new DenseList<?>[length];
 	}
 
-	private void clearComponentBit(int entityID, int componentID) {
-		this.entityToComponentBits[entityID].clear(componentID);
+	private DenseList<Category> getDependentCategories(int componentID) {
+		return componentID < componentToCategories.length ? componentToCategories[componentID] : null;
+	}
+
+	/**
+	 * Sets the component bit of the entity and re-evaluates every category which depends on the component. The entity
+	 * is added to categories it now matches and removed from categories which exclude the component.
+	 */
+	private void setComponentBit(int entityID, ComponentType<? extends Component> componentType) {
+		BitString componentBits = this.entityToComponentBits[entityID];
+		componentBits.set(componentType.getComponentID());
+		if (archetypeStorage != null) archetypeStorage.attach(entityID, componentType);
+
+		DenseList<Category> dependentCategories = this.getDependentCategories(componentType.getComponentID());
+		if (dependentCategories == null) return;
+		for (int i = 0; i < dependentCategories.size(); i++) {
+			this.updateCategory(dependentCategories.fastGet(i), entityID, componentBits);
+		}
+	}
+
+	private void clearComponentBit(int entityID, ComponentType<? extends Component> componentType) {
+		BitString componentBits = this.entityToComponentBits[entityID];
+		componentBits.clear(componentType.getComponentID());
+		if (archetypeStorage != null) archetypeStorage.detach(entityID, componentType);
+
+		DenseList<Category> dependentCategories = this.getDependentCategories(componentType.getComponentID());
+		if (dependentCategories == null) return;
+		for (int i = 0; i < dependentCategories.size(); i++) {
+			this.updateCategory(dependentCategories.fastGet(i), entityID, componentBits);
+		}
+	}
+
+	private void updateCategory(Category category, int entityID, BitString componentBits) {
+		boolean matches = category.matches(componentBits);
+		if (matches == category.has(entityID)) return;
+		if (matches) {
+			category.addInternalEntity(entityID);
+		} else {
+			category.removeInternalEntity(entityID);
+		}
+	}
+
+	/**
+	 * Forwards a component change to every category which contains the entity and queries the component.
+	 */
+	void notifyCategoriesOfChange(int entityID, ComponentType<? extends Component> componentType) {
+		DenseList<Category> dependentCategories = this.getDependentCategories(componentType.getComponentID());
+		if (dependentCategories == null) return;
+		for (int i = 0; i < dependentCategories.size(); i++) {
+			Category category = dependentCategories.fastGet(i);
+			if (category.has(entityID)) category.notifyChangeObservers(entityID);
+		}
 	}
 
 	void setToImmediateStrategy() {
@@ -79,7 +311,7 @@ final class ComponentManager {
 		public <T extends Component> T invoke(ComponentManager componentManager, int entityID, ComponentType<T> componentType) {
 			T componentInstance = componentType.addAndCreateInternalEntity(entityID);
 
-			componentManager.setComponentBit(entityID, componentType.getComponentID());
+			componentManager.setComponentBit(entityID, componentType);
 			componentType.notifyAttachObservers(entityID);
 			return componentInstance;
 		}
@@ -101,7 +333,26 @@ final class ComponentManager {
 	private static final ComponentOperationStrategy deferredAttachStrategy = new ComponentOperationStrategy() {
 		public <T extends Component> T invoke(ComponentManager componentManager, int entityID, ComponentType<T> componentType) {
 			T componentInstance = componentType.addAndCreateInternalEntity(entityID);
-			componentManager.deferredAttaches.push(new ComponentOperation(entityID, componentType));
+			componentManager.deferredCommands.push(CommandBuffer.ATTACH, entityID, componentType.getComponentID());
+			return componentInstance;
+		}
+	};
+
+	/**
+	 * Called from worker threads during a parallel pass. Creates Component instance without storing it.
+	 * <p>
+	 *     Notes:
+	 *     <ul>
+	 *         <li>Component instance is NOT stored in the ComponentType until the pass ends</li>
+	 *         <li>Operation is recorded in the buffer of the current worker thread</li>
+	 *         <li>Column values of a columnar component can only be written once the pass ends</li>
+	 *     </ul>
+	 * </p>
+	 */
+	private static final ComponentOperationStrategy parallelAttachStrategy = new ComponentOperationStrategy() {
+		public <T extends Component> T invoke(ComponentManager componentManager, int entityID, ComponentType<T> componentType) {
+			T componentInstance = componentType.createInstance();
+			componentManager.localWorkerBuffer.get().push(entityID, componentType, componentInstance, true);
 			return componentInstance;
 		}
 	};
@@ -129,17 +380,17 @@ final class ComponentManager {
 	 */
 	private static final ComponentOperationStrategy immediateDetachStrategy = new ComponentOperationStrategy() {
 		public <T extends Component> T invoke(ComponentManager componentManager, int entityID, ComponentType<T> componentType) {
+			if (!componentType.has(entityID)) return null;
 			T componentInstance = componentType.removeAndGetInternalEntity(entityID);
-			if (componentInstance == null) return null;
 
-			componentManager.clearComponentBit(entityID, componentType.getComponentID());
+			componentManager.clearComponentBit(entityID, componentType);
 			componentType.notifyDetachObservers(entityID);
 			return componentInstance;
 		}
 	};
 
 	/**
-	 * Called while current system is updating. Immediately adds change to deferredDetaches list.
+	 * Called while current system is updating. Immediately records the detach in the deferred command buffer.
 	 * <p>
 	 *     Notes:
 	 *     <ul>
@@ -152,13 +403,25 @@ final class ComponentManager {
 	 */
 	private static final ComponentOperationStrategy deferredDetachStrategy = new ComponentOperationStrategy() {
 		public <T extends Component> T invoke(ComponentManager componentManager, int entityID, ComponentType<T> componentType) {
+			if (!componentType.has(entityID)) return null;
 			T componentInstance = componentType.removeAndGetInternalEntity(entityID);
-			if (componentInstance == null) return null;
-			componentManager.deferredDetaches.push(new ComponentOperation(entityID, componentType));
+			componentManager.deferredCommands.push(CommandBuffer.DETACH, entityID, componentType.getComponentID());
 			return componentInstance;
 		}
 	};
 
+	/**
+	 * Called from worker threads during a parallel pass. Only records the detach in the buffer of the current worker
+	 * thread, the Component instance is removed from the ComponentType once the pass ends.
+	 */
+	private static final ComponentOperationStrategy parallelDetachStrategy = new ComponentOperationStrategy() {
+		public <T extends Component> T invoke(ComponentManager componentManager, int entityID, ComponentType<T> componentType) {
+			if (!componentType.has(entityID)) return null;
+			componentManager.localWorkerBuffer.get().push(entityID, componentType, null, false);
+			return componentType.getInternal(entityID);
+		}
+	};
+
 	/**
 	 * See {@link Manager#detach(Entity, Class) wrapper} for more details.
 	 */
@@ -185,11 +448,19 @@ final class ComponentManager {
 	 */
 	@SafeVarargs
 	final Category getCategory(Class<? extends Component>... componentClasses) {
+		return this.getCategory(false, componentClasses);
+	}
+
+	/**
+	 * @param lazy whether a new category is only backfilled once it is first read
+	 */
+	@SafeVarargs
+	final Category getCategory(boolean lazy, Class<? extends Component>... componentClasses) {
 		ComponentType<?>[] componentTypes = new ComponentType[componentClasses.length];
 		for (int i = 0; i < componentClasses.length; i++) {
 			componentTypes[i] = manager.getComponentManager().getComponentType(componentClasses[i]);
 		}
-		return this.getCategoryT(componentTypes);
+		return this.getCategoryT(lazy, componentTypes);
 	}
 
 	/**
@@ -197,61 +468,508 @@ final class ComponentManager {
 	 */
 	@SafeVarargs
 	final Category getCategoryT(ComponentType<? extends Component>... componentTypes) {
-		BitString queriedComponents = new BitString();
+		return this.getCategoryT(false, componentTypes);
+	}
+
+	/**
+	 * @param lazy whether a new category is only backfilled once it is first read
+	 */
+	@SafeVarargs
+	final Category getCategoryT(boolean lazy, ComponentType<? extends Component>... componentTypes) {
+		//Concurrent systems of a parallel pass may look up categories at the same time
+		BitString queriedComponents = parallelPass ? new BitString() : this.scratchQueryBits;
+		queriedComponents.clearAll();
 		for (ComponentType<? extends Component> type: componentTypes) { //Generate bitString from componentType list
 			queriedComponents.set(type.getComponentID());
 		}
-		for (int i = 0; i < categories.size(); i++) {
-			if (this.categoryBitStrings.fastGet(i).equals(queriedComponents)) { //Attempt to find cache of queried components
-				return categories.fastGet(i);
+		Category category = this.categories.get(queriedComponents); //Attempt to find cache of queried components
+		if (category != null) return category;
+
+		return createNewCategory(new BitString(queriedComponents), null, null, lazy);
+	}
+
+	/**
+	 * See {@link Manager#query(ComponentType[]) wrapper} for more details.
+	 */
+	@SafeVarargs
+	final ArchetypeQuery getQuery(ComponentType<? extends Component>... componentTypes) {
+		if (archetypeStorage == null) {
+			throw new IllegalStateException("Archetype queries require the manager to use StorageEngine.ARCHETYPE");
+		}
+		BitString queriedComponents = new BitString();
+		for (ComponentType<? extends Component> type: componentTypes) {
+			queriedComponents.set(type.getComponentID());
+		}
+		return archetypeStorage.getQuery(queriedComponents);
+	}
+
+	/**
+	 * See {@link CategoryFilter#category() wrapper} for more details.
+	 */
+	Category getCategory(BitString allBits, BitString excludedBits, BitString anyBits, boolean lazy) {
+		if (excludedBits.isEmpty() && anyBits.isEmpty()) {
+			Category category = this.categories.get(allBits);
+			return category != null ? category : this.createNewCategory(new BitString(allBits), null, null, lazy);
+		}
+		if (allBits.isEmpty() && anyBits.isEmpty()) {
+			throw new IllegalArgumentException("Category must require at least one component through all or any");
+		}
+		if (allBits.intersects(excludedBits)) {
+			throw new IllegalArgumentException("Category can't both require and exclude the same component");
+		}
+		CategoryFilter.Key key = new CategoryFilter.Key(allBits, excludedBits, anyBits);
+		Category category = this.filteredCategories.get(key);
+		if (category != null) return category;
+
+		category = this.createNewCategory(key.allBits, key.excludedBits, key.anyBits, lazy);
+		this.filteredCategories.put(key, category);
+		return category;
+	}
+
+	/**
+	 * See {@link Manager#group(ComponentType[]) wrapper} for more details.
+	 */
+	OwningGroup createGroup(ComponentType<?>[] ownedTypes) {
+		if (ownedTypes.length == 0) throw new IllegalArgumentException("Group must own at least one component type");
+		if (parallelPass) throw new IllegalStateException("Groups can't be created during a parallel pass");
+		CategoryCreationEvent event = new CategoryCreationEvent();
+		event.begin();
+		BitString ownedBits = new BitString();
+		ComponentType<?> smallestType = ownedTypes[0];
+		for (ComponentType<?> ownedType: ownedTypes) {
+			if (ownedType.owner != null) {
+				throw new IllegalStateException(ownedType + " is already owned by another group");
 			}
+			ownedBits.set(ownedType.getComponentID());
+			if (ownedType.size() < smallestType.size()) smallestType = ownedType;
 		}
+		OwningGroup group = new OwningGroup(this, ownedBits, ownedTypes.clone());
+		for (ComponentType<?> ownedType: ownedTypes) ownedType.owner = group;
 
-		return createNewCategory(queriedComponents, componentTypes);
+		for (int i = 0; i < smallestType.size(); i++) {
+			int entityID = smallestType.entityAt(i);
+			if (group.matches(this.entityToComponentBits[entityID])) group.addInternalEntity(entityID);
+		}
+		this.indexCategory(group, ownedBits);
+		this.commitCreationEvent(event, "Owning group", group);
+		return group;
 	}
 
-	final Category createNewCategory(BitString queriedComponents, ComponentType<? extends Component>[] componentTypes) {
-		Category category = new Category();
-		manager.getEntityManager().forEach(entityID -> {
-			if (this.entityToComponentBits[entityID].includes(queriedComponents)) {
-				category.addInternalEntity(entityID);
+	/**
+	 * @return copy of every category managed by the ComponentManager in order of creation
+	 */
+	Category[] getIndexedCategories() {
+		Category[] categories = new Category[indexedCategories.size()];
+		for (int i = 0; i < categories.length; i++) {
+			categories[i] = indexedCategories.fastGet(i);
+		}
+		return categories;
+	}
+
+	ManagerMetrics getMetrics() {
+		return manager.metrics();
+	}
+
+	private void indexCategory(Category category, BitString dependencies) {
+		this.indexedCategories.add(category);
+		dependencies.forEachSetBit(componentID -> { //Index the category to automatically manage it in the future
+			if (componentID >= componentToCategories.length) {
+				this.componentToCategories = Arrays.copyOf(componentToCategories, CollectionUtils.getGrowLength(componentID));
 			}
+			if (componentToCategories[componentID] == null) componentToCategories[componentID] = new DenseList<>(8);
+			componentToCategories[componentID].add(category);
 		});
-		this.categories.add(category); //Cache the category for future retrieval
-		this.categoryBitStrings.add(queriedComponents);
+	}
 
-		for (ComponentType<? extends Component> type: componentTypes) { //Add dependency handlers to automatically manage category in the future
-			type.onComponentAttach(entityID -> {
-				if (!category.has(entityID) && this.entityToComponentBits[entityID].includes(queriedComponents)) {
-					category.addInternalEntity(entityID);
-				}
-			});
-			type.onComponentDetach(entityID -> {
-				if (category.has(entityID)) category.removeInternalEntity(entityID);
-			});
-			type.onComponentChange(entityID -> {
-				if (category.has(entityID)) category.notifyChangeObservers(entityID);
-			});
+	/**
+	 * @param excludedBits excluded components or NULL
+	 * @param anyBits components at least one of which is required or NULL
+	 * @param lazy whether the category is only backfilled and indexed once it is first read
+	 */
+	final Category createNewCategory(BitString queriedComponents, BitString excludedBits, BitString anyBits, boolean lazy) {
+		if (parallelPass) throw new IllegalStateException("Categories can't be created during a parallel pass");
+		Category category = lazy
+				? new LazyCategory(this, queriedComponents, excludedBits, anyBits)
+				: new Category(this, queriedComponents, excludedBits, anyBits);
+		if (excludedBits == null && anyBits == null) {
+			this.categories.put(queriedComponents, category); //Cache the category for future retrieval
 		}
+		if (!lazy) this.materialize(category);
 		return category;
 	}
 
+	/**
+	 * Backfills an empty category and indexes it so that it is managed from then on.
+	 */
+	void materialize(Category category) {
+		CategoryCreationEvent event = new CategoryCreationEvent();
+		event.begin();
+		this.backfill(category);
+
+		BitString dependencies = new BitString(category.componentBits);
+		if (category.excludedBits != null) dependencies.or(category.excludedBits);
+		if (category.anyBits != null) dependencies.or(category.anyBits);
+		this.indexCategory(category, dependencies);
+		boolean filtered = category.excludedBits != null || category.anyBits != null;
+		this.commitCreationEvent(event, filtered ? "Filtered category" : "Category", category);
+	}
+
+	/**
+	 * Adds every matching entity to an empty category. Only the entities of the smallest required ComponentType are
+	 * tested, or the entities of every ComponentType one of which is required when no component is required.
+	 */
+	private void backfill(Category category) {
+		if (category.componentBits.isEmpty()) {
+			category.anyBits.forEachSetBit(componentID -> this.backfillFrom(category, componentTypeMap.getFromID(componentID)));
+			return;
+		}
+		ComponentType<?> smallestType = null;
+		BitString componentBits = category.componentBits;
+		for (int index = componentBits.nextSetBit(0); index >= 0; index = componentBits.nextSetBit(index + 1)) {
+			ComponentType<?> componentType = componentTypeMap.getFromID(index);
+			if (smallestType == null || componentType.entities.size() < smallestType.entities.size()) smallestType = componentType;
+		}
+		this.backfillFrom(category, smallestType);
+	}
+
+	private void backfillFrom(Category category, ComponentType<?> seedType) {
+		int[] entityIDs = seedType.entities.getInnerList();
+		int size = seedType.entities.size();
+		if (size >= PARALLEL_BACKFILL_THRESHOLD && !parallelPass) { //Only the matching is done by the worker pool
+			boolean[] matched = new boolean[size];
+			workerPool.invoke(new BackfillTask(category, entityIDs, entityToComponentBits, matched, 0, size));
+			for (int i = 0; i < size; i++) {
+				if (matched[i] && !category.entities.contains(entityIDs[i])) category.addInternalEntity(entityIDs[i]);
+			}
+		} else {
+			for (int i = 0; i < size; i++) {
+				int entityID = entityIDs[i];
+				if (category.entities.contains(entityID)) continue;
+				if (category.matches(entityToComponentBits[entityID])) category.addInternalEntity(entityID);
+			}
+		}
+		if (!this.isDeferred()) return;
+
+		//Deferred detaches have already removed the component from the seed type but not from the component bits
+		int seedID = seedType.getComponentID();
+		CommandBuffer commands = this.deferredCommands;
+		for (int i = 0; i < commands.size; i++) {
+			if (commands.opCodes[i] != CommandBuffer.DETACH || commands.componentIDs[i] != seedID) continue;
+			int entityID = commands.entityIDs[i];
+			if (seedType.has(entityID) || category.entities.contains(entityID)) continue;
+			BitString componentBits = entityToComponentBits[entityID];
+			if (componentBits != null && category.matches(componentBits)) category.addInternalEntity(entityID);
+		}
+	}
+
+	private static final class BackfillTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Category category;
+		private final int[] entityIDs;
+		private final BitString[] entityToComponentBits;
+		private final boolean[] matched;
+		private final int start;
+		private final int end;
+
+		BackfillTask(Category category, int[] entityIDs, BitString[] entityToComponentBits, boolean[] matched, int start, int end) {
+			this.category = category;
+			this.entityIDs = entityIDs;
+			this.entityToComponentBits = entityToComponentBits;
+			this.matched = matched;
+			this.start = start;
+			this.end = end;
+		}
+
+		protected void compute() {
+			if (end - start <= Category.DEFAULT_PARALLEL_CHUNK_SIZE) {
+				for (int i = start; i < end; i++) {
+					this.matched[i] = category.matches(entityToComponentBits[entityIDs[i]]);
+				}
+				return;
+			}
+			int middle = (start + end) >>> 1;
+			invokeAll(new BackfillTask(category, entityIDs, entityToComponentBits, matched, start, middle),
+					new BackfillTask(category, entityIDs, entityToComponentBits, matched, middle, end));
+		}
+	}
+
+	private void commitCreationEvent(CategoryCreationEvent event, String kind, Category category) {
+		event.end();
+		if (!event.shouldCommit()) return;
+		event.kind = kind;
+		event.components = this.describe(category);
+		event.backfilledEntities = category.size();
+		event.commit();
+	}
+
+	/**
+	 * @return the component masks of a managed category, e.g. "all=[Transform] none=[Sleeping]"
+	 */
+	String describe(Category category) {
+		if (category instanceof ComponentType) return ((ComponentType<?>) category).getComponentName();
+		return "all=" + this.describeComponents(category.componentBits)
+				+ (category.excludedBits != null ? " none=" + this.describeComponents(category.excludedBits) : "")
+				+ (category.anyBits != null ? " any=" + this.describeComponents(category.anyBits) : "");
+	}
+
+	private String describeComponents(BitString componentBits) {
+		StringBuilder out = new StringBuilder("[");
+		componentBits.forEachSetBit(componentID -> {
+			if (out.length() > 1) out.append(", ");
+			out.append(componentTypeMap.getFromID(componentID).getComponentName());
+		});
+		return out.append(']').toString();
+	}
+
+	/**
+	 * Sets the component bits of entities restored into a ComponentType from a snapshot. Categories and observers are
+	 * left untouched until {@link #restoreCategories()}.
+	 */
+	void restoreComponentBits(ComponentType<?> componentType, int[] entityIDs, int count) {
+		int componentID = componentType.getComponentID();
+		for (int i = 0; i < count; i++) {
+			this.entityToComponentBits[entityIDs[i]].set(componentID);
+			if (archetypeStorage != null) archetypeStorage.attach(entityIDs[i], componentType);
+		}
+	}
+
+	/**
+	 * Fills every managed category in a single pass over the active entities without notifying any observer. Every
+	 * category is expected to be empty.
+	 */
+	void restoreCategories() {
+		int totalCategories = indexedCategories.size();
+		if (totalCategories == 0) return;
+		manager.getEntityManager().forEach(entityID -> {
+			BitString componentBits = this.entityToComponentBits[entityID];
+			for (int i = 0; i < totalCategories; i++) {
+				Category category = indexedCategories.fastGet(i);
+				if (category.matches(componentBits)) category.restoreInternalEntity(entityID);
+			}
+		});
+		for (int i = 0; i < totalCategories; i++) {
+			indexedCategories.fastGet(i).restoreFilteredCategories();
+		}
+	}
+
+	ForkJoinPool getWorkerPool() {
+		return workerPool;
+	}
+
+	void setWorkerPool(ForkJoinPool workerPool) {
+		if (workerPool == null) throw new IllegalArgumentException("Worker pool must be non-null");
+		this.workerPool = workerPool;
+	}
+
+	boolean isParallelPass() {
+		return parallelPass;
+	}
+
+	/**
+	 * Switches to the parallel strategies for the duration of a parallel pass.
+	 *
+	 * @return false if a parallel pass is already running in which case nothing is changed
+	 */
+	boolean beginParallelPass() {
+		if (parallelPass) return false;
+		this.parallelPass = true;
+		this.serialAttachStrategy = this.attachStrategy;
+		this.serialDetachStrategy = this.detachStrategy;
+		this.attachStrategy = ComponentManager.parallelAttachStrategy;
+		this.detachStrategy = ComponentManager.parallelDetachStrategy;
+		return true;
+	}
+
+	void endParallelPass() {
+		this.attachStrategy = this.serialAttachStrategy;
+		this.detachStrategy = this.serialDetachStrategy;
+		this.parallelPass = false;
+		this.mergeWorkerBuffers();
+	}
+
+	/**
+	 * Replays every operation recorded by the workers with the current (immediate or deferred) strategy.
+	 */
+	private void mergeWorkerBuffers() {
+		synchronized (this.workerBuffers) {
+			for (int i = 0; i < workerBuffers.size(); i++) {
+				workerBuffers.fastGet(i).replay(this);
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T extends Component> void replayOperation(int entityID, ComponentType<T> componentType, Component componentInstance, boolean attach) {
+		boolean deferred = this.attachStrategy == ComponentManager.deferredAttachStrategy;
+		if (attach) {
+			componentType.putInternalEntity(entityID, (T) componentInstance);
+			if (deferred) {
+				this.deferredCommands.push(CommandBuffer.ATTACH, entityID, componentType.getComponentID());
+			} else {
+				this.setComponentBit(entityID, componentType);
+				componentType.notifyAttachObservers(entityID);
+			}
+		} else if (componentType.has(entityID)) {
+			componentType.removeAndGetInternalEntity(entityID);
+			if (deferred) {
+				this.deferredCommands.push(CommandBuffer.DETACH, entityID, componentType.getComponentID());
+			} else {
+				this.clearComponentBit(entityID, componentType);
+				componentType.notifyDetachObservers(entityID);
+			}
+		}
+	}
+
+	int getTick() {
+		return currentTick;
+	}
+
+	int advanceTick() {
+		return ++currentTick;
+	}
+
+	/**
+	 * @return number of deferred commands waiting to be cleaned
+	 */
+	int getDeferredCommandCount() {
+		return deferredCommands.size;
+	}
+
+	boolean isDeferred() {
+		return this.attachStrategy == ComponentManager.deferredAttachStrategy;
+	}
+
+	/**
+	 * Records the destruction of an entity which is carried out once the current system update ends.
+	 */
+	void deferDestroy(int entityID) {
+		this.deferredCommands.push(CommandBuffer.DESTROY, entityID, -1);
+	}
+
+	/**
+	 * See {@link Manager#reserveDeferredCommands(int) wrapper} for more details.
+	 */
+	void reserveDeferredCommands(int additionalCommands) {
+		this.deferredCommands.reserve(additionalCommands);
+	}
+
+	/**
+	 * Applies every deferred command. Attaches are handled first, then detaches and finally destructions. Observers of
+	 * attaches and detaches are notified once per stream with every entity of the phase, and destroyed entities are
+	 * released together. Commands recorded by observers while cleaning are applied in further rounds.
+	 */
 	void clean() {
-		int totalDeferredAttaches = deferredAttaches.size();
-		for (int i = 0; i < totalDeferredAttaches; i++) {
-			ComponentOperation attachOperation = deferredAttaches.poll();
-			this.setComponentBit(attachOperation.entityID, attachOperation.componentType.getComponentID());
-			attachOperation.componentType.notifyAttachObservers(attachOperation.entityID);
+		CleanEvent event = new CleanEvent();
+		event.begin();
+		CommandBuffer commands = this.deferredCommands;
+		int start = 0;
+		while (start < commands.size) {
+			int end = commands.size;
+			this.batchingNotifications = true;
+			try {
+				for (int i = start; i < end; i++) {
+					if (commands.opCodes[i] != CommandBuffer.ATTACH) continue;
+					int entityID = commands.entityIDs[i];
+					ComponentType<?> componentType = componentTypeMap.getFromID(commands.componentIDs[i]);
+					//Only applied when the bit is clear and the type still has the entity, so notifications stay paired
+					if (entityToComponentBits[entityID].get(componentType.getComponentID()) || !componentType.has(entityID)) continue;
+					this.setComponentBit(entityID, componentType);
+					componentType.notifyAttachObservers(entityID);
+				}
+			} finally {
+				this.flushQueuedStreams();
+			}
+			this.batchingNotifications = true;
+			try {
+				for (int i = start; i < end; i++) {
+					if (commands.opCodes[i] != CommandBuffer.DETACH) continue;
+					int entityID = commands.entityIDs[i];
+					ComponentType<?> componentType = componentTypeMap.getFromID(commands.componentIDs[i]);
+					//Only applied when the bit is set and the type no longer has the entity
+					if (!entityToComponentBits[entityID].get(componentType.getComponentID()) || componentType.has(entityID)) continue;
+					this.clearComponentBit(entityID, componentType);
+					componentType.notifyDetachObservers(entityID);
+				}
+			} finally {
+				this.flushQueuedStreams();
+			}
+			this.releaseDestroyed(commands, start, end);
+			start = end;
+		}
+		event.end();
+		if (event.shouldCommit()) {
+			event.commands = commands.size;
+			event.commit();
+		}
+		commands.clear();
+	}
+
+	/**
+	 * Delivers the notifications queued while cleaning or creating entities in bulk, one batch per stream in the order the streams were first
+	 * notified.
+	 */
+	private void flushQueuedStreams() {
+		this.batchingNotifications = false;
+		int flushed = 0;
+		try {
+			for (; flushed < queuedStreams.size(); flushed++) {
+				queuedStreams.fastGet(flushed).flushPending();
+			}
+		} finally {
+			for (int i = flushed; i < queuedStreams.size(); i++) queuedStreams.fastGet(i).discardPending();
+			this.queuedStreams.clear();
+		}
+	}
+
+	void queueStream(EntityStream stream) {
+		this.queuedStreams.add(stream);
+	}
+
+	private void releaseDestroyed(CommandBuffer commands, int start, int end) {
+		int[] destroyedIDs = null;
+		int totalDestroyed = 0;
+		BitString destroyedBits = null; //Entities destroyed more than once are only released once
+		EntityManager entityManager = manager.getEntityManager();
+		for (int i = start; i < end; i++) {
+			if (commands.opCodes[i] != CommandBuffer.DESTROY) continue;
+			int entityID = commands.entityIDs[i];
+			if (!entityManager.isActive(entityID)) continue;
+			if (destroyedIDs == null) {
+				destroyedIDs = new int[end - i];
+				destroyedBits = new BitString();
+			}
+			if (destroyedBits.get(entityID)) continue;
+			destroyedBits.set(entityID);
+			destroyedIDs[totalDestroyed++] = entityID;
 		}
-		this.deferredAttaches.reset();
+		if (totalDestroyed > 0) entityManager.releaseEntities(destroyedIDs, totalDestroyed);
+	}
 
-		int totalDeferredDetaches = deferredDetaches.size();
-		for (int i = 0; i < totalDeferredDetaches; i++) {
-			ComponentOperation detachOperation = deferredDetaches.poll();
-			this.clearComponentBit(detachOperation.entityID, detachOperation.componentType.getComponentID());
-			detachOperation.componentType.notifyDetachObservers(detachOperation.entityID);
+	/**
+	 * See {@link Manager#submit(CommandBuffer) wrapper} for more details.
+	 */
+	void submit(CommandBuffer commands) {
+		if (parallelPass) throw new IllegalStateException("Command buffers can't be submitted during a parallel pass");
+		EntityManager entityManager = manager.getEntityManager();
+		for (int i = 0; i < commands.size; i++) {
+			int entityID = commands.entityIDs[i];
+			switch (commands.opCodes[i]) {
+				case CommandBuffer.CREATE:
+					commands.setCreated(entityID, entityManager.createEntityID());
+					break;
+				case CommandBuffer.ATTACH:
+					this.attachT(commands.resolve(entityID), componentTypeMap.getFromID(commands.componentIDs[i]));
+					break;
+				case CommandBuffer.DETACH:
+					this.detachT(commands.resolve(entityID), componentTypeMap.getFromID(commands.componentIDs[i]));
+					break;
+				case CommandBuffer.DESTROY:
+					entityManager.destroyEntity(commands.resolve(entityID));
+					break;
+			}
 		}
-		this.deferredDetaches.reset();
 	}
 
 	private interface ComponentOperationStrategy {
@@ -260,14 +978,39 @@ final class ComponentManager {
 
 	}
 
-	private static class ComponentOperation {
-
-		final int entityID;
-		final ComponentType<? extends Component> componentType;
+	/**
+	 * Component operations recorded by a single worker thread. Instances of columnar components are always null so
+	 * attaches and detaches are told apart by an explicit flag.
+	 */
+	private static final class WorkerBuffer {
+
+		private int size = 0;
+		private int[] entityIDs = new int[64];
+		private ComponentType<?>[] componentTypes = new ComponentType<?>[64];
+		private Component[] componentInstances = new Component[64];
+		private boolean[] attaches = new boolean[64];
+
+		void push(int entityID, ComponentType<?> componentType, Component componentInstance, boolean attach) {
+			if (size >= entityIDs.length) {
+				this.entityIDs = Arrays.copyOf(entityIDs, CollectionUtils.getGrowLength(size));
+				this.componentTypes = CollectionUtils.grow(componentTypes);
+				this.componentInstances = CollectionUtils.grow(componentInstances);
+				this.attaches = Arrays.copyOf(attaches, entityIDs.length);
+			}
+			this.entityIDs[size] = entityID;
+			this.componentTypes[size] = componentType;
+			this.componentInstances[size] = componentInstance;
+			this.attaches[size] = attach;
+			this.size++;
+		}
 
-		ComponentOperation(int entityID, ComponentType<? extends Component> componentType) {
-			this.entityID = entityID;
-			this.componentType = componentType;
+		void replay(ComponentManager componentManager) {
+			for (int i = 0; i < size; i++) {
+				componentManager.replayOperation(entityIDs[i], componentTypes[i], componentInstances[i], attaches[i]);
+				this.componentTypes[i] = null;
+				this.componentInstances[i] = null;
+			}
+			this.size = 0;
 		}
 	}
 }
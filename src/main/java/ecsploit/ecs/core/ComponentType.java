@@ -1,7 +1,11 @@
 package ecsploit.ecs.core;
 
+import ecsploit.utils.collections.CollectionUtils;
 import ecsploit.utils.collections.DenseList;
 
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 public final class ComponentType<T extends Component> extends Category {
@@ -10,18 +14,39 @@ public final class ComponentType<T extends Component> extends Category {
     private final int componentTypeID;
 
     private Supplier<T> componentConstructor;
+    private ComponentCodec<T> codec;
 
     private final DenseList<T> componentInstances = new DenseList<>();
 
-    ComponentType(Class<T> componentClass, int componentTypeID) {
+    private Consumer<T> resetHook;
+    private T[] pool;
+    private int poolSize = 0;
+    private int poolCapacity = 0;
+    private long poolHits = 0;
+    private long poolMisses = 0;
+
+    private int[] changeTicks = new int[64]; //Tick of the last change of every component, aligned with the dense index
+
+    private final boolean columnar;
+    OwningGroup owner; //Group which keeps the dense arrays of this type ordered or NULL
+    final DenseList<PrimitiveColumn> columns = new DenseList<>(4);
+
+    ComponentType(ComponentManager componentManager, Class<T> componentClass, int componentTypeID) {
+        super(componentManager);
         this.componentClass = componentClass;
         this.componentTypeID = componentTypeID;
+        this.columnar = ColumnComponent.class.isAssignableFrom(componentClass);
+        this.pool = this.newColumn(0);
     }
 
     public String getComponentName() {
         return this.componentClass.getSimpleName();
     }
 
+    Class<T> getComponentClass() {
+        return componentClass;
+    }
+
     int getComponentID() {
         return componentTypeID;
     }
@@ -48,6 +73,93 @@ public final class ComponentType<T extends Component> extends Category {
         this.componentConstructor = componentConstructor;
     }
 
+    /**
+     * Assigns the binary encoding used to store the fields of this component in
+     * {@link Manager#saveSnapshot(java.nio.file.Path) snapshots}. Snapshots can't be saved while a non-columnar
+     * ComponentType with entities has no codec, tag components without fields register
+     * {@link ComponentCodec#fieldless()} instead.
+     *
+     * @param codec encoding of the component fields or NULL to remove the codec
+     */
+    public void registerCodec(ComponentCodec<T> codec) {
+        this.codec = codec;
+    }
+
+    ComponentCodec<T> getCodec() {
+        return codec;
+    }
+
+    /**
+     * Enables recycling of component instances. Instances removed by destroying the entity or by
+     * {@link Manager#detachAll(Category, ComponentType) detachAll} are kept in a pool of at most the given capacity and
+     * handed out again on the next attach instead of constructing a new instance. A capacity of 0 (the default) disables
+     * pooling and releases every pooled instance.
+     * <p>
+     *     Note: Instances returned by a single detach belong to the caller and are never pooled.
+     * </p>
+     * <p>
+     *     Example Usage:
+     *     <pre>
+     *         {@code
+     *         ComponentType<Bullet> bulletType = manager.type(Bullet.class);
+     *         bulletType.setPoolCapacity(4096);
+     *         bulletType.registerResetHook(bullet -> bullet.lifetime = 0);
+     *         }
+     *     </pre>
+     * </p>
+     *
+     * @param poolCapacity maximum number of instances kept for reuse
+     */
+    public void setPoolCapacity(int poolCapacity) {
+        if (poolCapacity < 0) throw new IllegalArgumentException("Pool capacity must not be negative: " + poolCapacity);
+        this.poolCapacity = poolCapacity;
+        if (poolSize > poolCapacity) {
+            Arrays.fill(pool, poolCapacity, poolSize, null);
+            this.poolSize = poolCapacity;
+        }
+        if (pool.length > poolCapacity) this.pool = Arrays.copyOf(pool, poolCapacity);
+    }
+
+    public int getPoolCapacity() {
+        return poolCapacity;
+    }
+
+    /**
+     * Assigns a function which is invoked on every instance before it is reused. If no hook is registered, reused
+     * instances keep the data of their previous entity.
+     *
+     * @param resetHook function which restores a recycled instance to its initial state
+     */
+    public void registerResetHook(Consumer<T> resetHook) {
+        this.resetHook = resetHook;
+    }
+
+    /**
+     * @return number of instances currently waiting in the pool
+     */
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    /**
+     * @return number of attaches which reused a pooled instance
+     */
+    public long getPoolHits() {
+        return poolHits;
+    }
+
+    /**
+     * @return number of attaches with pooling enabled which had to construct a new instance
+     */
+    public long getPoolMisses() {
+        return poolMisses;
+    }
+
+    public void resetPoolCounters() {
+        this.poolHits = 0;
+        this.poolMisses = 0;
+    }
+
     static class IllegalComponentAccessException extends RuntimeException {
         public IllegalComponentAccessException(String message) {
             super(message);
@@ -62,39 +174,353 @@ public final class ComponentType<T extends Component> extends Category {
      * @return component related to the entity or NULL if entity does not contain the component.
      */
     public T retrieve(int entityID) {
+        int index = this.checkedIndexOf(entityID);
+        if (columnar) return null;
+        return componentInstances.get(index);
+    }
+
+    /**
+     * @return component related to the entity or NULL if entity does not contain the component
+     */
+    T getInternal(int entityID) {
+        int index = this.entities.indexOf(entityID);
+        if (index == -1 || columnar) return null;
+        return componentInstances.fastGet(index);
+    }
+
+    /**
+     * @return true if the component stores its data in {@link PrimitiveColumn columns} rather than in instances
+     */
+    public boolean isColumnar() {
+        return columnar;
+    }
+
+    /**
+     * Dense index of an entity. Values of the entity in every {@link PrimitiveColumn column} of this ComponentType are
+     * stored at this index.
+     *
+     * @param entityID id of entity
+     * @return index of the entity or -1 if entity does not contain the component
+     */
+    public int denseIndexOf(int entityID) {
+        return this.entities.indexOf(entityID);
+    }
+
+    /**
+     * @throws IllegalComponentAccessException when entityID is not attached to the associated ComponentType
+     */
+    int checkedIndexOf(int entityID) {
         int index = this.entities.indexOf(entityID);
         if (index == -1) throw new IllegalComponentAccessException("Entity id=" + entityID + " does not contain ComponentType=" + this.getComponentName());
-        return componentInstances.get(index);
+        return index;
+    }
+
+    /**
+     * Fast retrieval of the component stored at a dense index, mainly for index-aligned iteration of an
+     * {@link OwningGroup}. No bounds checking.
+     *
+     * @param index dense index between 0 and {@link #size() size}
+     * @return component stored at the dense index or NULL for columnar components
+     */
+    public T getAt(int index) {
+        if (columnar) return null;
+        return componentInstances.fastGet(index);
+    }
+
+    /**
+     * @return group owning this ComponentType or NULL if the type is not owned
+     */
+    public OwningGroup getOwner() {
+        return owner;
+    }
+
+    /**
+     * Swaps two dense slots together with their component instances and column values.
+     */
+    void swapDense(int indexA, int indexB) {
+        if (indexA == indexB) return;
+        this.entities.swap(indexA, indexB);
+        int changeTick = changeTicks[indexA];
+        this.changeTicks[indexA] = changeTicks[indexB];
+        this.changeTicks[indexB] = changeTick;
+        if (!columnar) {
+            T componentInstance = componentInstances.fastGet(indexA);
+            this.componentInstances.fastSet(indexA, componentInstances.fastGet(indexB));
+            this.componentInstances.fastSet(indexB, componentInstance);
+        }
+        for (int i = 0; i < columns.size(); i++) {
+            columns.fastGet(i).swap(indexA, indexB);
+        }
+    }
+
+    /**
+     * @param index dense index between 0 and {@link #size() size}
+     * @return id of the entity stored at the dense index
+     */
+    public int entityAt(int index) {
+        return this.entities.get(index);
+    }
+
+    /**
+     * Retrieves the int column with the given name, creating it if it does not exist. Columns can be added to any
+     * ComponentType but components extending {@link ColumnComponent} store their data exclusively in columns.
+     * <p>
+     *     Example Usage:
+     *     <pre>
+     *         {@code
+     *         IntColumn x = transformType.intColumn("x");
+     *         int[] xs = x.array();
+     *         for (int i = 0; i < transformType.size(); i++) xs[i]++;
+     *         }
+     *     </pre>
+     * </p>
+     *
+     * @param name name of the column
+     * @return column aligned with the dense index of this ComponentType
+     */
+    public IntColumn intColumn(String name) {
+        PrimitiveColumn column = this.findColumn(name, IntColumn.class);
+        return column != null ? (IntColumn) column : this.addColumn(new IntColumn(name, this));
+    }
+
+    /**
+     * See {@link #intColumn(String)} for more details.
+     */
+    public FloatColumn floatColumn(String name) {
+        PrimitiveColumn column = this.findColumn(name, FloatColumn.class);
+        return column != null ? (FloatColumn) column : this.addColumn(new FloatColumn(name, this));
+    }
+
+    /**
+     * See {@link #intColumn(String)} for more details.
+     */
+    public DoubleColumn doubleColumn(String name) {
+        PrimitiveColumn column = this.findColumn(name, DoubleColumn.class);
+        return column != null ? (DoubleColumn) column : this.addColumn(new DoubleColumn(name, this));
+    }
+
+    PrimitiveColumn findColumn(String name, Class<? extends PrimitiveColumn> columnClass) {
+        for (int i = 0; i < columns.size(); i++) {
+            PrimitiveColumn column = columns.fastGet(i);
+            if (!column.getName().equals(name)) continue;
+            if (column.getClass() != columnClass) {
+                throw new IllegalArgumentException("Column " + name + " of ComponentType=" + this.getComponentName() + " is a " + column.getClass().getSimpleName());
+            }
+            return column;
+        }
+        return null;
+    }
+
+    private <C extends PrimitiveColumn> C addColumn(C column) {
+        for (int i = 0; i < this.size(); i++) column.append(i);
+        this.columns.add(column);
+        return column;
+    }
+
+    @SuppressWarnings("unchecked")
+    T[] newColumn(int capacity) {
+        return (T[]) Array.newInstance(this.componentClass, capacity);
     }
 
     void addInternalEntity(int entityID) {
         this.entities.add(entityID);
     }
 
+    T createInstance() {
+        if (columnar) return null;
+        return this.componentConstructor.get();
+    }
+
+    /**
+     * Takes an instance from the pool or constructs a new one. Not thread safe, worker threads of a parallel pass use
+     * {@link #createInstance()} instead.
+     */
+    T obtainInstance() {
+        if (poolSize > 0) {
+            T componentInstance = pool[--poolSize];
+            this.pool[poolSize] = null;
+            this.poolHits++;
+            if (resetHook != null) resetHook.accept(componentInstance);
+            return componentInstance;
+        }
+        if (poolCapacity > 0) this.poolMisses++;
+        return this.createInstance();
+    }
+
+    void recycleInstance(T componentInstance) {
+        if (componentInstance == null || poolSize >= poolCapacity) return;
+        if (poolSize >= pool.length) this.pool = Arrays.copyOf(pool, Math.min(poolCapacity, Math.max(16, poolSize * 2)));
+        this.pool[poolSize++] = componentInstance;
+    }
+
     T addAndCreateInternalEntity(int entityID) {
-        T componentInstance = this.componentConstructor.get();
+        return this.putInternalEntity(entityID, this.obtainInstance());
+    }
+
+    T putInternalEntity(int entityID, T componentInstance) {
         if (this.entities.contains(entityID)) {
-            this.componentInstances.fastSet(this.entities.fastIndexOf(entityID), componentInstance);
+            if (columnar) {
+                this.changeTicks[this.entities.fastIndexOf(entityID)] = componentManager.getTick();
+                return componentInstance;
+            }
+            int index = this.entities.fastIndexOf(entityID);
+            this.changeTicks[index] = componentManager.getTick();
+            this.componentInstances.fastSet(index, componentInstance); //Replaced instance may still be referenced, never pooled
         } else {
+            int index = this.entities.size();
             this.addInternalEntity(entityID);
-            this.componentInstances.add(componentInstance);
+            this.stampChangeTicks(index, index + 1);
+            if (!columnar) this.componentInstances.add(componentInstance);
+            for (int i = 0; i < columns.size(); i++) {
+                columns.fastGet(i).append(index);
+            }
         }
         return componentInstance;
     }
 
+    /**
+     * Attaches the component to a contiguous range of entity ids which don't contain the component yet. Every array
+     * is grown at most once.
+     */
+    void addInternalRange(int firstEntityID, int count) {
+        int firstIndex = this.entities.size();
+        this.entities.addRange(firstEntityID, count);
+        this.stampChangeTicks(firstIndex, firstIndex + count);
+        if (!columnar) {
+            this.componentInstances.ensureCapacity(firstIndex + count);
+            for (int i = 0; i < count; i++) {
+                this.componentInstances.add(this.obtainInstance());
+            }
+        }
+        for (int i = 0; i < columns.size(); i++) {
+            PrimitiveColumn column = columns.fastGet(i);
+            for (int index = firstIndex; index < firstIndex + count; index++) column.append(index);
+        }
+    }
+
+    /**
+     * Appends entities which don't contain the component yet without notifying any observer. Used to restore
+     * snapshots, the values of the appended columns and instances are filled in afterwards.
+     */
+    void restoreInternalEntities(int[] entityIDs, int count) {
+        int firstIndex = this.entities.size();
+        for (int i = 0; i < count; i++) {
+            this.entities.add(entityIDs[i]);
+        }
+        this.stampChangeTicks(firstIndex, firstIndex + count);
+        if (!columnar) {
+            this.componentInstances.ensureCapacity(firstIndex + count);
+            for (int i = 0; i < count; i++) {
+                this.componentInstances.add(this.obtainInstance());
+            }
+        }
+        for (int i = 0; i < columns.size(); i++) {
+            PrimitiveColumn column = columns.fastGet(i);
+            for (int index = firstIndex; index < firstIndex + count; index++) column.append(index);
+        }
+    }
+
+    private void stampChangeTicks(int fromIndex, int toIndex) {
+        if (toIndex > changeTicks.length) this.changeTicks = Arrays.copyOf(changeTicks, Math.max(toIndex, CollectionUtils.getGrowLength(changeTicks.length)));
+        Arrays.fill(changeTicks, fromIndex, toIndex, componentManager.getTick());
+    }
+
+    /**
+     * Stamps the component of the entity with the current tick. Unlike {@link #notifyChangeObservers(int)}, no observer
+     * is invoked so marking a change is O(1). Attaching a component also counts as a change.
+     * <p>
+     *     Example Usage:
+     *     <pre>
+     *         {@code
+     *         transformType.retrieve(eID).setPos(x, y);
+     *         transformType.markChanged(eID);
+     *         ...
+     *         //In another system
+     *         transformType.forEachChangedSince(lastRunTick(), eID -> ...);
+     *         }
+     *     </pre>
+     * </p>
+     * @throws IllegalComponentAccessException when entityID is not attached to the associated ComponentType
+     *
+     * @param entityID id of entity whose component has changed
+     */
+    public void markChanged(int entityID) {
+        this.changeTicks[this.checkedIndexOf(entityID)] = componentManager.getTick();
+    }
+
+    /**
+     * Same as {@link #markChanged(int)} but for the component at a dense index. No bounds checking.
+     *
+     * @param index dense index between 0 and {@link #size() size}
+     */
+    public void markChangedAt(int index) {
+        this.changeTicks[index] = componentManager.getTick();
+    }
+
+    /**
+     * @param entityID id of entity
+     * @param tick tick to compare against, usually {@link ExecuteSystem#lastRunTick()}
+     * @return true if the entity contains the component and it was attached or changed after the tick
+     */
+    public boolean changedSince(int entityID, int tick) {
+        int index = this.entities.indexOf(entityID);
+        return index != -1 && changeTicks[index] - tick > 0; //Subtraction keeps the comparison valid once ticks overflow
+    }
+
+    /**
+     * Same as {@link #changedSince(int, int)} but for the component at a dense index. No bounds checking.
+     */
+    boolean changedSinceAt(int index, int tick) {
+        return changeTicks[index] - tick > 0;
+    }
+
+    /**
+     * Invoke an action for every entity whose component was attached or changed after the tick.
+     *
+     * @param tick tick to compare against, usually {@link ExecuteSystem#lastRunTick()}
+     * @param action invoked per changed entity
+     */
+    public void forEachChangedSince(int tick, EntityAction action) {
+        for (int i = 0; i < this.entities.size(); i++) {
+            if (changeTicks[i] - tick > 0) action.accept(this.entities.fastGet(i));
+        }
+    }
+
     void removeInternalEntity(int entityID) {
         this.entities.fastRemove(entityID);
     }
 
+    /**
+     * Removes the entity and fills its gap with the last entity, mirroring the move in every column.
+     * <p>
+     *     Note: Returns NULL both when the entity does not contain the component and for columnar components. Check
+     *     {@link #has(int) has} beforehand to tell them apart. The removed instance is handed to the caller and
+     *     therefore never recycled.
+     * </p>
+     */
     T removeAndGetInternalEntity(int entityID) {
         if (!this.has(entityID)) return null;
+        if (owner != null && owner.has(entityID)) owner.evictInternalEntity(entityID); //Keeps the owned prefix packed
 
-        int index = this.entities.indexOf(entityID);
-        T object = this.componentInstances.fastRemove(index);
+        int index = this.entities.fastIndexOf(entityID);
+        int lastIndex = this.entities.size() - 1;
+        T object = columnar ? null : this.componentInstances.fastRemove(index);
+        this.changeTicks[index] = changeTicks[lastIndex];
+        for (int i = 0; i < columns.size(); i++) {
+            columns.fastGet(i).move(lastIndex, index);
+        }
         this.removeInternalEntity(entityID);
         return object;
     }
 
+    /**
+     * Same as {@link #removeAndGetInternalEntity(int)} for removals whose instance nobody receives, which is recycled if
+     * pooling is enabled.
+     */
+    void removeAndRecycleInternalEntity(int entityID) {
+        this.recycleInstance(this.removeAndGetInternalEntity(entityID));
+    }
+
     /**
      * @return entity stream which triggers on component attaches
      */
@@ -117,21 +543,37 @@ public final class ComponentType<T extends Component> extends Category {
         return this.addStream.connectObserver(observer);
     }
 
+    /**
+     * Same as {@link #onComponentAttach(EntityObserver) onComponentAttach} but components attached together are
+     * delivered with a single call. Disconnect the observer with {@link #disconnectAttachObserver(int)
+     * disconnectAttachObserver}.
+     *
+     * @param observer the function to be invoked with the ids of the entities whose component was attached
+     * @return id of component observer added which can be later used to remove it
+     */
+    public int onComponentAttachBatch(EntityBatchObserver observer) {
+        return this.addStream.connectObserver(observer);
+    }
+
     /**
      * Disconnects an attach observer from listening to component attaches.
      *
      * @param attachObserverID unique id assigned to componentObserver when it was registered through the
      * {@link #onComponentAttach(EntityObserver) onComponentAttach} function.
-     * @return instance of EntityObserver disconnected or NULL if ID was invalid
+     * @return instance of EntityObserver disconnected or NULL if ID was invalid or belonged to a batch observer
      */
     public EntityObserver disconnectAttachObserver(int attachObserverID) {
-        return this.addStream.disconnectObserver(attachObserverID);
+        return this.addStream.disconnectEntityObserver(attachObserverID);
     }
 
     void notifyAttachObservers(int entityID) {
         this.addStream.notifyObservers(entityID);
     }
 
+    void notifyAttachObservers(int[] entityIDs, int offset, int length) {
+        this.addStream.notifyObservers(entityIDs, offset, length);
+    }
+
     /**
      * @return entity stream which triggers on component detaches
      */
@@ -154,21 +596,37 @@ public final class ComponentType<T extends Component> extends Category {
         return this.removeStream.connectObserver(observer);
     }
 
+    /**
+     * Same as {@link #onComponentDetach(EntityObserver) onComponentDetach} but components detached together are
+     * delivered with a single call. Disconnect the observer with {@link #disconnectDetachObserver(int)
+     * disconnectDetachObserver}.
+     *
+     * @param observer the function to be invoked with the ids of the entities whose component was detached
+     * @return id of component observer added which can be later used to remove it
+     */
+    public int onComponentDetachBatch(EntityBatchObserver observer) {
+        return this.removeStream.connectObserver(observer);
+    }
+
     /**
      * Disconnects a detach observer from listening to component detaches.
      *
      * @param detachObserverID unique id assigned to EntityObserver when it was registered through the
      * {@link #onComponentDetach(EntityObserver) onComponentDetach} function.
-     * @return instance of EntityObserver disconnected or NULL if ID was invalid
+     * @return instance of EntityObserver disconnected or NULL if ID was invalid or belonged to a batch observer
      */
     public EntityObserver disconnectDetachObserver(int detachObserverID) {
-        return this.removeStream.disconnectObserver(detachObserverID);
+        return this.removeStream.disconnectEntityObserver(detachObserverID);
     }
 
     void notifyDetachObservers(int entityID) {
         this.removeStream.notifyObservers(entityID);
     }
 
+    void notifyDetachObservers(int[] entityIDs, int offset, int length) {
+        this.removeStream.notifyObservers(entityIDs, offset, length);
+    }
+
     /**
      * @return entity stream which triggers on component changes
      */
@@ -186,25 +644,40 @@ public final class ComponentType<T extends Component> extends Category {
         return this.changeStream.connectObserver(observer);
     }
 
+    /**
+     * Same as {@link #onComponentChange(EntityObserver) onComponentChange} but components changed together are
+     * delivered with a single call. Disconnect the observer with {@link #disconnectChangeObserver(int)
+     * disconnectChangeObserver}.
+     *
+     * @param observer the function to be invoked with the ids of the entities whose component was changed
+     * @return id of component observer added which can be later used to remove it
+     */
+    public int onComponentChangeBatch(EntityBatchObserver observer) {
+        return this.changeStream.connectObserver(observer);
+    }
+
     /**
      * Disconnects a change observer from listening to component changes.
      *
      * @param changeObserverID unique id assigned to EventObserver when it was registered through the
      * {@link #onComponentChange(EntityObserver) onComponentChange} function.
-     * @return instance of EntityObserver disconnected or NULL if ID was invalid
+     * @return instance of EntityObserver disconnected or NULL if ID was invalid or belonged to a batch observer
      */
     public EntityObserver disconnectChangeObserver(int changeObserverID) {
-        return this.changeStream.disconnectObserver(changeObserverID);
+        return this.changeStream.disconnectEntityObserver(changeObserverID);
     }
 
     /**
      * User should call this function to notify system of changes to a component. All "onComponentChange" callbacks will
-     * be triggered.
+     * be triggered and the component is {@link #markChanged(int) marked} as changed.
      *
      * @param entityID id of entity whose component data has changed
      */
     public void notifyChangeObservers(int entityID) {
+        int index = this.entities.indexOf(entityID);
+        if (index != -1) this.changeTicks[index] = componentManager.getTick();
         super.notifyChangeObservers(entityID);
+        this.componentManager.notifyCategoriesOfChange(entityID, this);
     }
 
     public String toString() {
@@ -1,14 +1,25 @@
 package ecsploit.ecs.core;
 
+import ecsploit.utils.collections.CollectionUtils;
+
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 
 public final class ComponentTypeMap {
 
-	private final Map<Class<? extends Component>, ComponentType<?>> componentTypes = new HashMap<>();
+	//Index of every component class shared across all managers. Resolved once per class and cached by the JVM
+	private static final AtomicInteger classIndexCounter = new AtomicInteger();
+	private static final ClassValue<Integer> classIndices = new ClassValue<>() {
+		protected Integer computeValue(Class<?> type) {
+			return classIndexCounter.getAndIncrement();
+		}
+	};
+
+	private ComponentType<?>[] classIndexToComponentType = new ComponentType<?>[16];
+	private ComponentType<?>[] idToComponentType = new ComponentType<?>[16];
 	private int idCounter = 0;
 
 	private final ComponentManager componentManager;
@@ -36,27 +47,42 @@ public final class ComponentTypeMap {
 		}
 	}
 
+	int size() {
+		return idCounter;
+	}
+
 	@SuppressWarnings("unchecked")
 	<T extends Component> ComponentType<T>[] getComponentTypes() {
-		return (ComponentType<T>[]) componentTypes.values().toArray(new ComponentType<?>[0]);
+		return (ComponentType<T>[]) Arrays.copyOf(idToComponentType, idCounter);
 	}
 
 	@SuppressWarnings("unchecked")
 	<T extends Component> ComponentType<T> getFromID(int componentID) {
-		if (componentID >= componentTypes.size()) return null;
-		for (ComponentType<?> componentType: componentTypes.values()) {
-			if (componentType.getComponentID() == componentID) return (ComponentType<T>) componentType;
-		}
-		return null;
+		if (componentID < 0 || componentID >= idCounter) return null;
+		return (ComponentType<T>) idToComponentType[componentID];
 	}
 
 	@SuppressWarnings("unchecked")
-	 <T extends Component> ComponentType<T> getComponentType(Class<T> componentClass) {
-		return (ComponentType<T>) componentTypes.computeIfAbsent(componentClass, key -> {
-			ComponentType<T> componentType = new ComponentType<>(componentClass, idCounter++);
-			componentType.registerConstructor(this.getDefaultConstructor(componentClass));
-			return componentType;
-		});
+	<T extends Component> ComponentType<T> getComponentType(Class<T> componentClass) {
+		int classIndex = classIndices.get(componentClass);
+		if (classIndex < classIndexToComponentType.length) {
+			ComponentType<?> componentType = classIndexToComponentType[classIndex];
+			if (componentType != null) return (ComponentType<T>) componentType;
+		}
+		return this.registerComponentType(componentClass, classIndex);
+	}
+
+	private <T extends Component> ComponentType<T> registerComponentType(Class<T> componentClass, int classIndex) {
+		ComponentType<T> componentType = new ComponentType<>(componentManager, componentClass, idCounter);
+		if (!componentType.isColumnar()) componentType.registerConstructor(this.getDefaultConstructor(componentClass));
+
+		if (classIndex >= classIndexToComponentType.length) {
+			this.classIndexToComponentType = Arrays.copyOf(classIndexToComponentType, CollectionUtils.getGrowLength(classIndex));
+		}
+		if (idCounter >= idToComponentType.length) this.idToComponentType = CollectionUtils.grow(idToComponentType);
+		this.classIndexToComponentType[classIndex] = componentType;
+		this.idToComponentType[idCounter++] = componentType;
+		return componentType;
 	}
 	
 }
@@ -0,0 +1,159 @@
+package ecsploit.ecs.core;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Applies the deltas of a {@link DeltaEncoder} to a client manager. Entities are created with the ids of the client
+ * manager, {@link #resolve(int) resolve} maps the id of an entity on the encoding side to its local id.
+ * <p>
+ *     Example Usage:
+ *     <pre>
+ *         {@code
+ *         DeltaDecoder decoder = new DeltaDecoder(clientManager, transformType, healthType);
+ *         decoder.apply(receivedDelta);
+ *         Transform transform = transformType.retrieve(decoder.resolve(serverEntityID));
+ *         }
+ *     </pre>
+ * </p>
+ * <p>
+ *     Note: The component types must match the types given to the encoder in number, order, codecs and columns.
+ *     Changes are applied through the regular attach, detach and destroy functions of the manager so observers and
+ *     categories of the client manager stay up to date.
+ * </p>
+ */
+public final class DeltaDecoder {
+
+    public static class UnknownEntityException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        public UnknownEntityException(String message) {
+            super(message);
+        }
+    }
+
+    private final Manager manager;
+    private final ComponentType<?>[] componentTypes;
+
+    private int[] localIDs = new int[64]; //Local id + 1 of every remote entity id or 0 if the entity is unknown
+    private int lastTick;
+
+    /**
+     * @param manager client manager the deltas are applied to
+     * @param componentTypes replicated component types in the same order as the encoder
+     */
+    public DeltaDecoder(Manager manager, ComponentType<?>... componentTypes) {
+        this.manager = manager;
+        this.componentTypes = componentTypes.clone();
+    }
+
+    /**
+     * @param remoteEntityID id of the entity in the encoding manager
+     * @return id of the entity in the client manager or -1 if the entity is unknown
+     */
+    public int resolve(int remoteEntityID) {
+        if (remoteEntityID < 0 || remoteEntityID >= localIDs.length) return -1;
+        return localIDs[remoteEntityID] - 1;
+    }
+
+    /**
+     * @param delta buffer holding a delta at its position
+     * @return true if the delta carries the full state and can be applied regardless of the previous deltas
+     */
+    public static boolean isFullState(ByteBuffer delta) {
+        return delta.get(delta.position()) == DeltaEncoder.FULL_STATE;
+    }
+
+    /**
+     * @return tick of the encoding manager at which the last applied delta was encoded
+     */
+    public int getLastTick() {
+        return lastTick;
+    }
+
+    /**
+     * Applies a single delta read from the position to the limit of the buffer.
+     * <p>
+     *     Note: Deltas must be applied in the order in which they were encoded. A full state can be applied at any
+     *     time and replaces every entity created by this decoder.
+     * </p>
+     *
+     * @param in buffer holding a delta, its byte order is set to little endian
+     * @throws UnknownEntityException when the delta refers to an entity which was never created, e.g. when a previous
+     * delta was lost
+     */
+    public void apply(ByteBuffer in) {
+        in.order(ByteOrder.LITTLE_ENDIAN);
+        boolean full = in.get() == DeltaEncoder.FULL_STATE;
+        this.lastTick = getVarInt(in);
+        if (full) {
+            for (int remoteEntityID = 0; remoteEntityID < localIDs.length; remoteEntityID++) {
+                if (localIDs[remoteEntityID] != 0) this.destroyLocal(remoteEntityID);
+            }
+        }
+
+        int totalDestroyed = getVarInt(in);
+        for (int i = 0; i < totalDestroyed; i++) {
+            int remoteEntityID = getVarInt(in);
+            if (this.resolve(remoteEntityID) != -1) this.destroyLocal(remoteEntityID);
+        }
+        int totalCreated = getVarInt(in);
+        for (int i = 0; i < totalCreated; i++) {
+            int remoteEntityID = getVarInt(in);
+            if (remoteEntityID >= localIDs.length) this.localIDs = Arrays.copyOf(localIDs, Math.max(remoteEntityID + 1, localIDs.length * 2));
+            this.localIDs[remoteEntityID] = manager.entityID() + 1;
+        }
+
+        for (int typeIndex = getVarInt(in) - 1; typeIndex >= 0; typeIndex = getVarInt(in) - 1) {
+            if (typeIndex >= componentTypes.length) throw new IllegalArgumentException("Delta refers to component type " + typeIndex + " of " + componentTypes.length);
+            this.applyComponentType(in, componentTypes[typeIndex]);
+        }
+    }
+
+    private void destroyLocal(int remoteEntityID) {
+        manager.destroyID(localIDs[remoteEntityID] - 1);
+        this.localIDs[remoteEntityID] = 0;
+    }
+
+    private int checkedResolve(int remoteEntityID) {
+        int entityID = this.resolve(remoteEntityID);
+        if (entityID == -1) throw new UnknownEntityException("Delta refers to unknown entity id=" + remoteEntityID);
+        return entityID;
+    }
+
+    private <T extends Component> void applyComponentType(ByteBuffer in, ComponentType<T> componentType) {
+        int totalDetached = getVarInt(in);
+        for (int i = 0; i < totalDetached; i++) {
+            int entityID = this.resolve(getVarInt(in));
+            if (entityID != -1) manager.detachT(entityID, componentType);
+        }
+
+        ComponentCodec<T> codec = componentType.isColumnar() ? null : componentType.getCodec();
+        int totalChanged = getVarInt(in);
+        for (int i = 0; i < totalChanged; i++) {
+            int entityID = this.checkedResolve(getVarInt(in));
+            T component = componentType.has(entityID) ? componentType.getInternal(entityID) : manager.attachT(entityID, componentType);
+            if (codec != null) codec.decode(component, in);
+            if (componentType.columns.size() == 0) continue;
+            int index = componentType.denseIndexOf(entityID);
+            for (int c = 0; c < componentType.columns.size(); c++) {
+                componentType.columns.fastGet(c).decode(index, in);
+            }
+        }
+    }
+
+    /**
+     * Reads an unsigned int written 7 bits at a time
+     */
+    private static int getVarInt(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+        throw new IllegalArgumentException("Malformed variable length int");
+    }
+}
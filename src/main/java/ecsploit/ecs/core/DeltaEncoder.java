@@ -0,0 +1,230 @@
+package ecsploit.ecs.core;
+
+import ecsploit.utils.collections.CollectionUtils;
+import ecsploit.utils.collections.SparseList;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Encodes the state of a manager as a stream of deltas for a {@link DeltaDecoder}. Every
+ * {@link #encode() encode} only contains the entities created and destroyed, the components detached and the
+ * components attached or {@link ComponentType#markChanged(int) marked as changed} since the previous encode, starting
+ * with the full state. Component fields are written with the {@link ComponentCodec codec} of their ComponentType
+ * followed by the values of its columns.
+ * <p>
+ *     Example Usage:
+ *     <pre>
+ *         {@code
+ *         DeltaEncoder encoder = new DeltaEncoder(manager, transformType, healthType);
+ *         while (running) {
+ *             manager.update();
+ *             ByteBuffer delta = encoder.encode();
+ *             channel.write(delta);
+ *         }
+ *         }
+ *     </pre>
+ * </p>
+ * <p>
+ *     Notes:
+ *     <ul>
+ *         <li>The encoder mirrors what a single receiver knows, use one encoder per receiver or broadcast every delta
+ *         to all receivers</li>
+ *         <li>Components changed without being marked are not replicated</li>
+ *         <li>Component types are identified by their position in the constructor, so the decoder must be given the
+ *         matching types in the same order. Columns are matched by their creation order</li>
+ *     </ul>
+ * </p>
+ */
+public final class DeltaEncoder {
+
+    static final byte DELTA = 0;
+    static final byte FULL_STATE = 1;
+
+    private final Manager manager;
+    private final ComponentType<?>[] componentTypes;
+    private final SparseList[] pendingDetaches; //Entities per replicated type whose component was detached since the last encode
+    private final int[] detachObserverIDs;
+
+    private int[] detached = new int[64];
+    private int[] sentGenerations = new int[64]; //Generation + 1 of every entity known to the receiver or 0
+    private boolean fullState = true;
+    private int baselineTick;
+
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(4096).order(ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * @param manager manager whose state is encoded
+     * @param componentTypes replicated component types, every other component is ignored
+     */
+    public DeltaEncoder(Manager manager, ComponentType<?>... componentTypes) {
+        this.manager = manager;
+        this.componentTypes = componentTypes.clone();
+        this.pendingDetaches = new SparseList[componentTypes.length];
+        this.detachObserverIDs = new int[componentTypes.length];
+        for (int i = 0; i < componentTypes.length; i++) {
+            SparseList pending = this.pendingDetaches[i] = new SparseList();
+            this.detachObserverIDs[i] = componentTypes[i].onComponentDetach(eID -> {
+                if (!pending.contains(eID)) pending.add(eID);
+            });
+        }
+    }
+
+    /**
+     * Disconnects the encoder from the component types. The encoder can't be used afterwards.
+     */
+    public void disconnect() {
+        for (int i = 0; i < componentTypes.length; i++) {
+            componentTypes[i].disconnectDetachObserver(detachObserverIDs[i]);
+        }
+    }
+
+    /**
+     * Makes the next {@link #encode() encode} contain the full state, e.g. after the receiver lost a delta. The
+     * receiver replaces every entity it knows with the ones of the full state.
+     */
+    public void reset() {
+        this.fullState = true;
+    }
+
+    /**
+     * @return tick of the last encode, changes after this tick are part of the next delta
+     */
+    public int getBaselineTick() {
+        return baselineTick;
+    }
+
+    /**
+     * Encodes every change since the previous encode into the buffer of the encoder.
+     *
+     * @return buffer holding the delta between its position and limit. Reused and possibly replaced by the next encode
+     * @throws IllegalStateException when called while systems are updating
+     */
+    public ByteBuffer encode() {
+        ComponentManager componentManager = manager.getComponentManager();
+        if (componentManager.isParallelPass() || componentManager.isDeferred()) {
+            throw new IllegalStateException("Deltas can't be encoded while systems are updating");
+        }
+        boolean full = this.fullState;
+        int encodeTick = componentManager.getTick();
+        componentManager.advanceTick(); //Later changes are stamped after encodeTick even outside of systems
+
+        this.buffer.clear();
+        this.ensure(1 + 5).put(full ? FULL_STATE : DELTA);
+        this.putVarInt(encodeTick);
+        if (full) Arrays.fill(sentGenerations, 0);
+        this.encodeEntities(manager.getEntityManager());
+        for (int i = 0; i < componentTypes.length; i++) {
+            this.encodeComponentType(i, componentTypes[i], full);
+        }
+        this.putVarInt(0);
+
+        this.baselineTick = encodeTick;
+        this.fullState = false;
+        this.buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Compares the active entities with the entities known to the receiver. Destroyed ids are written before created
+     * ids so that an id which was destroyed and recycled since the last encode is recreated by the receiver.
+     */
+    private void encodeEntities(EntityManager entityManager) {
+        int maxCapacity = entityManager.getMaxCapacity();
+        if (maxCapacity > sentGenerations.length) this.sentGenerations = Arrays.copyOf(sentGenerations, maxCapacity);
+        int[] generations = entityManager.getGenerations();
+
+        int totalDestroyed = 0;
+        for (int entityID = 0; entityID < sentGenerations.length; entityID++) {
+            int sentGeneration = sentGenerations[entityID];
+            if (sentGeneration != 0 && (!entityManager.isActive(entityID) || generations[entityID] + 1 != sentGeneration)) totalDestroyed++;
+        }
+        this.putVarInt(totalDestroyed);
+        for (int entityID = 0; totalDestroyed > 0; entityID++) {
+            int sentGeneration = sentGenerations[entityID];
+            if (sentGeneration == 0 || (entityManager.isActive(entityID) && generations[entityID] + 1 == sentGeneration)) continue;
+            this.putVarInt(entityID);
+            this.sentGenerations[entityID] = 0;
+            totalDestroyed--;
+        }
+
+        int totalCreated = 0;
+        for (int entityID = 0; entityID < maxCapacity; entityID++) {
+            if (sentGenerations[entityID] == 0 && entityManager.isActive(entityID)) totalCreated++;
+        }
+        this.putVarInt(totalCreated);
+        for (int entityID = 0; totalCreated > 0; entityID++) {
+            if (sentGenerations[entityID] != 0 || !entityManager.isActive(entityID)) continue;
+            this.putVarInt(entityID);
+            this.sentGenerations[entityID] = generations[entityID] + 1;
+            totalCreated--;
+        }
+    }
+
+    private <T extends Component> void encodeComponentType(int typeIndex, ComponentType<T> componentType, boolean full) {
+        SparseList pending = pendingDetaches[typeIndex];
+        int totalDetached = 0;
+        int totalChanged = 0;
+        if (!full) {
+            for (int i = 0; i < pending.size(); i++) {
+                int entityID = pending.fastGet(i);
+                if (componentType.has(entityID) || !this.isKnown(entityID)) continue; //Re-attached or unknown to the receiver
+                if (totalDetached >= detached.length) this.detached = Arrays.copyOf(detached, CollectionUtils.getGrowLength(totalDetached));
+                this.detached[totalDetached++] = entityID;
+            }
+            for (int i = 0; i < componentType.size(); i++) {
+                if (componentType.changedSinceAt(i, baselineTick)) totalChanged++;
+            }
+        } else {
+            totalChanged = componentType.size();
+        }
+        pending.clear();
+        if (totalDetached == 0 && totalChanged == 0) return;
+
+        this.putVarInt(typeIndex + 1);
+        this.putVarInt(totalDetached);
+        for (int i = 0; i < totalDetached; i++) {
+            this.putVarInt(detached[i]);
+        }
+        this.putVarInt(totalChanged);
+        ComponentCodec<T> codec = componentType.isColumnar() ? null : componentType.getCodec();
+        int maxEncodedSize = 5 + (codec != null ? codec.maxEncodedSize() : 0) + componentType.columns.size() * Double.BYTES;
+        for (int i = 0; i < componentType.size() && totalChanged > 0; i++) {
+            if (!full && !componentType.changedSinceAt(i, baselineTick)) continue;
+            ByteBuffer out = this.ensure(maxEncodedSize);
+            this.putVarInt(componentType.entityAt(i));
+            if (codec != null) codec.encode(componentType.getAt(i), out);
+            for (int c = 0; c < componentType.columns.size(); c++) {
+                componentType.columns.fastGet(c).encode(i, out);
+            }
+            totalChanged--;
+        }
+    }
+
+    private boolean isKnown(int entityID) {
+        return entityID < sentGenerations.length && sentGenerations[entityID] != 0;
+    }
+
+    private ByteBuffer ensure(int bytes) {
+        if (buffer.remaining() < bytes) {
+            ByteBuffer grown = ByteBuffer.allocateDirect(Math.max(buffer.capacity() * 2, buffer.position() + bytes)).order(ByteOrder.LITTLE_ENDIAN);
+            this.buffer.flip();
+            grown.put(buffer);
+            this.buffer = grown;
+        }
+        return buffer;
+    }
+
+    /**
+     * Writes an unsigned int in 1 to 5 bytes, 7 bits at a time
+     */
+    private void putVarInt(int value) {
+        ByteBuffer out = this.ensure(5);
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+}
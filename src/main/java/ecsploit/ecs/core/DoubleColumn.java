@@ -0,0 +1,76 @@
+package ecsploit.ecs.core;
+
+import ecsploit.utils.collections.CollectionUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Column of double values. See {@link PrimitiveColumn} for more details.
+ */
+public final class DoubleColumn extends PrimitiveColumn {
+
+    private double[] data = new double[64];
+
+    DoubleColumn(String name, ComponentType<?> componentType) {
+        super(name, componentType);
+    }
+
+    /**
+     * Direct access to the column. Only the first {@link ComponentType#size() size} values are valid.
+     * <p>
+     *     Note: The array is replaced whenever the column grows. Don't hold on to it while attaching components.
+     * </p>
+     *
+     * @return backing array indexed by the dense index of the ComponentType
+     */
+    public double[] array() {
+        return data;
+    }
+
+    /**
+     * @throws ComponentType.IllegalComponentAccessException when entityID is not attached to the ComponentType
+     */
+    public double get(int entityID) {
+        return data[componentType.checkedIndexOf(entityID)];
+    }
+
+    /**
+     * @throws ComponentType.IllegalComponentAccessException when entityID is not attached to the ComponentType
+     */
+    public void set(int entityID, double value) {
+        this.data[componentType.checkedIndexOf(entityID)] = value;
+    }
+
+    void append(int index) {
+        if (index >= data.length) this.data = Arrays.copyOf(data, CollectionUtils.getGrowLength(index));
+        this.data[index] = 0;
+    }
+
+    void move(int fromIndex, int toIndex) {
+        this.data[toIndex] = data[fromIndex];
+    }
+
+    void swap(int indexA, int indexB) {
+        double value = data[indexA];
+        this.data[indexA] = data[indexB];
+        this.data[indexB] = value;
+    }
+
+    void write(SnapshotCursor cursor, int count) throws IOException {
+        cursor.putDoubles(data, 0, count);
+    }
+
+    void read(SnapshotCursor cursor, int firstIndex, int count) throws IOException {
+        cursor.getDoubles(data, firstIndex, count);
+    }
+
+    void encode(int index, ByteBuffer out) {
+        out.putDouble(data[index]);
+    }
+
+    void decode(int index, ByteBuffer in) {
+        this.data[index] = in.getDouble();
+    }
+}
@@ -7,11 +7,13 @@ package ecsploit.ecs.core;
 public final class Entity {
 	
 	private final int id;
+	private final int generation;
 	
 	private final Manager manager;
 
-	Entity(int id, Manager manager) {
+	Entity(int id, int generation, Manager manager) {
 		this.id = id;
+		this.generation = generation;
 		this.manager = manager;
 	}
 
@@ -19,6 +21,20 @@ public final class Entity {
 		return id;
 	}
 
+	/**
+	 * @return packed generational handle of this entity. See {@link EntityHandle} for more details.
+	 */
+	public long getHandle() {
+		return EntityHandle.pack(id, generation);
+	}
+
+	/**
+	 * @return false once this entity has been destroyed, even if its id has been recycled since
+	 */
+	public boolean isAlive() {
+		return manager.getEntityManager().isAlive(id, generation);
+	}
+
 	/**
 	 * Queries entity for whether or not it contains the given ComponentType.
 	 * <p>
@@ -0,0 +1,19 @@
+package ecsploit.ecs.core;
+
+/**
+ * Observer which receives the entity changes of a stream as slices of entity ids. Changes which the manager applies in
+ * bulk, e.g. the deferred commands cleaned after a system update or {@link Manager#destroyAll(Category) destroyAll},
+ * are delivered with a single call per stream instead of one call per entity.
+ */
+public interface EntityBatchObserver {
+
+    /**
+     * Note: the array is reused by the stream and must not be kept or modified after the call returns
+     *
+     * @param entityIDs array holding the ids of the changed entities
+     * @param offset index of the first changed entity
+     * @param length number of changed entities
+     */
+    void update(int[] entityIDs, int offset, int length);
+
+}
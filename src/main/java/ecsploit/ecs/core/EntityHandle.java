@@ -0,0 +1,33 @@
+package ecsploit.ecs.core;
+
+/**
+ * Utilities for packed 64 bit entity handles. The low 32 bits hold the entity id and the high 32 bits hold the
+ * generation of the id at the time the handle was created. Every time an id is destroyed its generation is
+ * incremented, so a handle kept across frames can be validated with {@link Manager#isAlive(long)} even after the id has
+ * been recycled by a newer entity.
+ */
+public final class EntityHandle {
+
+    /**
+     * Handle which never refers to an alive entity
+     */
+    public static final long NULL = -1L;
+
+    private EntityHandle() {}
+
+    public static long pack(int entityID, int generation) {
+        return ((long) generation << 32) | (entityID & 0xFFFFFFFFL);
+    }
+
+    public static int entityID(long handle) {
+        return (int) handle;
+    }
+
+    public static int generation(long handle) {
+        return (int) (handle >>> 32);
+    }
+
+    public static String toString(long handle) {
+        return "EntityHandle(id=" + entityID(handle) + ", generation=" + generation(handle) + ")";
+    }
+}
@@ -8,6 +8,7 @@ public final class EntityManager {
 
 	private Entity[] entityPool = new Entity[64];
 	private int[] entities = new int[64];
+	private int[] generations = new int[64]; //Incremented every time the entity id is destroyed
 	private int maxCapacity = 0;
 
 	private int totalRecycled;
@@ -23,6 +24,20 @@ public final class EntityManager {
 		return maxCapacity - totalRecycled;
 	}
 
+	/**
+	 * @return number of ids ever handed out, active or recycled
+	 */
+	int getMaxCapacity() {
+		return maxCapacity;
+	}
+
+	/**
+	 * @return live array of generations, only the first {@link #getMaxCapacity() maxCapacity} values are valid
+	 */
+	int[] getGenerations() {
+		return generations;
+	}
+
 	static class EntityNotFoundException extends RuntimeException {
 		public EntityNotFoundException(String message) {
 			super(message);
@@ -41,21 +56,44 @@ public final class EntityManager {
 			this.entityPool = Arrays.copyOf(this.entityPool, entityID + (entityID >>> 1) + 1);
 		}
 		if (this.entityPool[entityID] == null) {
-			this.entityPool[entityID] = new Entity(entityID, manager);
+			this.entityPool[entityID] = new Entity(entityID, generations[entityID], manager);
 		}
 		return this.entityPool[entityID];
 	}
 
+	/**
+	 * See {@link Manager#handle(int) wrapper} for more details.
+	 * @throws EntityNotFoundException when active entity is not found
+	 */
+	long getHandle(int entityID) {
+		if (entityID < 0 || entityID >= maxCapacity || entities[entityID] != entityID) {
+			throw new EntityNotFoundException("Entity id=" + entityID + " is not currently active and has no handle");
+		}
+		return EntityHandle.pack(entityID, generations[entityID]);
+	}
+
+	/**
+	 * Destroyed ids always have a newer generation than any handle created while they were active, so no check of the
+	 * free chain is needed.
+	 */
+	boolean isAlive(int entityID, int generation) {
+		return entityID >= 0 && entityID < maxCapacity && generations[entityID] == generation;
+	}
+
 	/**
 	 * Creates unique integer id representation a new entity.
 	 *
 	 * @return id of new entity
 	 */
 	int createEntityID() {
+		if (manager.getComponentManager().isParallelPass()) {
+			throw new IllegalStateException("Entities can't be created during a parallel pass");
+		}
 		int entityID;
 		if (totalRecycled == 0) {
 			if (maxCapacity >= this.entities.length) {
 				this.entities = Arrays.copyOf(this.entities, maxCapacity + (maxCapacity >>> 1) + 1);
+				this.generations = Arrays.copyOf(this.generations, this.entities.length);
 			}
 			entityID = maxCapacity;
 			entities[maxCapacity] = maxCapacity;
@@ -67,26 +105,135 @@ public final class EntityManager {
 			totalRecycled--;
 		}
 		manager.getComponentManager().createComponentBitsInternal(entityID);
+		if (manager.metrics().enabled) manager.metrics().entitiesCreated.increment();
 		return entityID;
 	}
 
+	/**
+	 * See {@link Manager#createEntities(int, ComponentType[]) wrapper} for more details.
+	 *
+	 * @return id of the first entity in the contiguous range of new entities
+	 */
+	int createEntityRange(int count, ComponentType<?>[] componentTypes) {
+		if (manager.getComponentManager().isParallelPass()) {
+			throw new IllegalStateException("Entities can't be created during a parallel pass");
+		}
+		if (count < 0) throw new IllegalArgumentException("Entity count must not be negative: " + count);
+
+		//Recycled ids are skipped so that the new entities always form a contiguous range
+		int firstEntityID = maxCapacity;
+		if (maxCapacity + count > this.entities.length) {
+			this.entities = Arrays.copyOf(this.entities, maxCapacity + count + ((maxCapacity + count) >>> 1));
+			this.generations = Arrays.copyOf(this.generations, this.entities.length);
+		}
+		for (int i = 0; i < count; i++) {
+			this.entities[maxCapacity] = maxCapacity;
+			this.maxCapacity++;
+		}
+		manager.getComponentManager().createEntitiesInternal(firstEntityID, count, componentTypes);
+		if (manager.metrics().enabled) manager.metrics().entitiesCreated.add(count);
+		return firstEntityID;
+	}
+
 	/**
 	 * Deletes entity and dependencies to entity groups.
 	 * <p>
 	 *     Note: Entity reference will no longer be valid. Continued use of Entity reference can lead to undefined
-	 *     behavior.
+	 *     behavior. During a system update, the entity stays active until the deferred commands are cleaned.
 	 * </p>
 	 *
 	 * @param entityID id of entity to be destroyed
 	 */
 	void destroyEntity(int entityID) {
-		if (entityID >= maxCapacity || entities[entityID] != entityID) {
+		if (manager.getComponentManager().isParallelPass()) {
+			throw new IllegalStateException("Entities can't be destroyed during a parallel pass");
+		}
+		if (!this.isActive(entityID)) {
 			throw new EntityNotFoundException("Entity id=" + entityID + " is not currently active and can't be destroyed");
 		}
+		if (manager.getComponentManager().isDeferred()) {
+			manager.getComponentManager().deferDestroy(entityID);
+			return;
+		}
+		this.releaseEntity(entityID);
+	}
+
+	boolean isActive(int entityID) {
+		return entityID >= 0 && entityID < maxCapacity && entities[entityID] == entityID;
+	}
+
+	/**
+	 * Detaches every component of an active entity and recycles its id.
+	 */
+	void releaseEntity(int entityID) {
 		manager.getComponentManager().deleteComponentBitsInternal(entityID);
+		this.generations[entityID]++;
+		if (entityID < entityPool.length) this.entityPool[entityID] = null; //Stale Entity objects keep the old generation
 		this.entities[entityID] = this.lastRecycledIndex;
 		this.lastRecycledIndex = entityID;
 		this.totalRecycled++;
+		if (manager.metrics().enabled) manager.metrics().entitiesDestroyed.increment();
+	}
+
+	/**
+	 * See {@link Manager#destroyAll(Category) wrapper} for more details.
+	 */
+	void destroyEntities(int[] entityIDs) {
+		if (manager.getComponentManager().isParallelPass()) {
+			throw new IllegalStateException("Entities can't be destroyed during a parallel pass");
+		}
+		if (manager.getComponentManager().isDeferred()) {
+			for (int entityID: entityIDs) manager.getComponentManager().deferDestroy(entityID);
+			return;
+		}
+		this.releaseEntities(entityIDs, entityIDs.length);
+	}
+
+	/**
+	 * Detaches every component of distinct active entities one component type at a time and recycles their ids.
+	 */
+	void releaseEntities(int[] entityIDs, int count) {
+		manager.getComponentManager().deleteComponentBitsInternal(entityIDs, count);
+		for (int i = 0; i < count; i++) {
+			int entityID = entityIDs[i];
+			this.generations[entityID]++;
+			if (entityID < entityPool.length) this.entityPool[entityID] = null;
+			this.entities[entityID] = this.lastRecycledIndex;
+			this.lastRecycledIndex = entityID;
+			this.totalRecycled++;
+		}
+		if (manager.metrics().enabled) manager.metrics().entitiesDestroyed.add(count);
+	}
+
+	/**
+	 * Replaces every id of the manager with the ids of a snapshot. Listed ids become active and every other id below
+	 * maxCapacity is recycled. Component bits of the active entities are created empty.
+	 *
+	 * @param activeIDs ids of the active entities in ascending order
+	 */
+	void restoreEntities(int maxCapacity, int[] generations, int[] activeIDs, int totalActive) {
+		int capacity = Math.max(maxCapacity, 64);
+		this.entities = new int[capacity];
+		this.generations = Arrays.copyOf(generations, capacity);
+		this.entityPool = new Entity[64];
+		this.maxCapacity = maxCapacity;
+		this.totalRecycled = 0;
+		this.lastRecycledIndex = -1;
+
+		int activeIndex = totalActive - 1;
+		for (int entityID = maxCapacity - 1; entityID >= 0; entityID--) { //Lowest recycled ids are reused first
+			if (activeIndex >= 0 && activeIDs[activeIndex] == entityID) {
+				this.entities[entityID] = entityID;
+				activeIndex--;
+			} else {
+				this.entities[entityID] = this.lastRecycledIndex;
+				this.lastRecycledIndex = entityID;
+				this.totalRecycled++;
+			}
+		}
+		for (int i = 0; i < totalActive; i++) {
+			manager.getComponentManager().createComponentBitsInternal(activeIDs[i]);
+		}
 	}
 
 	void forEach(EntityAction action) {
@@ -1,7 +1,13 @@
 package ecsploit.ecs.core;
 
-public interface EntityObserver {
+public interface EntityObserver extends EntityBatchObserver {
 
     void update(int entityID);
 
+    default void update(int[] entityIDs, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            this.update(entityIDs[i]);
+        }
+    }
+
 }
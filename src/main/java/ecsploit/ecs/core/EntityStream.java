@@ -1,35 +1,149 @@
 package ecsploit.ecs.core;
 
+import ecsploit.utils.collections.CollectionUtils;
 import ecsploit.utils.collections.DenseList;
 import ecsploit.utils.collections.SparseList;
 
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * Stream of entity changes which notifies all observers when a change occurs
  */
 public final class EntityStream {
 
-    private final DenseList<EntityObserver> entityObservers = new DenseList<>();
+    private final DenseList<EntityBatchObserver> entityObservers = new DenseList<>();
     private final SparseList obseverIDs = new SparseList();
+    private final int[] singleEntity = new int[1]; //Payload of single changes delivered to batch observers
+
+    private final ComponentManager componentManager; //NULL if the stream doesn't belong to a manager
+    private final ManagerMetrics metrics;
+    private final LongAdder notifications = new LongAdder();
+    private final LongAdder observerInvocations = new LongAdder();
 
-    EntityStream() {}
+    //Changes queued while the ComponentManager batches notifications
+    private int[] pendingEntityIDs = new int[0];
+    private int totalPending = 0;
 
-    int connectObserver(EntityObserver observer) {
-        int id = this.obseverIDs.size();
+    EntityStream() {
+        this(null);
+    }
+
+    EntityStream(ComponentManager componentManager) {
+        this.componentManager = componentManager;
+        this.metrics = componentManager != null ? componentManager.getMetrics() : null;
+    }
+
+    int connectObserver(EntityBatchObserver observer) {
+        int id = 0;
+        while (this.obseverIDs.contains(id)) id++; //Reuse the lowest id freed by a disconnected observer
         this.obseverIDs.add(id);
         this.entityObservers.add(observer);
         return id;
     }
 
-    EntityObserver disconnectObserver(int observerID) {
+    EntityBatchObserver disconnectObserver(int observerID) {
         int index = this.obseverIDs.indexOf(observerID);
         if (index == -1) return null;
-        EntityObserver object = entityObservers.fastRemove(index);
+        EntityBatchObserver object = entityObservers.fastRemove(index);
         this.obseverIDs.fastRemove(observerID);
         return object;
     }
 
+    /**
+     * @return the per entity observer with the given id or NULL if the id is invalid or belongs to a batch observer
+     */
+    EntityObserver disconnectEntityObserver(int observerID) {
+        EntityBatchObserver observer = this.disconnectObserver(observerID);
+        return observer instanceof EntityObserver ? (EntityObserver) observer : null;
+    }
+
     void notifyObservers(int entityID) {
-        this.entityObservers.forEach(observer -> observer.update(entityID));
+        if (componentManager != null && componentManager.batchingNotifications) {
+            this.queue(entityID);
+            return;
+        }
+        if (metrics != null && metrics.enabled) this.recordNotifications(1);
+        for (int i = 0; i < this.entityObservers.size(); i++) {
+            EntityBatchObserver observer = this.entityObservers.fastGet(i);
+            if (observer instanceof EntityObserver) {
+                ((EntityObserver) observer).update(entityID);
+            } else {
+                this.singleEntity[0] = entityID; //Set before every call in case an observer notifies this stream again
+                observer.update(singleEntity, 0, 1);
+            }
+        }
+    }
+
+    /**
+     * Delivers a slice of changed entities with a single call per batch observer.
+     */
+    void notifyObservers(int[] entityIDs, int offset, int length) {
+        if (length == 0) return;
+        if (componentManager != null && componentManager.batchingNotifications) {
+            for (int i = offset; i < offset + length; i++) this.queue(entityIDs[i]);
+            return;
+        }
+        if (metrics != null && metrics.enabled) this.recordNotifications(length);
+        for (int i = 0; i < this.entityObservers.size(); i++) {
+            this.entityObservers.fastGet(i).update(entityIDs, offset, length);
+        }
+    }
+
+    private void queue(int entityID) {
+        if (entityObservers.isEmpty() && (metrics == null || !metrics.enabled)) return;
+        if (totalPending == 0) componentManager.queueStream(this);
+        if (totalPending >= pendingEntityIDs.length) {
+            this.pendingEntityIDs = Arrays.copyOf(pendingEntityIDs, CollectionUtils.getGrowLength(totalPending));
+        }
+        this.pendingEntityIDs[totalPending++] = entityID;
+    }
+
+    /**
+     * Delivers every queued change as a single batch
+     */
+    void flushPending() {
+        int length = this.totalPending;
+        this.totalPending = 0;
+        this.notifyObservers(pendingEntityIDs, 0, length);
+    }
+
+    void discardPending() {
+        this.totalPending = 0;
+    }
+
+    private void recordNotifications(int length) {
+        long invocations = 0;
+        for (int i = 0; i < this.entityObservers.size(); i++) {
+            invocations += this.entityObservers.fastGet(i) instanceof EntityObserver ? length : 1;
+        }
+        this.notifications.add(length);
+        this.observerInvocations.add(invocations);
+        this.metrics.notifications.add(length);
+        this.metrics.observerInvocations.add(invocations);
+    }
+
+    public int getObserverCount() {
+        return this.entityObservers.size();
+    }
+
+    /**
+     * @return number of entity changes streamed while the {@link ManagerMetrics metrics} of the manager were enabled
+     */
+    public long getNotifications() {
+        return this.notifications.sum();
+    }
+
+    /**
+     * @return number of observer invocations while the {@link ManagerMetrics metrics} of the manager were enabled
+     */
+    public long getObserverInvocations() {
+        return this.observerInvocations.sum();
+    }
+
+    void resetCounters() {
+        this.notifications.reset();
+        this.observerInvocations.reset();
     }
 
     /**
@@ -40,9 +154,10 @@ public final class EntityStream {
      */
     public Bin createBin() {
         Bin changeBin = new Bin(this);
-        int observerID = this.connectObserver(eID -> {
+        EntityObserver observer = eID -> {
             if (!changeBin.contains(eID)) changeBin.addInternalEntity(eID);
-        });
+        };
+        int observerID = this.connectObserver(observer);
         changeBin.setObserverID(observerID);
         return changeBin;
     }
@@ -3,9 +3,23 @@ package ecsploit.ecs.core;
 import ecsploit.utils.debug.ToStringBuilder;
 
 public abstract class ExecuteSystem implements BaseSystem {
+
+	int lastRunTick = 0;
 	
 	protected abstract void execute();
 
+	/**
+	 * Tick of the previous update of this system. Components attached or {@link ComponentType#markChanged(int) changed}
+	 * after this tick, by other systems or outside of any system, are reported by change queries such as
+	 * {@link ComponentType#forEachChangedSince(int, EntityAction)}. Changes made by the system itself are not reported
+	 * to it on its next update.
+	 *
+	 * @return tick of the previous update or 0 if the system has never been updated
+	 */
+	protected final int lastRunTick() {
+		return lastRunTick;
+	}
+
 	public String toString() {
 		return ToStringBuilder.fromC(this.getClass().getSimpleName())
 				.toString();
@@ -0,0 +1,82 @@
+package ecsploit.ecs.core;
+
+import java.util.function.IntPredicate;
+
+/**
+ * Category of the entities of a parent category which fulfill a condition. Filtered categories are shared by every
+ * {@link Category#filter(IntPredicate) filter} call with the same predicate instance and stay connected to the parent
+ * until every reference has been {@link #dispose() disposed}.
+ * <p>
+ *     Example Usage:
+ *     <pre>
+ *         {@code
+ *         IntPredicate lowHealth = entityID -> healthType.retrieve(entityID).value < 10;
+ *         FilteredCategory dying = players.filter(lowHealth);
+ *         ...
+ *         dying.dispose();
+ *         }
+ *     </pre>
+ * </p>
+ */
+public final class FilteredCategory extends Category {
+
+    private final Category parent;
+    final IntPredicate filterCondition;
+    int referenceCount = 1;
+
+    FilteredCategory(Category parent, IntPredicate filterCondition) {
+        super(parent.componentManager);
+        this.parent = parent;
+        this.filterCondition = filterCondition;
+    }
+
+    public Category getParent() {
+        return parent;
+    }
+
+    /**
+     * @return number of filter calls which have not been disposed yet
+     */
+    public int getReferenceCount() {
+        return referenceCount;
+    }
+
+    public boolean isDisposed() {
+        return referenceCount == 0;
+    }
+
+    /**
+     * Releases one reference. Once every reference is released, the category is disconnected from its parent and no
+     * longer updated in real time, including categories filtered from it.
+     *
+     * @throws IllegalStateException when every reference has already been released
+     */
+    public void dispose() {
+        if (referenceCount == 0) throw new IllegalStateException("Filtered category has already been disposed");
+        if (--referenceCount == 0) parent.disposeFilteredCategory(this);
+    }
+
+    void parentAdded(int entityID) {
+        if (filterCondition.test(entityID)) this.addInternalEntity(entityID);
+    }
+
+    void parentRemoved(int entityID) {
+        if (this.entities.contains(entityID)) this.removeInternalEntity(entityID);
+    }
+
+    /**
+     * Re-evaluates the condition. Entities which keep passing forward the change to categories filtered from this one.
+     */
+    void parentChanged(int entityID) {
+        boolean passes = filterCondition.test(entityID);
+        if (passes != this.entities.contains(entityID)) {
+            if (passes) {
+                this.addInternalEntity(entityID);
+            } else {
+                this.removeInternalEntity(entityID);
+            }
+        } else if (passes) {
+            this.notifyChangeObservers(entityID);
+        }
+    }
+}
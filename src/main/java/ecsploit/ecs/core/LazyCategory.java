@@ -0,0 +1,66 @@
+package ecsploit.ecs.core;
+
+import ecsploit.utils.collections.BitString;
+
+import java.util.function.IntPredicate;
+
+/**
+ * Category which is only backfilled and managed by the ComponentManager once it is first read. Until then it costs
+ * nothing on attach and detach. See {@link Manager#lazyCategory(Class[])} for more details.
+ */
+final class LazyCategory extends Category {
+
+    private boolean materialized = false;
+
+    LazyCategory(ComponentManager componentManager, BitString componentBits, BitString excludedBits, BitString anyBits) {
+        super(componentManager, componentBits, excludedBits, anyBits);
+    }
+
+    boolean isMaterialized() {
+        return materialized;
+    }
+
+    private void ensureMaterialized() {
+        if (materialized) return;
+        if (componentManager.isParallelPass()) {
+            throw new IllegalStateException("Lazy categories can't be materialized during a parallel pass");
+        }
+        this.materialized = true;
+        componentManager.materialize(this);
+    }
+
+    public int size() {
+        this.ensureMaterialized();
+        return super.size();
+    }
+
+    public boolean has(int entityID) {
+        this.ensureMaterialized();
+        return super.has(entityID);
+    }
+
+    public void forEachEntity(EntityAction action) {
+        this.ensureMaterialized();
+        super.forEachEntity(action);
+    }
+
+    public void forEachChangedSince(ComponentType<? extends Component> componentType, int tick, EntityAction action) {
+        this.ensureMaterialized();
+        super.forEachChangedSince(componentType, tick, action);
+    }
+
+    public void parallelForEachEntity(EntityAction action, int chunkSize) {
+        this.ensureMaterialized();
+        super.parallelForEachEntity(action, chunkSize);
+    }
+
+    public int[] getEntityIDs() {
+        this.ensureMaterialized();
+        return super.getEntityIDs();
+    }
+
+    public FilteredCategory filter(IntPredicate filterCondition) {
+        this.ensureMaterialized();
+        return super.filter(filterCondition);
+    }
+}
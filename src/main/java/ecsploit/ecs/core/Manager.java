@@ -1,14 +1,28 @@
 package ecsploit.ecs.core;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
 public class Manager {
 	
 	private final EntityManager entityManager;
 	private final ComponentManager componentManager;
 	private final SystemManager systemManager;
+	private final SystemProfiler profiler = new SystemProfiler();
+	private final ManagerMetrics metrics = new ManagerMetrics(this);
 	
 	public Manager() {
+		this(StorageEngine.SPARSE_SET);
+	}
+
+	/**
+	 * @param storageEngine layout of component instances in memory. {@link StorageEngine#ARCHETYPE} is an experimental
+	 * mirror, see {@link StorageEngine} for the trade-offs.
+	 */
+	public Manager(StorageEngine storageEngine) {
 		this.entityManager = new EntityManager(this);
-		this.componentManager = new ComponentManager(this);
+		this.componentManager = new ComponentManager(this, storageEngine);
 		this.systemManager = new SystemManager(this);
 	}
 
@@ -21,7 +35,8 @@ public class Manager {
 	/**
 	 * Get Entity instance for given unique id
 	 * <p>
-	 *     Note: there is only ever one entity instance per id. Subsequent "get" calls return the same object.
+	 *     Note: there is only ever one entity instance per active entity. Subsequent "get" calls return the same object
+	 *     until the entity is destroyed.
 	 * </p>
 	 *
 	 * @param entityID unique int identifier of the entity to be queried
@@ -31,6 +46,36 @@ public class Manager {
 		return entityManager.getEntity(entityID);
 	}
 
+	/**
+	 * Gets a packed generational handle for an active entity which can safely be kept across frames. Unlike a raw id,
+	 * the handle is never mistaken for a newer entity which recycled the same id.
+	 *
+	 * @param entityID id of an active entity
+	 * @return packed handle of the entity. See {@link EntityHandle} for more details.
+	 */
+	public long handle(int entityID) {
+		return entityManager.getHandle(entityID);
+	}
+
+	/**
+	 * Checks a handle against the current generation of its entity id with a single array compare.
+	 *
+	 * @param handle handle created by {@link #handle(int) handle} or {@link Entity#getHandle()}
+	 * @return whether or not the entity referred to by the handle is still active
+	 */
+	public boolean isAlive(long handle) {
+		return entityManager.isAlive(EntityHandle.entityID(handle), EntityHandle.generation(handle));
+	}
+
+	/**
+	 * @param handle handle created by {@link #handle(int) handle} or {@link Entity#getHandle()}
+	 * @return id of the entity referred to by the handle or -1 if the entity has since been destroyed
+	 */
+	public int resolve(long handle) {
+		int entityID = EntityHandle.entityID(handle);
+		return entityManager.isAlive(entityID, EntityHandle.generation(handle)) ? entityID : -1;
+	}
+
 	/**
 	 * @return the total number of active entities
 	 */
@@ -55,20 +100,59 @@ public class Manager {
 		return entityManager.createEntityID();
 	}
 
+	/**
+	 * Creates a batch of entities which all start out with the same set of components. The new ids are always
+	 * contiguous, recently destroyed ids are not reused, and every ComponentType and matching category is updated in
+	 * one batched insertion which makes this much faster than creating entities and attaching components one by one.
+	 * <p>
+	 *     Example Usage:
+	 *     <pre>
+	 *         {@code
+	 *         int firstID = manager.createEntities(50_000, transformType, spriteType);
+	 *         for (int id = firstID; id < firstID + 50_000; id++) transformType.retrieve(id).setPos(id, 0);
+	 *         }
+	 *     </pre>
+	 * </p>
+	 *
+	 * @param count number of entities to create
+	 * @param componentTypes components to attach to every new entity
+	 * @return id of the first new entity, the other entities follow consecutively
+	 */
+	public int createEntities(int count, ComponentType<?>... componentTypes) {
+		return entityManager.createEntityRange(count, componentTypes);
+	}
+
 	/**
 	 * Destroys an entity and detaches related components. May or may not update entity groups depending on if the
 	 * SystemManager allows it.
 	 * <p>
-	 *     Note: Entity object is reused for newly created entities in the future. DO NOT maintain reference/copy of
-	 *     the entity object once entity has been destroyed. Doing so can lead to undefined behavior.
+	 *     Note: Entity ids are reused for newly created entities in the future. Use {@link Entity#isAlive()} or a
+	 *     {@link #handle(int) handle} to detect references which outlived the entity.
 	 * </p>
 	 * @param entity instance of entity to be destroyed
+	 * @throws EntityManager.EntityNotFoundException if the entity has already been destroyed
 	 */
 	public void destroy(Entity entity) {
 		if (entity == null) throw new IllegalArgumentException("Entity argument must be non-null");
+		if (!entity.isAlive()) {
+			throw new EntityManager.EntityNotFoundException(entity + " has already been destroyed");
+		}
 		entityManager.destroyEntity(entity.getID());
 	}
 
+	/**
+	 * Destroys the entity referred to by the handle if it is still active.
+	 *
+	 * @param handle handle created by {@link #handle(int) handle} or {@link Entity#getHandle()}
+	 * @return false if the entity had already been destroyed
+	 */
+	public boolean destroyHandle(long handle) {
+		int entityID = this.resolve(handle);
+		if (entityID == -1) return false;
+		entityManager.destroyEntity(entityID);
+		return true;
+	}
+
 	/**
 	 * See {@link #destroy(Entity) destroy} method for more details.
 	 * @param entityID id of entity to be destroyed
@@ -78,6 +162,48 @@ public class Manager {
 		entityManager.destroyEntity(entityID);
 	}
 
+	/**
+	 * Destroys every entity currently in the category. Components are detached one component type at a time over the
+	 * whole set and dependent categories are notified with a single batched removal per component type, which is much
+	 * faster than destroying the entities one by one.
+	 * <p>
+	 *     Note: During a system update, the destruction is deferred until the system update ends.
+	 * </p>
+	 *
+	 * @param category category whose entities are destroyed. The category itself stays valid and ends up empty.
+	 */
+	public void destroyAll(Category category) {
+		if (category == null) throw new IllegalArgumentException("Category argument must be non-null");
+		entityManager.destroyEntities(category.getEntityIDs());
+	}
+
+	/**
+	 * Applies every command recorded in the buffer in order. Placeholders of created entities can be resolved through
+	 * {@link CommandBuffer#resolve(int)} afterwards. The buffer is left untouched so it should be cleared before being
+	 * reused.
+	 * <p>
+	 *     Note: During a system update, the commands follow the deferred strategy like any other attach, detach or
+	 *     destroy.
+	 * </p>
+	 *
+	 * @param commands recorded commands
+	 * @throws IllegalStateException when submitted during a parallel pass
+	 */
+	public void submit(CommandBuffer commands) {
+		if (commands == null) throw new IllegalArgumentException("CommandBuffer argument must be non-null");
+		componentManager.submit(commands);
+	}
+
+	/**
+	 * Grows the internal buffer of deferred component operations so that the given number of attaches, detaches and
+	 * destructions can be deferred during a system update without resizing.
+	 *
+	 * @param additionalCommands number of operations expected during a single system update
+	 */
+	public void reserveDeferredCommands(int additionalCommands) {
+		componentManager.reserveDeferredCommands(additionalCommands);
+	}
+
 	/**
 	 * Generates a console message which summarizes currently active entities.
 	 * @return string representation of the EntityManager
@@ -86,6 +212,42 @@ public class Manager {
 		return entityManager.toString();
 	}
 
+	/**
+	 * Writes every entity and component into a binary snapshot file through memory mapped buffers. Component fields are
+	 * stored with the {@link ComponentCodec codec} registered on their ComponentType, columns are stored as is.
+	 *
+	 * @param path file to create or overwrite
+	 * @throws IOException when the file can't be written
+	 * @throws IllegalStateException when called while systems are updating or when a non-columnar ComponentType with
+	 * entities has no codec, in which case the file is left untouched
+	 */
+	public void saveSnapshot(Path path) throws IOException {
+		WorldSnapshot.save(this, path);
+	}
+
+	/**
+	 * Restores a snapshot written by {@link #saveSnapshot(Path) saveSnapshot}. Entity ids and generations are kept so
+	 * stored ids and handles stay valid. Components are restored in bulk and every existing category is rebuilt in a
+	 * single pass.
+	 * <p>
+	 *     Notes:
+	 *     <ul>
+	 *         <li>Every component class stored in the snapshot must already be registered, e.g. through
+	 *         {@link #type(Class) type}. Snapshots never load classes by name</li>
+	 *         <li>The whole file is validated first, the manager is left unchanged when loading fails</li>
+	 *         <li>No attach or category observer is notified. Categories created through
+	 *         {@link Category#filter(java.util.function.IntPredicate) filter} are refilled as well</li>
+	 *     </ul>
+	 * </p>
+	 *
+	 * @param path snapshot file
+	 * @throws IOException when the file can't be read or is not a valid snapshot
+	 * @throws IllegalStateException when the manager has active entities or systems are updating
+	 */
+	public void loadSnapshot(Path path) throws IOException {
+		WorldSnapshot.load(this, path);
+	}
+
 	//COMPONENT MANAGER WRAPPER FUNCTIONS//
 
 	ComponentManager getComponentManager() {
@@ -193,6 +355,18 @@ public class Manager {
 		return componentManager.detachT(entityID, componentType);
 	}
 
+	/**
+	 * Detaches the component type from every entity currently in the category, updating dependent categories with a
+	 * single batched removal. See {@link #destroyAll(Category) destroyAll} for more details.
+	 *
+	 * @param category entities from which the component is detached
+	 * @param componentType type of component to remove from the entities
+	 */
+	public void detachAll(Category category, ComponentType<? extends Component> componentType) {
+		if (category == null) throw new IllegalArgumentException("Category argument must be non-null");
+		componentManager.detachAll(category, componentType);
+	}
+
 	/**
 	 * Safely check whether an entityID has a given component instance of ComponentType. Will not throw errors if
 	 * component has not yet been registered internally by the manager.
@@ -208,12 +382,17 @@ public class Manager {
 	/**
 	 * Gets a Category object which keeps an up-to-date list of all entities with the corresponding component types.
 	 * <p>
-	 *     Note: It is assumed that component types in the param list are unique. Undefined behavior can arise if the
-	 *     same component type is listed repeatedly.
+	 *     Notes:
+	 *     <ul>
+	 *         <li>It is assumed that component types in the param list are unique. Undefined behavior can arise if the
+	 *         same component type is listed repeatedly.</li>
+	 *         <li>Existing categories can be looked up during a parallel pass but new categories can't be created</li>
+	 *     </ul>
 	 * </p>
 	 *
 	 * @param componentClasses list of component classes to query
 	 * @return real-time updated Category reference
+	 * @throws IllegalStateException when the category doesn't exist yet and a parallel pass is running
 	 */
 	@SafeVarargs
 	public final Category category(Class<? extends Component>... componentClasses) {
@@ -232,6 +411,77 @@ public class Manager {
 		return componentManager.getCategoryT(componentTypes);
 	}
 
+	/**
+	 * Gets a category like {@link #category(Class[]) category} but a new category is only filled with its entities
+	 * once it is first read, e.g. by {@link Category#size() size} or {@link Category#forEachEntity(EntityAction)
+	 * forEachEntity}. Systems which are registered late can request their categories without scanning the world right
+	 * away.
+	 * <p>
+	 *     Note: A lazy category can't be read for the first time during a parallel pass
+	 * </p>
+	 *
+	 * @param componentClasses list of component classes to query
+	 * @return real-time updated Category reference
+	 */
+	@SafeVarargs
+	public final Category lazyCategory(Class<? extends Component>... componentClasses) {
+		return componentManager.getCategory(true, componentClasses);
+	}
+
+	/**
+	 * See {@link #lazyCategory(Class[]) lazyCategory} for more details.
+	 *
+	 * @param componentTypes list of component types to query
+	 * @return real-time updated Category reference
+	 */
+	@SafeVarargs
+	public final Category lazyCategoryT(ComponentType<? extends Component>... componentTypes) {
+		return componentManager.getCategoryT(true, componentTypes);
+	}
+
+	/**
+	 * @return current change detection tick. See {@link ExecuteSystem#lastRunTick()} for more details.
+	 */
+	public int getTick() {
+		return componentManager.getTick();
+	}
+
+	/**
+	 * Creates a group which takes ownership of the component types and keeps their dense arrays packed so that the
+	 * first {@link Category#size() size} components of every owned type belong to the members of the group in the
+	 * same order. See {@link OwningGroup} for more details.
+	 *
+	 * @param componentTypes types owned by the group, none of which may already be owned by another group
+	 * @return real-time updated group of all entities with every owned component
+	 * @throws IllegalStateException when a component type is already owned
+	 */
+	public OwningGroup group(ComponentType<?>... componentTypes) {
+		return componentManager.createGroup(componentTypes);
+	}
+
+	/**
+	 * Starts building a category which can also exclude components or require any one of several components. See
+	 * {@link CategoryFilter} for more details.
+	 *
+	 * @return empty filter which matches categories once components are added to it
+	 */
+	public CategoryFilter filter() {
+		return new CategoryFilter(componentManager);
+	}
+
+	/**
+	 * Gets a query which iterates through the archetype chunks of every entity with the corresponding component types.
+	 * Unlike a Category, matching entities are visited chunk by chunk with their components packed in columns.
+	 * @throws IllegalStateException if the manager was not created with {@link StorageEngine#ARCHETYPE}
+	 *
+	 * @param componentTypes list of component types to query
+	 * @return real-time updated ArchetypeQuery reference
+	 */
+	@SafeVarargs
+	public final ArchetypeQuery query(ComponentType<? extends Component>... componentTypes) {
+		return componentManager.getQuery(componentTypes);
+	}
+
 	/**
 	 * If a component has been attached to or detached from an entity during a system iteration, some effects will be
 	 * deferred to the end of the system iteration. Call function to immediately handle all deferred component actions
@@ -242,6 +492,16 @@ public class Manager {
 		componentManager.clean();
 	}
 
+	/**
+	 * Sets the pool used by parallel passes such as {@link Category#parallelForEachEntity(EntityAction)}. Defaults to
+	 * the common ForkJoinPool.
+	 *
+	 * @param workerPool pool executing parallel work of this manager
+	 */
+	public void setWorkerPool(ForkJoinPool workerPool) {
+		componentManager.setWorkerPool(workerPool);
+	}
+
 	//SYSTEM MANAGER WRAPPER FUNCTIONS//
 
 	SystemManager getSystemManager() {
@@ -271,6 +531,35 @@ public class Manager {
         return systemManager.createSystemGroup(name, systems);
 	}
 
+	/**
+	 * Allows registered ExecuteSystems to execute concurrently. See {@link SystemGroup#setParallel(boolean)} for how
+	 * systems are scheduled.
+	 *
+	 * @param parallel whether or not registered systems may execute concurrently
+	 */
+	public void setParallelSystems(boolean parallel) {
+		systemManager.setParallel(parallel);
+	}
+
+	/**
+	 * Gets the instrumentation of system updates which is disabled by default. See {@link SystemProfiler} for the
+	 * recorded measurements.
+	 *
+	 * @return profiler of this manager
+	 */
+	public SystemProfiler profiler() {
+		return profiler;
+	}
+
+	/**
+	 * See {@link ManagerMetrics} for more details.
+	 *
+	 * @return runtime counters of structural changes and observer notifications, disabled by default
+	 */
+	public ManagerMetrics metrics() {
+		return metrics;
+	}
+
 	/**
 	 * Generates a console message which summarizes currently active systems.
 	 * @return string representation of the SystemManager
@@ -283,6 +572,6 @@ public class Manager {
 	 * Updates the SystemManager by one tick
 	 */
 	public void update() {
-		systemManager. update();
+		systemManager.update();
 	}
 }
@@ -0,0 +1,176 @@
+package ecsploit.ecs.core;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runtime counters of structural churn and observer fan-out of a manager. Counters are striped
+ * {@link LongAdder LongAdders} which are only updated while the metrics are {@link #setEnabled(boolean) enabled}, so
+ * disabled metrics cost a single branch per entity operation and observer notification.
+ * <p>
+ *     Recorded counters:
+ *     <ul>
+ *         <li>Entities created and destroyed</li>
+ *         <li>Notifications and observer invocations of every {@link EntityStream}, which includes the attaches and
+ *         detaches of every ComponentType and the additions and removals of every Category</li>
+ *     </ul>
+ *     A {@link #snapshot() snapshot} additionally captures the size of every ComponentType and managed Category.
+ * </p>
+ * <p>
+ *     Example Usage:
+ *     <pre>
+ *         {@code
+ *         manager.metrics().setEnabled(true);
+ *         manager.metrics().exportEvery(Path.of("shard-metrics.jsonl"), 600);
+ *         ...
+ *         MetricsSnapshot snapshot = manager.metrics().snapshot();
+ *         }
+ *     </pre>
+ * </p>
+ */
+public final class ManagerMetrics {
+
+    private final Manager manager;
+    boolean enabled = false;
+
+    final LongAdder entitiesCreated = new LongAdder();
+    final LongAdder entitiesDestroyed = new LongAdder();
+    final LongAdder notifications = new LongAdder();
+    final LongAdder observerInvocations = new LongAdder();
+
+    private Path exportPath;
+    private int exportInterval;
+    private int ticksSinceExport;
+    private ExecutorService exportExecutor;
+    private volatile IOException exportFailure;
+
+    ManagerMetrics(Manager manager) {
+        this.manager = manager;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param enabled whether or not counters are updated. Should only be toggled outside of system updates
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getEntitiesCreated() {
+        return entitiesCreated.sum();
+    }
+
+    public long getEntitiesDestroyed() {
+        return entitiesDestroyed.sum();
+    }
+
+    /**
+     * @return number of notifications across every entity stream of the manager
+     */
+    public long getNotifications() {
+        return notifications.sum();
+    }
+
+    /**
+     * @return number of observer invocations caused by the notifications, i.e. the total fan-out
+     */
+    public long getObserverInvocations() {
+        return observerInvocations.sum();
+    }
+
+    /**
+     * Sets every counter of the manager and of its entity streams back to 0.
+     */
+    public void reset() {
+        this.entitiesCreated.reset();
+        this.entitiesDestroyed.reset();
+        this.notifications.reset();
+        this.observerInvocations.reset();
+        ComponentManager componentManager = manager.getComponentManager();
+        for (ComponentType<?> componentType: componentManager.componentTypeMap.getComponentTypes()) {
+            componentType.resetStreamCounters();
+        }
+        for (Category category: componentManager.getIndexedCategories()) {
+            category.resetStreamCounters();
+        }
+    }
+
+    /**
+     * Captures the counters and the sizes of every ComponentType and managed Category. Should be called outside of
+     * system updates.
+     *
+     * @return immutable snapshot of the metrics
+     */
+    public MetricsSnapshot snapshot() {
+        return new MetricsSnapshot(this.manager, this);
+    }
+
+    /**
+     * Appends a {@link MetricsSnapshot#toJson() JSON} snapshot to the file every given number of ticks. Snapshots are
+     * taken at the end of {@link Manager#update() update} and written by a background thread so the tick thread never
+     * waits for the file. The export stops at the first failed write, see {@link #getExportFailure()}.
+     *
+     * @param path file the snapshots are appended to, one per line
+     * @param intervalTicks number of ticks between two snapshots
+     */
+    public void exportEvery(Path path, int intervalTicks) {
+        if (intervalTicks <= 0) throw new IllegalArgumentException("Export interval must be positive: " + intervalTicks);
+        this.exportPath = path;
+        this.exportInterval = intervalTicks;
+        this.ticksSinceExport = 0;
+        this.exportFailure = null;
+        if (exportExecutor == null) {
+            this.exportExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "ecsploit-metrics-export");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Stops the periodic export after the pending snapshots have been written.
+     */
+    public void stopExport() {
+        this.exportPath = null;
+        if (exportExecutor != null) exportExecutor.shutdown();
+        this.exportExecutor = null;
+    }
+
+    /**
+     * @return the error of the write which stopped the periodic export or NULL if no write has failed since the export
+     * was last started
+     */
+    public IOException getExportFailure() {
+        return exportFailure;
+    }
+
+    void onTick() {
+        if (exportPath == null) return;
+        if (exportFailure != null) {
+            this.stopExport();
+            return;
+        }
+        if (++ticksSinceExport < exportInterval) return;
+        this.ticksSinceExport = 0;
+        Path path = this.exportPath;
+        String line = this.snapshot().toJson() + System.lineSeparator();
+        this.exportExecutor.execute(() -> {
+            if (exportFailure != null) return; //Snapshots queued behind a failed write are dropped
+            try {
+                Files.write(path, line.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                this.exportFailure = e;
+            }
+        });
+    }
+}
@@ -0,0 +1,169 @@
+package ecsploit.ecs.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable capture of the {@link ManagerMetrics metrics} of a manager at one point in time
+ */
+public final class MetricsSnapshot {
+
+    private final long timeMillis;
+    private final int tick;
+    private final int activeEntities;
+    private final long entitiesCreated;
+    private final long entitiesDestroyed;
+    private final long notifications;
+    private final long observerInvocations;
+    private final List<Entry> componentTypes;
+    private final List<Entry> categories;
+
+    MetricsSnapshot(Manager manager, ManagerMetrics metrics) {
+        this.timeMillis = System.currentTimeMillis();
+        this.tick = manager.getTick();
+        this.activeEntities = manager.sizeOfEntities();
+        this.entitiesCreated = metrics.getEntitiesCreated();
+        this.entitiesDestroyed = metrics.getEntitiesDestroyed();
+        this.notifications = metrics.getNotifications();
+        this.observerInvocations = metrics.getObserverInvocations();
+
+        ComponentManager componentManager = manager.getComponentManager();
+        List<Entry> componentTypes = new ArrayList<>();
+        for (ComponentType<?> componentType: componentManager.componentTypeMap.getComponentTypes()) {
+            componentTypes.add(new Entry(componentType.getComponentName(), componentType));
+        }
+        List<Entry> categories = new ArrayList<>();
+        for (Category category: componentManager.getIndexedCategories()) {
+            categories.add(new Entry(componentManager.describe(category), category));
+        }
+        this.componentTypes = Collections.unmodifiableList(componentTypes);
+        this.categories = Collections.unmodifiableList(categories);
+    }
+
+    /**
+     * @return wall clock time of the snapshot in milliseconds since the epoch
+     */
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    public int getTick() {
+        return tick;
+    }
+
+    public int getActiveEntities() {
+        return activeEntities;
+    }
+
+    public long getEntitiesCreated() {
+        return entitiesCreated;
+    }
+
+    public long getEntitiesDestroyed() {
+        return entitiesDestroyed;
+    }
+
+    public long getNotifications() {
+        return notifications;
+    }
+
+    public long getObserverInvocations() {
+        return observerInvocations;
+    }
+
+    /**
+     * @return one entry per ComponentType where additions are attaches and removals are detaches
+     */
+    public List<Entry> getComponentTypes() {
+        return componentTypes;
+    }
+
+    /**
+     * @return one entry per managed Category, including owning groups
+     */
+    public List<Entry> getCategories() {
+        return categories;
+    }
+
+    /**
+     * @return the snapshot as a single line JSON object
+     */
+    public String toJson() {
+        StringBuilder out = new StringBuilder(256);
+        out.append("{\"timeMillis\":").append(timeMillis)
+                .append(",\"tick\":").append(tick)
+                .append(",\"activeEntities\":").append(activeEntities)
+                .append(",\"entitiesCreated\":").append(entitiesCreated)
+                .append(",\"entitiesDestroyed\":").append(entitiesDestroyed)
+                .append(",\"notifications\":").append(notifications)
+                .append(",\"observerInvocations\":").append(observerInvocations);
+        appendJson(out.append(",\"componentTypes\":"), componentTypes);
+        appendJson(out.append(",\"categories\":"), categories);
+        return out.append('}').toString();
+    }
+
+    private static void appendJson(StringBuilder out, List<Entry> entries) {
+        out.append('[');
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            if (i > 0) out.append(',');
+            out.append("{\"name\":\"").append(entry.name.replace("\\", "\\\\").replace("\"", "\\\"")).append('"')
+                    .append(",\"size\":").append(entry.size)
+                    .append(",\"additions\":").append(entry.additions)
+                    .append(",\"removals\":").append(entry.removals)
+                    .append(",\"observerInvocations\":").append(entry.observerInvocations)
+                    .append('}');
+        }
+        out.append(']');
+    }
+
+    public String toString() {
+        return this.toJson();
+    }
+
+    /**
+     * Size and counters of a single ComponentType or Category
+     */
+    public static final class Entry {
+
+        private final String name;
+        private final int size;
+        private final long additions;
+        private final long removals;
+        private final long observerInvocations;
+
+        Entry(String name, Category category) {
+            this.name = name;
+            this.size = category.size();
+            this.additions = category.addStream.getNotifications();
+            this.removals = category.removeStream.getNotifications();
+            this.observerInvocations = category.addStream.getObserverInvocations()
+                    + category.removeStream.getObserverInvocations()
+                    + category.changeStream.getObserverInvocations();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public long getAdditions() {
+            return additions;
+        }
+
+        public long getRemovals() {
+            return removals;
+        }
+
+        /**
+         * @return number of observer invocations across the add, remove and change streams
+         */
+        public long getObserverInvocations() {
+            return observerInvocations;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package ecsploit.ecs.core;
+
+import ecsploit.utils.collections.BitString;
+
+/**
+ * Category which owns its component types and keeps their dense arrays sorted so that the first {@link #size() size}
+ * slots of every owned ComponentType hold exactly the members of the group in the same order as the group itself.
+ * Joining the owned components then becomes an index-aligned walk through the dense arrays without any sparse lookups.
+ * <p>
+ *     Example Usage:
+ *     <pre>
+ *         {@code
+ *         OwningGroup movables = manager.group(transformType, velocityType);
+ *         for (int i = 0; i < movables.size(); i++) {
+ *             Transform transform = transformType.getAt(i);
+ *             Velocity velocity = velocityType.getAt(i);
+ *             ...
+ *         }
+ *         }
+ *     </pre>
+ * </p>
+ * <p>
+ *     Notes:
+ *     <ul>
+ *         <li>A ComponentType can be owned by at most one group</li>
+ *         <li>Entities leave the group as soon as an owned component is removed from its ComponentType, even while a
+ *         system is updating, so that the owned prefix never holds a removed component. Index loops which detach owned
+ *         components should therefore run backwards like {@link #forEachEntity(EntityAction)}</li>
+ *     </ul>
+ * </p>
+ */
+public final class OwningGroup extends Category {
+
+    private final ComponentType<?>[] ownedTypes;
+
+    OwningGroup(ComponentManager componentManager, BitString componentBits, ComponentType<?>[] ownedTypes) {
+        super(componentManager, componentBits);
+        this.ownedTypes = ownedTypes;
+    }
+
+    /**
+     * @return copy of the component types owned by the group
+     */
+    public ComponentType<?>[] getOwnedTypes() {
+        return ownedTypes.clone();
+    }
+
+    /**
+     * Iterates backwards so that members evicted by the action are never skipped. An evicted member swaps places with
+     * the last member, which has already been visited.
+     *
+     * @param action invoked per member
+     */
+    public void forEachEntity(EntityAction action) {
+        for (int i = this.entities.size() - 1; i >= 0; i--) {
+            action.accept(this.entities.fastGet(i));
+        }
+    }
+
+    /**
+     * Moves the entity into the slot right after the last member in every owned type and appends it to the group
+     */
+    void addInternalEntity(int entityID) {
+        for (ComponentType<?> ownedType: ownedTypes) {
+            if (!ownedType.has(entityID)) return; //Component bits are stale until deferred detaches are cleaned
+        }
+        int memberIndex = this.entities.size();
+        for (ComponentType<?> ownedType: ownedTypes) {
+            ownedType.swapDense(ownedType.entities.fastIndexOf(entityID), memberIndex);
+        }
+        super.addInternalEntity(entityID);
+    }
+
+    void restoreInternalEntity(int entityID) {
+        int memberIndex = this.entities.size();
+        for (ComponentType<?> ownedType: ownedTypes) {
+            ownedType.swapDense(ownedType.entities.fastIndexOf(entityID), memberIndex);
+        }
+        super.restoreInternalEntity(entityID);
+    }
+
+    void addInternalRange(int firstEntityID, int count) {
+        for (int i = 0; i < count; i++) {
+            this.addInternalEntity(firstEntityID + i);
+        }
+    }
+
+    /**
+     * Moves the entity into the slot of the last member in every owned type and removes it from the group
+     */
+    void evictInternalEntity(int entityID) {
+        int lastMemberIndex = this.entities.size() - 1;
+        for (ComponentType<?> ownedType: ownedTypes) {
+            ownedType.swapDense(ownedType.entities.fastIndexOf(entityID), lastMemberIndex);
+        }
+        super.removeInternalEntity(entityID); //Fills the gap with the last member just like the owned types
+    }
+
+    void removeInternalEntity(int entityID) {
+        this.evictInternalEntity(entityID);
+    }
+
+    void removeInternalEntities(int[] entityIDs, int count) {
+        for (int i = 0; i < count; i++) {
+            if (this.has(entityIDs[i])) this.evictInternalEntity(entityIDs[i]);
+        }
+    }
+
+    void updateInternalEntities(int[] entityIDs, int count, BitString[] entityToComponentBits) {
+        for (int i = 0; i < count; i++) {
+            int entityID = entityIDs[i];
+            boolean matches = this.matches(entityToComponentBits[entityID]);
+            if (matches == this.has(entityID)) continue;
+            if (matches) {
+                this.addInternalEntity(entityID);
+            } else {
+                this.evictInternalEntity(entityID);
+            }
+        }
+    }
+}
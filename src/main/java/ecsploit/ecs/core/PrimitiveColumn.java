@@ -0,0 +1,56 @@
+package ecsploit.ecs.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Primitive array of component data aligned with the dense index of its ComponentType: the value at index i belongs to
+ * the i-th entity of the ComponentType. Columns are resized and reordered together with the ComponentType.
+ */
+public abstract class PrimitiveColumn {
+
+    private final String name;
+    final ComponentType<?> componentType;
+
+    PrimitiveColumn(String name, ComponentType<?> componentType) {
+        this.name = name;
+        this.componentType = componentType;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Grows the column if needed and resets the value at the index of a newly attached entity
+     */
+    abstract void append(int index);
+
+    /**
+     * Fills the gap at toIndex with the value of the (last) entity at fromIndex
+     */
+    abstract void move(int fromIndex, int toIndex);
+
+    abstract void swap(int indexA, int indexB);
+
+    /**
+     * Writes the values of the first count entities
+     */
+    abstract void write(SnapshotCursor cursor, int count) throws IOException;
+
+    /**
+     * Reads count values into the already appended slots starting at firstIndex
+     */
+    abstract void read(SnapshotCursor cursor, int firstIndex, int count) throws IOException;
+
+    /**
+     * Writes the value at the index, at most 8 bytes
+     */
+    abstract void encode(int index, ByteBuffer out);
+
+    abstract void decode(int index, ByteBuffer in);
+
+    public String toString() {
+        return getClass().getSimpleName() + "(name=" + name + ", componentType=" + componentType.getComponentName() + ")";
+    }
+}
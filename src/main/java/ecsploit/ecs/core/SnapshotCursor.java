@@ -0,0 +1,164 @@
+package ecsploit.ecs.core;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Sequential reader and writer of a file which is memory mapped one window at a time, so files larger than a single
+ * MappedByteBuffer can be handled. Every window is little endian.
+ */
+final class SnapshotCursor {
+
+    static final int DEFAULT_WINDOW_SIZE = 64 << 20;
+
+    private final FileChannel channel;
+    private final FileChannel.MapMode mapMode;
+    private final long fileLimit; //Size of the file when reading or Long.MAX_VALUE when writing
+    private final int windowSize;
+
+    private long windowPosition = 0;
+    private MappedByteBuffer window;
+
+    private SnapshotCursor(FileChannel channel, FileChannel.MapMode mapMode, long fileLimit, int windowSize) {
+        this.channel = channel;
+        this.mapMode = mapMode;
+        this.fileLimit = fileLimit;
+        this.windowSize = windowSize;
+    }
+
+    static SnapshotCursor reading(FileChannel channel) throws IOException {
+        return new SnapshotCursor(channel, FileChannel.MapMode.READ_ONLY, channel.size(), DEFAULT_WINDOW_SIZE);
+    }
+
+    static SnapshotCursor writing(FileChannel channel) {
+        return new SnapshotCursor(channel, FileChannel.MapMode.READ_WRITE, Long.MAX_VALUE, DEFAULT_WINDOW_SIZE);
+    }
+
+    long position() {
+        return window == null ? windowPosition : windowPosition + window.position();
+    }
+
+    /**
+     * @return number of bytes left in the file, unbounded when writing
+     */
+    long remaining() {
+        return fileLimit - this.position();
+    }
+
+    /**
+     * Maps the next window if fewer than the given number of bytes remain in the current one.
+     *
+     * @return buffer with at least the given number of bytes remaining
+     * @throws EOFException when reading past the end of the file
+     */
+    ByteBuffer ensure(int bytes) throws IOException {
+        if (window != null && window.remaining() >= bytes) return window;
+        long position = this.position();
+        long length = Math.min(Math.max(windowSize, bytes), fileLimit - position);
+        if (length < bytes) throw new EOFException("Snapshot ends after " + position + " bytes");
+        this.window = channel.map(mapMode, position, length);
+        this.window.order(ByteOrder.LITTLE_ENDIAN);
+        this.windowPosition = position;
+        return window;
+    }
+
+    /**
+     * Moves the cursor forward without reading or writing.
+     *
+     * @throws EOFException when skipping past the end of the file
+     */
+    void skip(long bytes) throws IOException {
+        long position = this.position() + bytes;
+        if (position > fileLimit) throw new EOFException("Snapshot ends after " + fileLimit + " bytes");
+        if (window != null && window.remaining() >= bytes) {
+            this.window.position(window.position() + (int) bytes);
+            return;
+        }
+        this.window = null;
+        this.windowPosition = position;
+    }
+
+    void putInts(int[] values, int offset, int length) throws IOException {
+        while (length > 0) {
+            ByteBuffer buffer = this.ensure(Integer.BYTES);
+            int count = Math.min(length, buffer.remaining() / Integer.BYTES);
+            buffer.asIntBuffer().put(values, offset, count);
+            buffer.position(buffer.position() + count * Integer.BYTES);
+            offset += count;
+            length -= count;
+        }
+    }
+
+    void getInts(int[] values, int offset, int length) throws IOException {
+        while (length > 0) {
+            ByteBuffer buffer = this.ensure(Integer.BYTES);
+            int count = Math.min(length, buffer.remaining() / Integer.BYTES);
+            buffer.asIntBuffer().get(values, offset, count);
+            buffer.position(buffer.position() + count * Integer.BYTES);
+            offset += count;
+            length -= count;
+        }
+    }
+
+    void putFloats(float[] values, int offset, int length) throws IOException {
+        while (length > 0) {
+            ByteBuffer buffer = this.ensure(Float.BYTES);
+            int count = Math.min(length, buffer.remaining() / Float.BYTES);
+            buffer.asFloatBuffer().put(values, offset, count);
+            buffer.position(buffer.position() + count * Float.BYTES);
+            offset += count;
+            length -= count;
+        }
+    }
+
+    void getFloats(float[] values, int offset, int length) throws IOException {
+        while (length > 0) {
+            ByteBuffer buffer = this.ensure(Float.BYTES);
+            int count = Math.min(length, buffer.remaining() / Float.BYTES);
+            buffer.asFloatBuffer().get(values, offset, count);
+            buffer.position(buffer.position() + count * Float.BYTES);
+            offset += count;
+            length -= count;
+        }
+    }
+
+    void putDoubles(double[] values, int offset, int length) throws IOException {
+        while (length > 0) {
+            ByteBuffer buffer = this.ensure(Double.BYTES);
+            int count = Math.min(length, buffer.remaining() / Double.BYTES);
+            buffer.asDoubleBuffer().put(values, offset, count);
+            buffer.position(buffer.position() + count * Double.BYTES);
+            offset += count;
+            length -= count;
+        }
+    }
+
+    void getDoubles(double[] values, int offset, int length) throws IOException {
+        while (length > 0) {
+            ByteBuffer buffer = this.ensure(Double.BYTES);
+            int count = Math.min(length, buffer.remaining() / Double.BYTES);
+            buffer.asDoubleBuffer().get(values, offset, count);
+            buffer.position(buffer.position() + count * Double.BYTES);
+            offset += count;
+            length -= count;
+        }
+    }
+
+    void putString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        this.ensure(Integer.BYTES + bytes.length).putInt(bytes.length).put(bytes);
+    }
+
+    String getString() throws IOException {
+        int length = this.ensure(Integer.BYTES).getInt();
+        if (length < 0) throw new IOException("Corrupt string length " + length + " at " + this.position());
+        byte[] bytes = new byte[length];
+        this.ensure(length).get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,29 @@
+package ecsploit.ecs.core;
+
+/**
+ * Strategy used by the manager to lay out component instances in memory.
+ */
+public enum StorageEngine {
+
+    /**
+     * Every ComponentType keeps its own sparse set of entities and dense list of instances. Attach and detach are the
+     * cheapest but joining several component types requires one sparse lookup per component per entity.
+     */
+    SPARSE_SET,
+
+    /**
+     * Experimental, opt-in mirror of the sparse sets: entities with the exact same set of components are additionally
+     * packed together in fixed size {@link ArchetypeChunk chunks} with one column per component.
+     * <p>
+     *     Notes:
+     *     <ul>
+     *         <li>Every attach, detach and destroy updates both the sparse sets and the chunks, moving the entity
+     *         between archetypes, so structural changes cost roughly twice as much</li>
+     *         <li>Categories and ComponentTypes still iterate the sparse sets. Only systems which iterate an
+     *         {@link ArchetypeQuery} chunk by chunk gain locality, so the mirror only pays for itself when such queries
+     *         dominate the tick and structural churn is low. See {@code ArchetypeBenchmark} of the benchmarks module</li>
+     *     </ul>
+     * </p>
+     */
+    ARCHETYPE
+}
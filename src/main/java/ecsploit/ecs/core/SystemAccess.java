@@ -0,0 +1,62 @@
+package ecsploit.ecs.core;
+
+import ecsploit.ecs.injection.CatTarget;
+import ecsploit.ecs.injection.ReadOnly;
+import ecsploit.ecs.injection.TypeTarget;
+import ecsploit.utils.collections.BitString;
+
+import java.lang.reflect.Field;
+
+/**
+ * Component read and write sets of an ExecuteSystem derived from its injected fields.
+ * <p>
+ *     Notes:
+ *     <ul>
+ *         <li>A {@link TypeTarget} field writes its component unless it is marked {@link ReadOnly}</li>
+ *         <li>A {@link CatTarget} field writes all components of the category unless it is marked {@link ReadOnly}.
+ *         Excluded components are not accessed</li>
+ *         <li>Systems without any targets (including SystemGroups) are exclusive and never run concurrently</li>
+ *     </ul>
+ * </p>
+ */
+final class SystemAccess {
+
+    private final BitString reads = new BitString();
+    private final BitString writes = new BitString();
+    private boolean exclusive = true;
+
+    private SystemAccess() {}
+
+    static SystemAccess from(ExecuteSystem system, ComponentManager componentManager) {
+        SystemAccess access = new SystemAccess();
+        if (system instanceof SystemGroup) return access;
+
+        for (Class<?> systemClass = system.getClass(); systemClass != ExecuteSystem.class; systemClass = systemClass.getSuperclass()) {
+            for (Field field: systemClass.getDeclaredFields()) {
+                BitString accessBits = field.isAnnotationPresent(ReadOnly.class) ? access.reads : access.writes;
+                if (field.isAnnotationPresent(TypeTarget.class)) {
+                    Class<? extends Component> componentClass = field.getAnnotation(TypeTarget.class).value();
+                    accessBits.set(componentManager.getComponentType(componentClass).getComponentID());
+                    access.exclusive = false;
+                } else if (field.isAnnotationPresent(CatTarget.class)) {
+                    CatTarget catTarget = field.getAnnotation(CatTarget.class);
+                    for (Class<? extends Component> componentClass: catTarget.value()) {
+                        accessBits.set(componentManager.getComponentType(componentClass).getComponentID());
+                    }
+                    for (Class<? extends Component> componentClass: catTarget.any()) {
+                        accessBits.set(componentManager.getComponentType(componentClass).getComponentID());
+                    }
+                    access.exclusive = false;
+                }
+            }
+        }
+        return access;
+    }
+
+    boolean conflictsWith(SystemAccess other) {
+        if (this.exclusive || other.exclusive) return true;
+        return this.writes.intersects(other.writes)
+                || this.writes.intersects(other.reads)
+                || this.reads.intersects(other.writes);
+    }
+}
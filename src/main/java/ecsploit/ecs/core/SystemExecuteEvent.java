@@ -0,0 +1,27 @@
+package ecsploit.ecs.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event spanning the execute method of a single system
+ */
+@Name("ecsploit.SystemExecute")
+@Label("System Execute")
+@Category("ECSPloit")
+@Description("Execution of a system, excluding the clean of its deferred commands")
+final class SystemExecuteEvent extends Event {
+
+    @Label("System")
+    String system;
+
+    @Label("System Class")
+    Class<?> systemClass;
+
+    @Label("Concurrent")
+    @Description("Whether or not the system shared its level with other systems")
+    boolean concurrent;
+}
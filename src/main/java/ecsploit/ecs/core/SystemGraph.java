@@ -71,6 +71,28 @@ public class SystemGraph {
         }
     }
 
+    /**
+     * @return whether an ExecuteAfter/ExecuteBefore chain forces the first system to execute before the second one
+     */
+    boolean isOrderedBefore(ExecuteSystem before, ExecuteSystem after) {
+        SystemNode from = systemNodes.get(before.getClass());
+        SystemNode to = systemNodes.get(after.getClass());
+        if (from == null || to == null || from.mark >= to.mark) return false;
+
+        Deque<SystemNode> stack = new ArrayDeque<>();
+        Set<SystemNode> visited = new HashSet<>();
+        stack.push(from);
+        while (!stack.isEmpty()) {
+            SystemNode node = stack.pop();
+            for (int i = 0; i < node.nextNodes.size(); i++) {
+                SystemNode next = node.nextNodes.fastGet(i);
+                if (next == to) return true;
+                if (next.mark < to.mark && visited.add(next)) stack.push(next);
+            }
+        }
+        return false;
+    }
+
     public ExecuteSystem[] getOrderedList() {
         List<SystemNode> listOfNodes = new ArrayList<>();
         for (SystemNode node: systemNodes.values()) {
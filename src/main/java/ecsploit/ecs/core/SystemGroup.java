@@ -2,6 +2,8 @@ package ecsploit.ecs.core;
 
 import ecsploit.utils.debug.ToStringBuilder;
 
+import java.util.concurrent.ForkJoinTask;
+
 public final class SystemGroup extends ExecuteSystem {
 
     private final String name;
@@ -11,6 +13,9 @@ public final class SystemGroup extends ExecuteSystem {
 
     private boolean iterating = false;
 
+    //Systems grouped into levels which can execute concurrently. NULL when the group executes sequentially
+    private ExecuteSystem[][] levels = null;
+
     SystemGroup(String name, Manager manager) {
         this.name = name;
         this.manager = manager;
@@ -20,19 +25,191 @@ public final class SystemGroup extends ExecuteSystem {
         if (iterating) throw new IllegalStateException("Systems can't be inserted while group is iterating");
         this.systemGraph.insert(system);
         this.systems = this.systemGraph.getOrderedList();
+        if (this.levels != null) this.levels = this.buildLevels();
+    }
+
+    /**
+     * Allows systems of this group to execute concurrently on the worker pool of the manager. Two systems are placed
+     * in the same level and run concurrently unless one must execute before the other through
+     * {@link ecsploit.ecs.injection.ExecuteAfter ExecuteAfter}/{@link ecsploit.ecs.injection.ExecuteBefore
+     * ExecuteBefore} or their component accesses conflict. Accesses are derived from the TypeTarget and CatTarget
+     * fields of each system and can be narrowed with {@link ecsploit.ecs.injection.ReadOnly ReadOnly}.
+     * <p>
+     *     Notes:
+     *     <ul>
+     *         <li>Component operations of concurrent systems are buffered per worker and merged at the end of the
+     *         level, after which the deferred operations of the level are cleaned</li>
+     *         <li>Systems without any targets are exclusive and always run alone in their level</li>
+     *         <li>Systems which create or destroy entities must not share a level with other systems</li>
+     *     </ul>
+     * </p>
+     *
+     * @param parallel whether or not systems of this group may execute concurrently
+     */
+    public void setParallel(boolean parallel) {
+        if (iterating) throw new IllegalStateException("Execution mode can't be changed while group is iterating");
+        this.levels = parallel ? this.buildLevels() : null;
+    }
+
+    private ExecuteSystem[][] buildLevels() {
+        SystemAccess[] accesses = new SystemAccess[systems.length];
+        int[] systemLevels = new int[systems.length];
+        int[] levelSizes = new int[systems.length];
+        int totalLevels = 0;
+        for (int j = 0; j < systems.length; j++) {
+            accesses[j] = SystemAccess.from(systems[j], this.manager.getComponentManager());
+            for (int i = 0; i < j; i++) {
+                if (accesses[i].conflictsWith(accesses[j]) || systemGraph.isOrderedBefore(systems[i], systems[j])) {
+                    systemLevels[j] = Math.max(systemLevels[j], systemLevels[i] + 1);
+                }
+            }
+            levelSizes[systemLevels[j]]++;
+            totalLevels = Math.max(totalLevels, systemLevels[j] + 1);
+        }
+
+        ExecuteSystem[][] levels = new ExecuteSystem[totalLevels][];
+        for (int i = 0; i < totalLevels; i++) {
+            levels[i] = new ExecuteSystem[levelSizes[i]];
+            levelSizes[i] = 0;
+        }
+        for (int j = 0; j < systems.length; j++) {
+            levels[systemLevels[j]][levelSizes[systemLevels[j]]++] = systems[j];
+        }
+        return levels;
     }
 
     public void execute() {
         this.iterating = true;
-        for (ExecuteSystem system: systems) {
-            this.manager.getComponentManager().setToDeferredStrategy();
-            system.execute();
-            this.manager.getComponentManager().clean();
-            this.manager.getComponentManager().setToImmediateStrategy();
+        if (levels == null) {
+            for (ExecuteSystem system: systems) {
+                int runTick = this.manager.getComponentManager().advanceTick();
+                this.manager.getComponentManager().setToDeferredStrategy();
+                if (manager.profiler().isEnabled()) {
+                    this.executeProfiled(system);
+                } else {
+                    execute(system, false);
+                    this.manager.getComponentManager().clean();
+                }
+                this.manager.getComponentManager().setToImmediateStrategy();
+                system.lastRunTick = runTick;
+                this.manager.getComponentManager().advanceTick(); //Later changes are newer than the run of the system
+            }
+        } else {
+            for (ExecuteSystem[] level: levels) {
+                this.executeLevel(level);
+            }
         }
         this.iterating = false;
     }
 
+    /**
+     * Executes a system within a Flight Recorder event which costs a single branch while the event is disabled
+     */
+    private static void execute(ExecuteSystem system, boolean concurrent) {
+        SystemExecuteEvent event = new SystemExecuteEvent();
+        event.begin();
+        system.execute();
+        event.end();
+        if (event.shouldCommit()) {
+            event.system = system.toString();
+            event.systemClass = system.getClass();
+            event.concurrent = concurrent;
+            event.commit();
+        }
+    }
+
+    /**
+     * Executes and cleans a single system while measuring both
+     */
+    private void executeProfiled(ExecuteSystem system) {
+        ComponentManager componentManager = this.manager.getComponentManager();
+        long allocatedBefore = SystemProfiler.currentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        execute(system, false);
+        long executed = System.nanoTime();
+        long allocatedBytes = allocatedBefore == -1 ? -1 : SystemProfiler.currentThreadAllocatedBytes() - allocatedBefore;
+        int deferredCommands = componentManager.getDeferredCommandCount();
+        componentManager.clean();
+        manager.profiler().record(system, executed - start, System.nanoTime() - executed, allocatedBytes, deferredCommands);
+    }
+
+    /**
+     * Executes a system of a level and stores its execute nanos and allocated bytes at its index in the samples
+     */
+    private static void runTimed(ExecuteSystem system, boolean concurrent, long[] samples, int index) {
+        long allocatedBefore = SystemProfiler.currentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        execute(system, concurrent);
+        samples[2 * index] = System.nanoTime() - start;
+        samples[2 * index + 1] = allocatedBefore == -1 ? -1 : SystemProfiler.currentThreadAllocatedBytes() - allocatedBefore;
+    }
+
+    private void executeLevel(ExecuteSystem[] level) {
+        ComponentManager componentManager = this.manager.getComponentManager();
+        int runTick = componentManager.advanceTick();
+        componentManager.setToDeferredStrategy();
+        long[] samples = manager.profiler().isEnabled() ? new long[2 * level.length] : null;
+        if (level.length == 1 || !componentManager.beginParallelPass()) {
+            for (int i = 0; i < level.length; i++) {
+                if (samples != null) {
+                    runTimed(level[i], false, samples, i);
+                } else {
+                    execute(level[i], false);
+                }
+            }
+        } else {
+            try {
+                ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[level.length - 1];
+                Throwable failure = null;
+                try {
+                    for (int i = 1; i < level.length; i++) {
+                        ExecuteSystem system = level[i];
+                        int index = i;
+                        tasks[i - 1] = componentManager.getWorkerPool().submit(samples == null ? () -> execute(system, true) : () -> runTimed(system, true, samples, index));
+                    }
+                    if (samples != null) { //Calling thread takes part in the level instead of idling
+                        runTimed(level[0], true, samples, 0);
+                    } else {
+                        execute(level[0], true);
+                    }
+                } catch (RuntimeException | Error e) {
+                    failure = e;
+                }
+                //Every task is joined before the pass ends, even after a failure, since ending the pass merges the
+                //worker buffers the systems write to
+                for (ForkJoinTask<?> task: tasks) {
+                    if (task == null) continue;
+                    try {
+                        task.join();
+                    } catch (RuntimeException | Error e) {
+                        if (failure == null) failure = e;
+                        else failure.addSuppressed(e);
+                    }
+                }
+                if (failure instanceof Error) throw (Error) failure;
+                if (failure != null) throw (RuntimeException) failure;
+            } finally {
+                componentManager.endParallelPass();
+            }
+        }
+        if (samples != null) {
+            int deferredCommands = componentManager.getDeferredCommandCount();
+            long start = System.nanoTime();
+            componentManager.clean();
+            long cleanNanos = System.nanoTime() - start;
+            for (int i = 0; i < level.length; i++) {
+                manager.profiler().record(level[i], samples[2 * i], cleanNanos, samples[2 * i + 1], deferredCommands);
+            }
+        } else {
+            componentManager.clean();
+        }
+        componentManager.setToImmediateStrategy();
+        for (ExecuteSystem system: level) {
+            system.lastRunTick = runTick;
+        }
+        componentManager.advanceTick();
+    }
+
     public String toString() {
         return ToStringBuilder.fromC("[" + name + "]")
                 .withArrayB(this.systems)
@@ -29,7 +29,16 @@ public final class SystemManager {
 			if (field.isAnnotationPresent(CatTarget.class)) {
 				CatTarget componentTypeAnnotation = field.getAnnotation(CatTarget.class);
 				Class<? extends Component>[] componentClasses = componentTypeAnnotation.value();
-				Category category = manager.getComponentManager().getCategory(componentClasses);
+				Category category;
+				if (componentTypeAnnotation.none().length == 0 && componentTypeAnnotation.any().length == 0) {
+					category = manager.getComponentManager().getCategory(componentTypeAnnotation.lazy(), componentClasses);
+				} else {
+					CategoryFilter filter = manager.filter()
+							.all(componentClasses)
+							.none(componentTypeAnnotation.none())
+							.any(componentTypeAnnotation.any());
+					category = componentTypeAnnotation.lazy() ? filter.lazyCategory() : filter.category();
+				}
 
 				try {
 					field.setAccessible(true);
@@ -76,8 +85,28 @@ public final class SystemManager {
 		return systemGroup;
 	}
 	
+	void setParallel(boolean parallel) {
+		this.rootSystemGroup.setParallel(parallel);
+	}
+
 	void update() {
-		this.rootSystemGroup.execute();
+		TickEvent event = new TickEvent();
+		event.begin();
+		SystemProfiler profiler = manager.profiler();
+		if (!profiler.isEnabled()) {
+			this.rootSystemGroup.execute();
+		} else {
+			long start = System.nanoTime();
+			this.rootSystemGroup.execute();
+			profiler.recordTick(System.nanoTime() - start);
+		}
+		event.end();
+		if (event.shouldCommit()) {
+			event.tick = manager.getTick();
+			event.activeEntities = manager.sizeOfEntities();
+			event.commit();
+		}
+		manager.metrics().onTick();
 	}
 
 	public String toString() {
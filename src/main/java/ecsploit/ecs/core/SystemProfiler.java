@@ -0,0 +1,281 @@
+package ecsploit.ecs.core;
+
+import ecsploit.utils.collections.DenseList;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Built-in instrumentation of system updates. Once {@link #setEnabled(boolean) enabled}, every update of an
+ * ExecuteSystem records the nanoseconds spent executing it, the nanoseconds spent cleaning the deferred commands it
+ * recorded, the bytes it allocated on its thread and the number of deferred commands. Samples are kept for the last
+ * {@link #getWindowSize() windowSize} ticks. While disabled, the only cost is a single boolean check per system.
+ * <p>
+ *     Example Usage:
+ *     <pre>
+ *         {@code
+ *         manager.profiler().setEnabled(true);
+ *         ...
+ *         manager.update();
+ *         if (manager.profiler().getLastTickNanos() > FRAME_BUDGET_NANOS) System.out.println(manager.profiler().report());
+ *         }
+ *     </pre>
+ * </p>
+ * <p>
+ *     Note: Systems sharing a level of a parallel SystemGroup are cleaned together, every system of the level is
+ *     given the clean time and deferred commands of the whole level.
+ * </p>
+ */
+public final class SystemProfiler {
+
+    public static final int DEFAULT_WINDOW_SIZE = 120;
+
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN = threadBean();
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (!(threadBean instanceof com.sun.management.ThreadMXBean)) return null;
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+        if (!allocationBean.isThreadAllocatedMemorySupported()) return null;
+        allocationBean.setThreadAllocatedMemoryEnabled(true);
+        return allocationBean;
+    }
+
+    private volatile boolean enabled = false;
+    private final int windowSize = DEFAULT_WINDOW_SIZE;
+
+    private final Map<ExecuteSystem, SystemStats> statsBySystem = new IdentityHashMap<>();
+    private final DenseList<SystemStats> stats = new DenseList<>(16);
+
+    private final long[] tickNanos = new long[DEFAULT_WINDOW_SIZE];
+    private long totalTicks = 0;
+    private int nextTickIndex = 0; //Wrapped separately so that long running managers never overflow the index
+
+    SystemProfiler() {}
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param enabled whether or not system updates are measured
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return number of ticks over which averages and maxima are computed
+     */
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * @return true if the JVM reports the bytes allocated per thread, otherwise allocations are reported as -1
+     */
+    public static boolean isAllocationTrackingSupported() {
+        return THREAD_BEAN != null;
+    }
+
+    /**
+     * @return bytes allocated so far by the current thread or -1 if allocation tracking is not supported
+     */
+    static long currentThreadAllocatedBytes() {
+        return THREAD_BEAN != null ? THREAD_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+    }
+
+    void recordTick(long nanos) {
+        this.tickNanos[nextTickIndex] = nanos;
+        this.nextTickIndex = (nextTickIndex + 1) % windowSize;
+        this.totalTicks++;
+    }
+
+    void record(ExecuteSystem system, long executeNanos, long cleanNanos, long allocatedBytes, int deferredCommands) {
+        SystemStats systemStats = statsBySystem.get(system);
+        if (systemStats == null) {
+            systemStats = new SystemStats(system, windowSize);
+            this.statsBySystem.put(system, systemStats);
+            this.stats.add(systemStats);
+        }
+        systemStats.record(executeNanos, cleanNanos, allocatedBytes, deferredCommands);
+    }
+
+    /**
+     * @return nanoseconds spent in the last {@link Manager#update() update} or 0 if no tick was measured
+     */
+    public long getLastTickNanos() {
+        return totalTicks == 0 ? 0 : tickNanos[(nextTickIndex + windowSize - 1) % windowSize];
+    }
+
+    public long getAverageTickNanos() {
+        return average(tickNanos, (int) Math.min(totalTicks, windowSize));
+    }
+
+    public long getMaxTickNanos() {
+        return max(tickNanos, (int) Math.min(totalTicks, windowSize));
+    }
+
+    /**
+     * @param system registered system
+     * @return measurements of the system or NULL if it has not been updated while the profiler was enabled
+     */
+    public SystemStats getStats(ExecuteSystem system) {
+        return statsBySystem.get(system);
+    }
+
+    /**
+     * @return measurements of every measured system in the order in which they were first updated
+     */
+    public SystemStats[] getAllStats() {
+        SystemStats[] allStats = new SystemStats[stats.size()];
+        for (int i = 0; i < allStats.length; i++) allStats[i] = stats.fastGet(i);
+        return allStats;
+    }
+
+    /**
+     * Forgets every sample.
+     */
+    public void reset() {
+        this.statsBySystem.clear();
+        this.stats.clear();
+        this.totalTicks = 0;
+        this.nextTickIndex = 0;
+    }
+
+    /**
+     * @return table of the average and maximum of every measurement per system over the window, systems which used the
+     * most time first
+     */
+    public String report() {
+        SystemStats[] allStats = this.getAllStats();
+        Arrays.sort(allStats, (a, b) -> Long.compare(b.getAverageExecuteNanos() + b.getAverageCleanNanos(),
+                a.getAverageExecuteNanos() + a.getAverageCleanNanos()));
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("Tick avg=%.3f ms max=%.3f ms over %d ticks%n",
+                getAverageTickNanos() / 1e6, getMaxTickNanos() / 1e6, Math.min(totalTicks, windowSize)));
+        out.append(String.format("%-28s %12s %12s %12s %12s %14s %10s%n",
+                "System", "exec avg us", "exec max us", "clean avg us", "clean max us", "alloc avg B", "cmds avg"));
+        for (SystemStats systemStats: allStats) {
+            out.append(String.format("%-28s %12.1f %12.1f %12.1f %12.1f %14d %10d%n",
+                    systemStats.getSystemName(),
+                    systemStats.getAverageExecuteNanos() / 1e3, systemStats.getMaxExecuteNanos() / 1e3,
+                    systemStats.getAverageCleanNanos() / 1e3, systemStats.getMaxCleanNanos() / 1e3,
+                    systemStats.getAverageAllocatedBytes(), systemStats.getAverageDeferredCommands()));
+        }
+        return out.toString();
+    }
+
+    private static long average(long[] samples, int count) {
+        if (count == 0) return 0;
+        long sum = 0;
+        for (int i = 0; i < count; i++) sum += samples[i];
+        return sum / count;
+    }
+
+    private static long max(long[] samples, int count) {
+        long max = 0;
+        for (int i = 0; i < count; i++) max = Math.max(max, samples[i]);
+        return max;
+    }
+
+    /**
+     * Rolling measurements of a single system over the window of the profiler
+     */
+    public static final class SystemStats {
+
+        private final ExecuteSystem system;
+        private final long[] executeNanos;
+        private final long[] cleanNanos;
+        private final long[] allocatedBytes;
+        private final long[] deferredCommands;
+        private long totalSamples = 0;
+        private int nextIndex = 0;
+
+        SystemStats(ExecuteSystem system, int windowSize) {
+            this.system = system;
+            this.executeNanos = new long[windowSize];
+            this.cleanNanos = new long[windowSize];
+            this.allocatedBytes = new long[windowSize];
+            this.deferredCommands = new long[windowSize];
+        }
+
+        void record(long executeNanos, long cleanNanos, long allocatedBytes, int deferredCommands) {
+            this.executeNanos[nextIndex] = executeNanos;
+            this.cleanNanos[nextIndex] = cleanNanos;
+            this.allocatedBytes[nextIndex] = allocatedBytes;
+            this.deferredCommands[nextIndex] = deferredCommands;
+            this.nextIndex = (nextIndex + 1) % this.executeNanos.length;
+            this.totalSamples++;
+        }
+
+        private int count() {
+            return (int) Math.min(totalSamples, executeNanos.length);
+        }
+
+        private int lastIndex() {
+            return (nextIndex + executeNanos.length - 1) % executeNanos.length;
+        }
+
+        public ExecuteSystem getSystem() {
+            return system;
+        }
+
+        public String getSystemName() {
+            return system instanceof SystemGroup ? system.toString() : system.getClass().getSimpleName();
+        }
+
+        /**
+         * @return number of updates measured, including updates which already left the window
+         */
+        public long getTotalSamples() {
+            return totalSamples;
+        }
+
+        public long getLastExecuteNanos() {
+            return executeNanos[this.lastIndex()];
+        }
+
+        public long getAverageExecuteNanos() {
+            return average(executeNanos, this.count());
+        }
+
+        public long getMaxExecuteNanos() {
+            return max(executeNanos, this.count());
+        }
+
+        public long getLastCleanNanos() {
+            return cleanNanos[this.lastIndex()];
+        }
+
+        public long getAverageCleanNanos() {
+            return average(cleanNanos, this.count());
+        }
+
+        public long getMaxCleanNanos() {
+            return max(cleanNanos, this.count());
+        }
+
+        /**
+         * @return bytes allocated by the last update on the thread which executed it or -1 if allocation tracking is
+         * not supported
+         */
+        public long getLastAllocatedBytes() {
+            return allocatedBytes[this.lastIndex()];
+        }
+
+        public long getAverageAllocatedBytes() {
+            return average(allocatedBytes, this.count());
+        }
+
+        public long getLastDeferredCommands() {
+            return deferredCommands[this.lastIndex()];
+        }
+
+        public long getAverageDeferredCommands() {
+            return average(deferredCommands, this.count());
+        }
+    }
+}
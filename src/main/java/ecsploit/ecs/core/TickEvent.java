@@ -0,0 +1,23 @@
+package ecsploit.ecs.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event spanning a single {@link Manager#update() update} of the manager
+ */
+@Name("ecsploit.Tick")
+@Label("Tick")
+@Category("ECSPloit")
+@Description("Update of every registered system")
+final class TickEvent extends Event {
+
+    @Label("Change Tick")
+    int tick;
+
+    @Label("Active Entities")
+    int activeEntities;
+}
@@ -0,0 +1,270 @@
+package ecsploit.ecs.core;
+
+import ecsploit.utils.collections.BitString;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary snapshot of every entity and component of a manager, written and read through memory mapped files.
+ * <p>
+ *     Layout (little endian):
+ *     <ul>
+ *         <li>Header: magic, version</li>
+ *         <li>Entity table: maxCapacity, number of active entities, generation of every id below maxCapacity and the
+ *         ids of the active entities</li>
+ *         <li>One section per non-empty ComponentType: component class name, size, codec flag, column names and kinds,
+ *         entity ids in dense order, the values of every column and finally the encoded components</li>
+ *     </ul>
+ * </p>
+ * <p>
+ *     Loading first validates the whole file against the component types registered with the manager. It then restores
+ *     the entity table, the dense arrays of every ComponentType and the component bits in bulk without notifying any
+ *     observer and fills every managed category in a single pass over the entities.
+ * </p>
+ */
+final class WorldSnapshot {
+
+    private static final int MAGIC = 0x53534345; //"ECSS" in little endian
+    private static final int VERSION = 1;
+
+    private static final byte INT_COLUMN = 0;
+    private static final byte FLOAT_COLUMN = 1;
+    private static final byte DOUBLE_COLUMN = 2;
+
+    private WorldSnapshot() {}
+
+    private static void checkIdle(ComponentManager componentManager) {
+        if (componentManager.isParallelPass() || componentManager.isDeferred()) {
+            throw new IllegalStateException("Snapshots can't be taken or restored while systems are updating");
+        }
+    }
+
+    /**
+     * See {@link Manager#saveSnapshot(Path) wrapper} for more details.
+     */
+    static void save(Manager manager, Path path) throws IOException {
+        ComponentManager componentManager = manager.getComponentManager();
+        checkIdle(componentManager);
+        for (ComponentType<?> componentType: componentManager.componentTypeMap.getComponentTypes()) {
+            if (componentType.size() > 0 && !componentType.isColumnar() && componentType.getCodec() == null) {
+                throw new IllegalStateException(componentType + " has no codec, its fields would be lost. Register ComponentCodec.fieldless() for tags");
+            }
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            SnapshotCursor cursor = SnapshotCursor.writing(channel);
+            cursor.ensure(2 * Integer.BYTES).putInt(MAGIC).putInt(VERSION);
+
+            EntityManager entityManager = manager.getEntityManager();
+            int maxCapacity = entityManager.getMaxCapacity();
+            int[] activeIDs = new int[entityManager.getEntitiesSize()];
+            int totalActive = 0;
+            for (int entityID = 0; entityID < maxCapacity; entityID++) {
+                if (entityManager.isActive(entityID)) activeIDs[totalActive++] = entityID;
+            }
+            cursor.ensure(2 * Integer.BYTES).putInt(maxCapacity).putInt(totalActive);
+            cursor.putInts(entityManager.getGenerations(), 0, maxCapacity);
+            cursor.putInts(activeIDs, 0, totalActive);
+
+            ComponentType<?>[] componentTypes = componentManager.componentTypeMap.getComponentTypes();
+            int totalTypes = 0;
+            for (ComponentType<?> componentType: componentTypes) {
+                if (componentType.size() > 0) totalTypes++;
+            }
+            cursor.ensure(Integer.BYTES).putInt(totalTypes);
+            for (ComponentType<?> componentType: componentTypes) {
+                if (componentType.size() > 0) saveComponentType(cursor, componentType);
+            }
+            channel.truncate(cursor.position()); //Drops the unused tail of the last mapped window
+        }
+    }
+
+    private static <T extends Component> void saveComponentType(SnapshotCursor cursor, ComponentType<T> componentType) throws IOException {
+        int size = componentType.size();
+        ComponentCodec<T> codec = componentType.isColumnar() ? null : componentType.getCodec();
+        cursor.putString(componentType.getComponentClass().getName());
+        cursor.ensure(Integer.BYTES + 1 + Integer.BYTES).putInt(size).put((byte) (codec != null ? 1 : 0)).putInt(componentType.columns.size());
+        for (int i = 0; i < componentType.columns.size(); i++) {
+            PrimitiveColumn column = componentType.columns.fastGet(i);
+            cursor.putString(column.getName());
+            cursor.ensure(1).put(column instanceof IntColumn ? INT_COLUMN : column instanceof FloatColumn ? FLOAT_COLUMN : DOUBLE_COLUMN);
+        }
+        cursor.putInts(componentType.entities.getInnerList(), 0, size);
+        for (int i = 0; i < componentType.columns.size(); i++) {
+            componentType.columns.fastGet(i).write(cursor, size);
+        }
+        if (codec == null) return;
+        int maxEncodedSize = codec.maxEncodedSize();
+        for (int i = 0; i < size; i++) {
+            codec.encode(componentType.getAt(i), cursor.ensure(maxEncodedSize));
+        }
+    }
+
+    /**
+     * See {@link Manager#loadSnapshot(Path) wrapper} for more details.
+     */
+    static void load(Manager manager, Path path) throws IOException {
+        ComponentManager componentManager = manager.getComponentManager();
+        checkIdle(componentManager);
+        if (manager.sizeOfEntities() != 0) {
+            throw new IllegalStateException("Snapshots can only be loaded into a manager without active entities");
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            SnapshotCursor cursor = SnapshotCursor.reading(channel);
+            ByteBuffer header = cursor.ensure(2 * Integer.BYTES);
+            if (header.getInt() != MAGIC) throw new IOException(path + " is not a world snapshot");
+            int version = header.getInt();
+            if (version != VERSION) throw new IOException("Unsupported snapshot version " + version);
+
+            ByteBuffer entityTable = cursor.ensure(2 * Integer.BYTES);
+            int maxCapacity = entityTable.getInt();
+            int totalActive = entityTable.getInt();
+            if (maxCapacity < 0 || totalActive < 0 || totalActive > maxCapacity) {
+                throw new IOException("Corrupt entity table: maxCapacity=" + maxCapacity + " active=" + totalActive);
+            }
+            int[] generations = new int[maxCapacity];
+            int[] activeIDs = new int[totalActive];
+            cursor.getInts(generations, 0, maxCapacity);
+            cursor.getInts(activeIDs, 0, totalActive);
+            BitString activeBits = new BitString(maxCapacity);
+            for (int i = 0; i < totalActive; i++) {
+                if (activeIDs[i] >= maxCapacity || (i > 0 && activeIDs[i] <= activeIDs[i - 1])) {
+                    throw new IOException("Corrupt entity table: active id=" + activeIDs[i] + " out of order");
+                }
+                activeBits.set(activeIDs[i]);
+            }
+
+            //Every section is validated before the manager is changed, so a failed load leaves it untouched
+            long sectionsPosition = cursor.position();
+            int totalTypes = cursor.ensure(Integer.BYTES).getInt();
+            if (totalTypes < 0) throw new IOException("Corrupt number of component types " + totalTypes);
+            BitString loadedTypes = new BitString();
+            int[] entityIDs = new int[0];
+            for (int i = 0; i < totalTypes; i++) {
+                ComponentType<?> componentType = findComponentType(manager, cursor.getString());
+                if (loadedTypes.get(componentType.getComponentID())) throw new IOException("Snapshot contains " + componentType + " twice");
+                loadedTypes.set(componentType.getComponentID());
+                entityIDs = validateComponentType(cursor, componentType, activeBits, entityIDs);
+            }
+
+            manager.getEntityManager().restoreEntities(maxCapacity, generations, activeIDs, totalActive);
+            cursor = SnapshotCursor.reading(channel);
+            cursor.skip(sectionsPosition + Integer.BYTES);
+            for (int i = 0; i < totalTypes; i++) {
+                ComponentType<?> componentType = findComponentType(manager, cursor.getString());
+                entityIDs = loadComponentType(manager, cursor, componentType, entityIDs);
+            }
+        }
+        componentManager.restoreCategories();
+    }
+
+    /**
+     * Component classes are only resolved against the types registered with the manager, a snapshot never loads or
+     * registers a class by itself.
+     */
+    private static ComponentType<?> findComponentType(Manager manager, String className) throws IOException {
+        for (ComponentType<?> componentType: manager.getComponentManager().componentTypeMap.getComponentTypes()) {
+            if (componentType.getComponentClass().getName().equals(className)) return componentType;
+        }
+        throw new IOException("Snapshot contains component class " + className + " which is not registered with the manager");
+    }
+
+    private static Class<? extends PrimitiveColumn> columnClass(byte kind, String name, ComponentType<?> componentType) throws IOException {
+        switch (kind) {
+            case INT_COLUMN: return IntColumn.class;
+            case FLOAT_COLUMN: return FloatColumn.class;
+            case DOUBLE_COLUMN: return DoubleColumn.class;
+            default: throw new IOException("Unknown kind " + kind + " of column " + name + " in " + componentType);
+        }
+    }
+
+    /**
+     * Reads a section without changing the ComponentType. Encoded components are decoded into a single scratch
+     * instance, which checks the codec against the stored bytes.
+     *
+     * @param entityIDs scratch array which is reused across component types
+     * @return scratch array, grown if needed
+     */
+    private static <T extends Component> int[] validateComponentType(SnapshotCursor cursor, ComponentType<T> componentType, BitString activeBits, int[] entityIDs) throws IOException {
+        if (componentType.size() > 0) throw new IllegalStateException(componentType + " must be empty to load a snapshot");
+        ByteBuffer buffer = cursor.ensure(Integer.BYTES + 1 + Integer.BYTES);
+        int size = buffer.getInt();
+        boolean encoded = buffer.get() != 0;
+        int totalColumns = buffer.getInt();
+        if (size < 0 || totalColumns < 0) throw new IOException("Corrupt section of " + componentType);
+
+        long rowBytes = 0;
+        for (int i = 0; i < totalColumns; i++) {
+            String name = cursor.getString();
+            Class<? extends PrimitiveColumn> columnClass = columnClass(cursor.ensure(1).get(), name, componentType);
+            componentType.findColumn(name, columnClass); //Throws if the column exists with another kind
+            rowBytes += columnClass == DoubleColumn.class ? Double.BYTES : Integer.BYTES;
+        }
+        if (entityIDs.length < size) entityIDs = new int[size];
+        cursor.getInts(entityIDs, 0, size);
+        BitString sectionBits = new BitString();
+        for (int i = 0; i < size; i++) {
+            int entityID = entityIDs[i];
+            if (entityID < 0 || !activeBits.get(entityID) || sectionBits.get(entityID)) {
+                throw new IOException(componentType + " contains inactive or duplicate entity id=" + entityID);
+            }
+            sectionBits.set(entityID);
+        }
+        cursor.skip(rowBytes * size);
+
+        if (encoded) {
+            ComponentCodec<T> codec = componentType.isColumnar() ? null : componentType.getCodec();
+            if (codec == null) throw new IOException(componentType + " was saved with a codec but has none registered");
+            T scratch = componentType.createInstance();
+            int maxEncodedSize = codec.maxEncodedSize();
+            for (int i = 0; i < size; i++) {
+                codec.decode(scratch, cursor.ensure((int) Math.min(maxEncodedSize, cursor.remaining())));
+            }
+        }
+        return entityIDs;
+    }
+
+    /**
+     * Restores a section which has already been {@link #validateComponentType validated}.
+     *
+     * @param entityIDs scratch array which is reused across component types
+     * @return scratch array, grown if needed
+     */
+    private static <T extends Component> int[] loadComponentType(Manager manager, SnapshotCursor cursor, ComponentType<T> componentType, int[] entityIDs) throws IOException {
+        ByteBuffer buffer = cursor.ensure(Integer.BYTES + 1 + Integer.BYTES);
+        int size = buffer.getInt();
+        boolean encoded = buffer.get() != 0;
+        int totalColumns = buffer.getInt();
+
+        PrimitiveColumn[] columns = new PrimitiveColumn[totalColumns];
+        for (int i = 0; i < totalColumns; i++) {
+            String name = cursor.getString();
+            byte kind = cursor.ensure(1).get();
+            switch (kind) {
+                case INT_COLUMN: columns[i] = componentType.intColumn(name); break;
+                case FLOAT_COLUMN: columns[i] = componentType.floatColumn(name); break;
+                default: columns[i] = componentType.doubleColumn(name); break;
+            }
+        }
+        if (entityIDs.length < size) entityIDs = new int[size];
+        cursor.getInts(entityIDs, 0, size);
+        componentType.restoreInternalEntities(entityIDs, size);
+        for (PrimitiveColumn column: columns) {
+            column.read(cursor, 0, size);
+        }
+
+        if (encoded) {
+            ComponentCodec<T> codec = componentType.getCodec();
+            int maxEncodedSize = codec.maxEncodedSize();
+            for (int i = 0; i < size; i++) {
+                codec.decode(componentType.getAt(i), cursor.ensure((int) Math.min(maxEncodedSize, cursor.remaining())));
+            }
+        }
+        manager.getComponentManager().restoreComponentBits(componentType, entityIDs, size);
+        return entityIDs;
+    }
+}
@@ -11,4 +11,19 @@ import ecsploit.ecs.core.Component;
 @Target(ElementType.FIELD)
 public @interface CatTarget {
 	Class<? extends Component>[] value();
+
+	/**
+	 * Components which entities of the injected category must not have
+	 */
+	Class<? extends Component>[] none() default {};
+
+	/**
+	 * Components at least one of which entities of the injected category must have
+	 */
+	Class<? extends Component>[] any() default {};
+
+	/**
+	 * Whether the injected category is only filled with its entities once the system first reads it
+	 */
+	boolean lazy() default false;
 }
@@ -0,0 +1,15 @@
+package ecsploit.ecs.injection;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a {@link TypeTarget} or {@link CatTarget} field whose components are only ever read by the system. Systems of
+ * a parallel SystemGroup which only read the same components may execute concurrently.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface ReadOnly {
+}
@@ -0,0 +1,77 @@
+package ecsploit.main.test;
+
+import ecsploit.ecs.core.*;
+import ecsploit.main.test.TestGameLib.*;
+import ecsploit.utils.debug.Console;
+import ecsploit.utils.debug.SimpleProfiler;
+
+import java.util.Random;
+
+public class ArchetypeStorageTest {
+
+    private static final Console CONSOLE = Console.getConsole(ArchetypeStorageTest.class);
+
+    private static final int N_ENTITIES = 200_000;
+    private static final int N_UPDATES = 100;
+
+    public static void main(String[] args) {
+        Manager manager = new Manager(StorageEngine.ARCHETYPE);
+        Random random = new Random(1);
+
+        ComponentType<Transform> transformType = manager.type(Transform.class);
+        transformType.registerConstructor(Transform::new);
+        ComponentType<Velocity> velocityType = manager.type(Velocity.class);
+        velocityType.registerConstructor(Velocity::new);
+        ComponentType<Sprite> spriteType = manager.type(Sprite.class);
+        spriteType.registerConstructor(Sprite::new);
+
+        for (int i = 0; i < N_ENTITIES; i++) {
+            int entityID = manager.entityID();
+            manager.attachT(entityID, transformType).setPos(i, i);
+            if (random.nextBoolean()) manager.attachT(entityID, velocityType).setVelocity(1, 1);
+            if (random.nextBoolean()) manager.attachT(entityID, spriteType);
+        }
+        for (int i = 0; i < N_ENTITIES; i += 3) {
+            manager.detachT(i, velocityType);
+            if (i % 2 == 0) manager.destroyID(i);
+        }
+
+        Category movingCat = manager.categoryT(transformType, velocityType);
+        ArchetypeQuery movingQuery = manager.query(transformType, velocityType);
+        CONSOLE.info("Category size=" + movingCat.size() + " Query size=" + movingQuery.size());
+
+        int[] mismatches = new int[1];
+        movingQuery.forEachChunk(chunk -> {
+            Transform[] transforms = chunk.column(transformType);
+            for (int row = 0; row < chunk.size(); row++) {
+                int entityID = chunk.entityID(row);
+                if (!movingCat.has(entityID) || transforms[row] != transformType.retrieve(entityID)) mismatches[0]++;
+            }
+        });
+        CONSOLE.info("Mismatched entities: " + mismatches[0]);
+
+        SimpleProfiler profiler = new SimpleProfiler();
+        profiler.start();
+        for (int i = 0; i < N_UPDATES; i++) {
+            movingCat.forEachEntity(eID -> {
+                Transform transform = transformType.retrieve(eID);
+                Velocity velocity = velocityType.retrieve(eID);
+                transform.setPos(transform.getX() + velocity.getVx(), transform.getY() + velocity.getVy());
+            });
+        }
+        CONSOLE.info("Category iteration: " + profiler.stop() + " ms");
+
+        profiler.start();
+        for (int i = 0; i < N_UPDATES; i++) {
+            movingQuery.forEachChunk(chunk -> {
+                Transform[] transforms = chunk.column(transformType);
+                Velocity[] velocities = chunk.column(velocityType);
+                for (int row = 0; row < chunk.size(); row++) {
+                    Transform transform = transforms[row];
+                    transform.setPos(transform.getX() + velocities[row].getVx(), transform.getY() + velocities[row].getVy());
+                }
+            });
+        }
+        CONSOLE.info("Chunk iteration: " + profiler.stop() + " ms");
+    }
+}
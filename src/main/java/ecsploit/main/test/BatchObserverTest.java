@@ -0,0 +1,71 @@
+package ecsploit.main.test;
+
+import ecsploit.ecs.core.*;
+import ecsploit.ecs.injection.TypeTarget;
+import ecsploit.main.test.TestGameLib.*;
+
+public class BatchObserverTest {
+
+    private static final int N = 100_000;
+
+    private static int batchCalls;
+    private static int batchEntities;
+    private static int entityCalls;
+    private static int orderMismatches;
+
+    public static void main(String[] args) {
+        Manager manager = new Manager();
+        ComponentType<Transform> transformType = manager.type(Transform.class);
+        ComponentType<Velocity> velocityType = manager.type(Velocity.class);
+        int first = manager.createEntities(N, transformType);
+
+        velocityType.onComponentAttachBatch((entityIDs, offset, length) -> {
+            batchCalls++;
+            for (int i = 0; i < length; i++) {
+                if (entityIDs[offset + i] != first + batchEntities + i) orderMismatches++;
+            }
+            batchEntities += length;
+        });
+        velocityType.onComponentAttach(entityID -> entityCalls++);
+        manager.system(new AttachVelocitySystem());
+
+        long start = System.nanoTime();
+        manager.update();
+        long updateNanos = System.nanoTime() - start;
+        System.out.println("Batch calls (expected 1): " + batchCalls + " entities (expected " + N + "): " + batchEntities
+                + " out of order (expected 0): " + orderMismatches + " in " + updateNanos / 1000 + " us");
+        System.out.println("Per entity calls (expected " + N + "): " + entityCalls);
+
+        Category movables = manager.categoryT(transformType, velocityType);
+        int[] removedFromCategory = new int[2];
+        FilteredCategory evenMovables = movables.filter(entityID -> entityID % 2 == 0);
+        velocityType.onComponentDetachBatch((entityIDs, offset, length) -> {
+            removedFromCategory[0]++;
+            removedFromCategory[1] += length;
+        });
+        manager.destroyAll(movables);
+        System.out.println("Detach batch calls (expected 1): " + removedFromCategory[0] + " entities (expected " + N + "): "
+                + removedFromCategory[1]);
+        System.out.println("Filtered category emptied (expected 0): " + evenMovables.size()
+                + " entities (expected 0): " + manager.sizeOfEntities());
+    }
+
+    public static final class AttachVelocitySystem extends ExecuteSystem {
+
+        @TypeTarget(Transform.class) protected ComponentType<Transform> transformType;
+        @TypeTarget(Velocity.class) protected ComponentType<Velocity> velocityType;
+
+        private Manager manager;
+
+        public void init(Manager manager) {
+            this.manager = manager;
+        }
+
+        protected void execute() {
+            if (velocityType.size() > 0) return;
+            for (int i = 0; i < transformType.size(); i++) {
+                manager.attachT(transformType.entityAt(i), velocityType);
+            }
+        }
+    }
+}
@@ -38,6 +38,30 @@ public class BitStringTest {
 			System.out.println(c + "::" + c.indexOfLSB());
 			c.clear(index);
 		}
+
+		System.out.println("---------");
+
+		BitString d = new BitString();
+		d.set(3);
+		d.set(64);
+		d.set(130);
+		d.set(200);
+		StringBuilder setBits = new StringBuilder();
+		d.forEachSetBit(index -> setBits.append(index).append(" "));
+		System.out.println("Set bits (expected 3 64 130 200): " + setBits);
+		System.out.println("Next set bit after 65 (expected 130): " + d.nextSetBit(65));
+		System.out.println("Cardinality (expected 4): " + d.cardinality());
+
+		BitString e = new BitString();
+		e.set(64);
+		e.set(200);
+		System.out.println("d includes e (expected true): " + d.includes(e));
+		e.set(201);
+		System.out.println("d includes e (expected false): " + d.includes(e));
+		e.clear(201);
+		e.set(3);
+		e.set(130);
+		System.out.println("d equals e (expected true): " + d.equals(e) + " same hash: " + (d.hashCode() == e.hashCode()));
 	}
 
 }
@@ -0,0 +1,64 @@
+package ecsploit.main.test;
+
+import ecsploit.ecs.core.Category;
+import ecsploit.ecs.core.ComponentType;
+import ecsploit.ecs.core.Manager;
+import ecsploit.main.test.TestGameLib.*;
+import ecsploit.utils.debug.Console;
+import ecsploit.utils.debug.SimpleProfiler;
+
+public class BulkCreationTest {
+
+    private static final Console CONSOLE = Console.getConsole(BulkCreationTest.class);
+
+    private static final int N = 50_000;
+
+    public static void main(String[] args) {
+        for (int n = 0; n < 20; n++) { //Warm up
+            spawnOneByOne(new Manager());
+            spawnBulk(new Manager());
+        }
+
+        SimpleProfiler profiler = new SimpleProfiler();
+        profiler.start();
+        for (int n = 0; n < 10; n++) spawnOneByOne(new Manager());
+        CONSOLE.info("One by one (10 waves): " + profiler.stop() + " ms");
+
+        profiler.start();
+        for (int n = 0; n < 10; n++) spawnBulk(new Manager());
+        CONSOLE.info("Bulk (10 waves): " + profiler.stop() + " ms");
+
+        Manager manager = new Manager();
+        Category movables = manager.category(Transform.class, Velocity.class);
+        Category sprites = manager.category(Sprite.class);
+        int[] attachCount = new int[1];
+        int[] missingFromCategory = new int[1];
+        manager.type(Velocity.class).onComponentAttach(entityID -> {
+            attachCount[0]++;
+            if (!movables.has(entityID)) missingFromCategory[0]++;
+        });
+        manager.destroyID(manager.entityID()); //Recycled ids are not reused by bulk creation
+        int firstID = spawnBulk(manager);
+        CONSOLE.info("First id (expected 1): " + firstID);
+        CONSOLE.info("Movables (expected " + N + "): " + movables.size() + " sprites (expected 0): " + sprites.size());
+        CONSOLE.info("Attach observers notified (expected " + N + "): " + attachCount[0]);
+        CONSOLE.info("Notified before joining the category (expected 0): " + missingFromCategory[0]);
+        CONSOLE.info("Last entity has velocity (expected true): " + manager.type(Velocity.class).has(firstID + N - 1));
+    }
+
+    private static void spawnOneByOne(Manager manager) {
+        ComponentType<Transform> transformType = manager.type(Transform.class);
+        ComponentType<Velocity> velocityType = manager.type(Velocity.class);
+        manager.category(Transform.class, Velocity.class);
+        for (int i = 0; i < N; i++) {
+            int entityID = manager.entityID();
+            manager.attachT(entityID, transformType);
+            manager.attachT(entityID, velocityType);
+        }
+    }
+
+    private static int spawnBulk(Manager manager) {
+        manager.category(Transform.class, Velocity.class);
+        return manager.createEntities(N, manager.type(Transform.class), manager.type(Velocity.class));
+    }
+}
@@ -0,0 +1,51 @@
+package ecsploit.main.test;
+
+import ecsploit.ecs.core.Category;
+import ecsploit.ecs.core.ComponentType;
+import ecsploit.ecs.core.Manager;
+import ecsploit.main.test.TestGameLib.*;
+import ecsploit.utils.debug.Console;
+import ecsploit.utils.debug.SimpleProfiler;
+
+public class BulkDestroyTest {
+
+    private static final Console CONSOLE = Console.getConsole(BulkDestroyTest.class);
+
+    private static final int N = 200_000;
+
+    public static void main(String[] args) {
+        Manager manager = new Manager();
+        ComponentType<Transform> transformType = manager.type(Transform.class);
+        ComponentType<Velocity> velocityType = manager.type(Velocity.class);
+        ComponentType<Sprite> spriteType = manager.type(Sprite.class);
+        Category movables = manager.categoryT(transformType, velocityType);
+        Category renderables = manager.categoryT(transformType, spriteType);
+
+        int[] velocityDetaches = new int[1];
+        velocityType.onComponentDetach(entityID -> velocityDetaches[0]++);
+
+        SimpleProfiler profiler = new SimpleProfiler();
+        long oneByOneTime = 0;
+        long destroyAllTime = 0;
+        for (int n = 0; n < 20; n++) {
+            manager.createEntities(N, transformType, velocityType, spriteType);
+            profiler.start();
+            for (int entityID: movables.getEntityIDs()) manager.destroyID(entityID);
+            oneByOneTime += profiler.stop();
+
+            manager.createEntities(N, transformType, velocityType, spriteType);
+            profiler.start();
+            manager.destroyAll(movables);
+            destroyAllTime += profiler.stop();
+        }
+        CONSOLE.info("Destroy one by one: " + oneByOneTime + " ms");
+        CONSOLE.info("Destroy all: " + destroyAllTime + " ms");
+        CONSOLE.info("Active entities (expected 0): " + manager.sizeOfEntities() + " renderables (expected 0): " + renderables.size());
+        CONSOLE.info("Velocity detaches (expected " + (40 * N) + "): " + velocityDetaches[0]);
+
+        int firstID = manager.createEntities(N, transformType, velocityType, spriteType);
+        manager.detachAll(movables, velocityType);
+        CONSOLE.info("Movables after detachAll (expected 0): " + movables.size() + " renderables (expected " + N + "): " + renderables.size());
+        CONSOLE.info("Transform kept (expected true): " + transformType.has(firstID));
+    }
+}
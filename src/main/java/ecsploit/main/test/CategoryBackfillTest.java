@@ -0,0 +1,91 @@
+package ecsploit.main.test;
+
+import ecsploit.ecs.core.*;
+import ecsploit.ecs.injection.CatTarget;
+import ecsploit.ecs.injection.TypeTarget;
+import ecsploit.main.test.TestGameLib.*;
+
+public class CategoryBackfillTest {
+
+    private static final int N = 2_000_000;
+    private static final int RARE = 100;
+
+    public static void main(String[] args) {
+        Manager manager = new Manager();
+        ComponentType<Transform> transformType = manager.type(Transform.class);
+        ComponentType<Velocity> velocityType = manager.type(Velocity.class);
+        ComponentType<Sprite> spriteType = manager.type(Sprite.class);
+        manager.createEntities(N / 2, transformType);
+        int firstMoving = manager.createEntities(N / 2, transformType, velocityType);
+        for (int i = 0; i < RARE; i++) manager.attachT(firstMoving + i * 7, spriteType);
+
+        manager.categoryT(velocityType); //Warm up category creation
+        long start = System.nanoTime();
+        Category rare = manager.categoryT(transformType, spriteType);
+        long rareNanos = System.nanoTime() - start;
+        System.out.println("Rare category (expected " + RARE + "): " + rare.size() + " in " + rareNanos / 1000 + " us");
+
+        start = System.nanoTime();
+        Category moving = manager.categoryT(transformType, velocityType); //Seeded from Velocity by the worker pool
+        long movingNanos = System.nanoTime() - start;
+        int mismatches = 0;
+        for (int entityID = 0; entityID < N; entityID++) {
+            if (moving.has(entityID) != (transformType.has(entityID) && velocityType.has(entityID))) mismatches++;
+        }
+        System.out.println("Moving category (expected " + N / 2 + "): " + moving.size() + " mismatches (expected 0): "
+                + mismatches + " in " + movingNanos / 1000 + " us");
+
+        Category anyCategory = manager.filter().anyT(spriteType, velocityType).category();
+        System.out.println("Any category (expected " + N / 2 + "): " + anyCategory.size());
+
+        int categoriesBefore = manager.metrics().snapshot().getCategories().size();
+        LateSystem lateSystem = new LateSystem();
+        manager.system(lateSystem);
+        System.out.println("Lazy category indexed on registration (expected false): "
+                + (manager.metrics().snapshot().getCategories().size() > categoriesBefore));
+        manager.attachT(firstMoving + 1, spriteType);
+        manager.update();
+        System.out.println("Lazy category seen by the system (expected " + (RARE + 1) + "): " + lateSystem.seen
+                + " indexed (expected true): " + (manager.metrics().snapshot().getCategories().size() > categoriesBefore));
+        manager.detachT(firstMoving + 1, spriteType);
+        manager.update();
+        System.out.println("Lazy category follows detaches (expected " + RARE + "): " + lateSystem.seen);
+
+        DeferredSystem deferredSystem = new DeferredSystem();
+        manager.system(deferredSystem);
+        manager.update();
+        System.out.println("Category created after a deferred detach (expected " + RARE + "): " + deferredSystem.sizeDuringUpdate
+                + " after clean (expected " + (RARE - 1) + "): " + deferredSystem.category.size());
+    }
+
+    public static final class LateSystem extends ExecuteSystem {
+
+        @CatTarget(value = {Velocity.class, Sprite.class}, lazy = true) protected Category spriteCat;
+
+        int seen;
+
+        protected void execute() {
+            this.seen = spriteCat.size();
+        }
+    }
+
+    public static final class DeferredSystem extends ExecuteSystem {
+
+        @TypeTarget(Sprite.class) protected ComponentType<Sprite> spriteType;
+
+        private Manager manager;
+        Category category;
+        int sizeDuringUpdate;
+
+        public void init(Manager manager) {
+            this.manager = manager;
+        }
+
+        protected void execute() {
+            if (category != null) return;
+            manager.detachT(spriteType.entityAt(0), spriteType);
+            this.category = manager.category(Sprite.class, Transform.class, Velocity.class);
+            this.sizeDuringUpdate = category.size();
+        }
+    }
+}
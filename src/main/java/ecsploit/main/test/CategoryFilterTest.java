@@ -0,0 +1,66 @@
+package ecsploit.main.test;
+
+import ecsploit.ecs.core.*;
+import ecsploit.ecs.injection.CatTarget;
+import ecsploit.main.test.TestGameLib.*;
+
+public class CategoryFilterTest {
+
+    public static final class Sleeping extends Component {}
+
+    public static void main(String[] args) {
+        Manager manager = new Manager();
+        ComponentType<Transform> transformType = manager.type(Transform.class);
+        ComponentType<Velocity> velocityType = manager.type(Velocity.class);
+        ComponentType<Sprite> spriteType = manager.type(Sprite.class);
+        ComponentType<Sleeping> sleepingType = manager.type(Sleeping.class);
+
+        Category awake = manager.filter().allT(transformType).noneT(sleepingType).category();
+        Category visibleOrMoving = manager.filter().allT(transformType).anyT(spriteType, velocityType).category();
+        System.out.println("Same filter shares category (expected true): "
+                + (awake == manager.filter().all(Transform.class).none(Sleeping.class).category()));
+
+        int first = manager.createEntities(10, transformType, velocityType);
+        manager.createEntities(10, transformType, sleepingType);
+        System.out.println("Awake (expected 10): " + awake.size() + " visibleOrMoving (expected 10): " + visibleOrMoving.size());
+
+        manager.attachT(first, sleepingType);
+        manager.detachT(first + 1, velocityType);
+        System.out.println("Awake after sleeping (expected 9): " + awake.size() + " visibleOrMoving (expected 9): " + visibleOrMoving.size());
+        manager.detachT(first, sleepingType);
+        manager.attachT(first + 1, spriteType);
+        System.out.println("Awake after waking (expected 10): " + awake.size() + " visibleOrMoving (expected 10): " + visibleOrMoving.size());
+
+        Category sleepers = manager.categoryT(sleepingType);
+        manager.detachAll(sleepers, sleepingType);
+        System.out.println("Awake after waking everyone (expected 20): " + awake.size());
+
+        manager.destroyAll(awake);
+        System.out.println("Awake after destroyAll (expected 0): " + awake.size() + " entities (expected 0): " + manager.sizeOfEntities());
+
+        WakeSystem wakeSystem = new WakeSystem();
+        manager.system(wakeSystem);
+        manager.createEntities(5, transformType, sleepingType);
+        manager.update();
+        System.out.println("Injected sleepers woken by system (expected 5): " + wakeSystem.woken + " awake (expected 5): " + awake.size());
+    }
+
+    public static final class WakeSystem extends ExecuteSystem {
+
+        @CatTarget(value = Transform.class, any = Sleeping.class) protected Category sleepingCat;
+
+        private Manager manager;
+        int woken = 0;
+
+        public void init(Manager manager) {
+            this.manager = manager;
+        }
+
+        protected void execute() {
+            sleepingCat.forEachEntity(eID -> {
+                manager.detach(eID, Sleeping.class);
+                woken++;
+            });
+        }
+    }
+}
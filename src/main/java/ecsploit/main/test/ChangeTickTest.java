@@ -0,0 +1,76 @@
+package ecsploit.main.test;
+
+import ecsploit.ecs.core.*;
+import ecsploit.ecs.injection.ExecuteAfter;
+import ecsploit.ecs.injection.TypeTarget;
+import ecsploit.main.test.TestGameLib.*;
+
+public class ChangeTickTest {
+
+    private static final int N = 1000;
+
+    public static void main(String[] args) {
+        Manager manager = new Manager();
+        ComponentType<Transform> transformType = manager.type(Transform.class);
+        int firstID = manager.createEntities(N, transformType);
+
+        MoveEvenSystem moveSystem = new MoveEvenSystem();
+        RenderSystem renderSystem = new RenderSystem();
+        NetworkSystem networkSystem = new NetworkSystem();
+        manager.system(moveSystem);
+        manager.system(renderSystem);
+        manager.system(networkSystem);
+
+        manager.update();
+        System.out.println("First update sees every attach (expected " + N + "): " + renderSystem.changed + " " + networkSystem.changed);
+
+        manager.update();
+        System.out.println("Second update sees moved entities (expected " + (N / 2) + "): " + renderSystem.changed + " " + networkSystem.changed);
+
+        transformType.markChanged(firstID + 1);
+        manager.update();
+        System.out.println("Change outside of systems is seen (expected " + (N / 2 + 1) + "): " + renderSystem.changed + " " + networkSystem.changed);
+        System.out.println("Changed since the last tick (expected false): " + transformType.changedSince(firstID, manager.getTick()));
+    }
+
+    public static final class MoveEvenSystem extends ExecuteSystem {
+
+        @TypeTarget(Transform.class) protected ComponentType<Transform> transformType;
+
+        protected void execute() {
+            for (int i = 0; i < transformType.size(); i++) {
+                int entityID = transformType.entityAt(i);
+                if (entityID % 2 != 0) continue;
+                Transform transform = transformType.getAt(i);
+                transform.setPos(transform.getX() + 1, transform.getY());
+                transformType.markChangedAt(i);
+            }
+        }
+    }
+
+    @ExecuteAfter(MoveEvenSystem.class)
+    public static final class RenderSystem extends ExecuteSystem {
+
+        @TypeTarget(Transform.class) protected ComponentType<Transform> transformType;
+
+        int changed;
+
+        protected void execute() {
+            this.changed = 0;
+            transformType.forEachChangedSince(this.lastRunTick(), eID -> changed++);
+        }
+    }
+
+    @ExecuteAfter(MoveEvenSystem.class)
+    public static final class NetworkSystem extends ExecuteSystem {
+
+        @TypeTarget(Transform.class) protected ComponentType<Transform> transformType;
+
+        int changed;
+
+        protected void execute() {
+            this.changed = 0;
+            transformType.forEachChangedSince(this.lastRunTick(), eID -> changed++);
+        }
+    }
+}
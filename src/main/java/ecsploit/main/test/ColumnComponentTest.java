@@ -0,0 +1,40 @@
+package ecsploit.main.test;
+
+import ecsploit.ecs.core.Category;
+import ecsploit.ecs.core.ColumnComponent;
+import ecsploit.ecs.core.ComponentType;
+import ecsploit.ecs.core.FloatColumn;
+import ecsploit.ecs.core.Manager;
+
+public class ColumnComponentTest {
+
+    public static class Body extends ColumnComponent {}
+
+    public static void main(String[] args) {
+        Manager manager = new Manager();
+        ComponentType<Body> bodyType = manager.type(Body.class);
+        FloatColumn x = bodyType.floatColumn("x");
+        FloatColumn vx = bodyType.floatColumn("vx");
+
+        for (int i = 0; i < 8; i++) {
+            int entityID = manager.entity().getID();
+            manager.attachT(entityID, bodyType);
+            x.set(entityID, i);
+            vx.set(entityID, 0.5f * i);
+        }
+
+        //Detaching fills the gap with the last entity, columns must follow
+        manager.detachT(3, bodyType);
+        System.out.println("Entity 3 still attached (expected false): " + bodyType.has(3));
+
+        float[] xs = x.array();
+        float[] vxs = vx.array();
+        for (int i = 0; i < bodyType.size(); i++) xs[i] += vxs[i];
+
+        Category bodies = manager.categoryT(bodyType);
+        StringBuilder out = new StringBuilder();
+        bodies.forEachEntity(entityID -> out.append(entityID).append(':').append(x.get(entityID)).append(' '));
+        System.out.println("Positions (expected id * 1.5): " + out);
+        System.out.println("Same column by name (expected true): " + (bodyType.floatColumn("x") == x));
+    }
+}
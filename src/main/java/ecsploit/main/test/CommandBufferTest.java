@@ -0,0 +1,101 @@
+package ecsploit.main.test;
+
+import ecsploit.ecs.core.*;
+import ecsploit.ecs.injection.CatTarget;
+import ecsploit.ecs.injection.TypeTarget;
+import ecsploit.main.test.TestGameLib.*;
+
+public class CommandBufferTest {
+
+    private static final int N = 100_000;
+
+    public static void main(String[] args) {
+        Manager manager = new Manager();
+        manager.reserveDeferredCommands(2 * N);
+        manager.createEntities(N, manager.type(Transform.class), manager.type(Velocity.class));
+
+        ExpireSystem expireSystem = new ExpireSystem();
+        manager.system(expireSystem);
+
+        manager.update(); //Detaches every velocity and destroys every other entity
+        Category movables = manager.category(Transform.class, Velocity.class);
+        System.out.println("Movables after expiring (expected 0): " + movables.size());
+        System.out.println("Alive after expiring (expected " + (N / 2) + "): " + manager.sizeOfEntities());
+        System.out.println("Destroyed entity stayed active during the update (expected true): " + expireSystem.activeAfterDestroy);
+
+        CommandBuffer commands = new CommandBuffer();
+        commands.reserve(3);
+        int spawned = commands.create();
+        commands.attach(spawned, manager.type(Transform.class));
+        commands.attach(spawned, manager.type(Velocity.class));
+        manager.submit(commands);
+        int spawnedID = commands.resolve(spawned);
+        System.out.println("Spawned entity is movable (expected true): " + manager.has(manager.get(spawnedID), manager.type(Velocity.class)));
+        System.out.println("Movables after submit (expected 1): " + movables.size());
+
+        commands.clear();
+        commands.destroy(spawnedID);
+        manager.submit(commands);
+        System.out.println("Movables after destroy (expected 0): " + movables.size());
+
+        Manager toggled = new Manager();
+        ComponentType<Transform> transformType = toggled.type(Transform.class);
+        ComponentType<Sprite> spriteType = toggled.type(Sprite.class);
+        int entityID = toggled.createEntities(1, transformType);
+        int[] notifications = new int[4]; //Sprite attaches and detaches, transform attaches and detaches
+        spriteType.onComponentAttach(eID -> notifications[0]++);
+        spriteType.onComponentDetach(eID -> notifications[1]++);
+        transformType.onComponentAttach(eID -> notifications[2]++);
+        transformType.onComponentDetach(eID -> notifications[3]++);
+        toggled.system(new ToggleSystem(entityID));
+        toggled.update();
+        System.out.println("Attach then detach notifications (expected 0 0): " + notifications[0] + " " + notifications[1]
+                + " renderables (expected 0): " + toggled.category(Sprite.class).size());
+        System.out.println("Detach then attach notifications (expected 0 0): " + notifications[2] + " " + notifications[3]
+                + " transforms (expected 1): " + toggled.category(Transform.class).size());
+    }
+
+    public static final class ToggleSystem extends ExecuteSystem {
+
+        private final int entityID;
+        private Manager manager;
+
+        ToggleSystem(int entityID) {
+            this.entityID = entityID;
+        }
+
+        public void init(Manager manager) {
+            this.manager = manager;
+        }
+
+        protected void execute() {
+            manager.attachT(entityID, manager.type(Sprite.class));
+            manager.detachT(entityID, manager.type(Sprite.class));
+            manager.detachT(entityID, manager.type(Transform.class));
+            manager.attachT(entityID, manager.type(Transform.class));
+        }
+    }
+
+    public static final class ExpireSystem extends ExecuteSystem {
+
+        @TypeTarget(Velocity.class) protected ComponentType<Velocity> velocityType;
+        @CatTarget({Transform.class, Velocity.class}) protected Category movingCat;
+
+        private Manager manager;
+        boolean activeAfterDestroy = false;
+
+        public void init(Manager manager) {
+            this.manager = manager;
+        }
+
+        protected void execute() {
+            movingCat.forEachEntity(eID -> {
+                manager.detachT(eID, velocityType);
+                if (eID % 2 == 0) {
+                    manager.destroyID(eID);
+                    this.activeAfterDestroy |= manager.get(eID) != null;
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package ecsploit.main.test;
+
+import ecsploit.ecs.core.Component;
+import ecsploit.ecs.core.ComponentType;
+import ecsploit.ecs.core.Manager;
+import ecsploit.utils.debug.Console;
+import ecsploit.utils.debug.SimpleProfiler;
+
+public class ComponentPoolTest {
+
+    private static final Console CONSOLE = Console.getConsole(ComponentPoolTest.class);
+
+    private static final int N = 100_000;
+
+    public static final class Particle extends Component {
+        int life;
+    }
+
+    public static void main(String[] args) {
+        Manager manager = new Manager();
+        ComponentType<Particle> particleType = manager.type(Particle.class);
+        particleType.setPoolCapacity(N);
+        particleType.registerResetHook(particle -> particle.life = 0);
+
+        int[] entityIDs = new int[N];
+        for (int i = 0; i < N; i++) entityIDs[i] = manager.entity().getID();
+
+        SimpleProfiler profiler = new SimpleProfiler();
+        for (int pass = 0; pass < 20; pass++) {
+            profiler.start();
+            for (int entityID: entityIDs) manager.attachT(entityID, particleType).life = pass + 1;
+            manager.detachAll(particleType, particleType);
+            if (pass == 19) CONSOLE.info("Attach/detach pass: " + profiler.stop() + " ms");
+        }
+        CONSOLE.info("Hits=" + particleType.getPoolHits() + " misses (expected " + N + ")=" + particleType.getPoolMisses());
+
+        Particle recycled = manager.attachT(entityIDs[0], particleType);
+        CONSOLE.info("Recycled instance reset (expected 0): " + recycled.life);
+
+        Particle detached = manager.detachT(entityIDs[0], particleType);
+        Particle attached = manager.attachT(entityIDs[0], particleType);
+        CONSOLE.info("Detached instance handed out again (expected false): " + (detached == attached));
+        Particle replaced = manager.attachT(entityIDs[0], particleType); //Attaching again replaces the instance
+        Particle other = manager.attachT(entityIDs[1], particleType);
+        CONSOLE.info("Replaced instance handed out again (expected false): " + (attached == replaced || attached == other));
+
+        for (int i = 2; i < N; i++) manager.attachT(entityIDs[i], particleType);
+        for (int i = 0; i < N; i++) manager.destroyID(entityIDs[i]);
+        CONSOLE.info("Pooled after destroying entities (expected " + N + "): " + particleType.getPoolSize());
+
+        particleType.setPoolCapacity(10);
+        CONSOLE.info("Pooled after shrinking (expected 10): " + particleType.getPoolSize());
+    }
+}
@@ -0,0 +1,106 @@
+package ecsploit.main.test;
+
+import ecsploit.ecs.core.*;
+import ecsploit.main.test.TestGameLib.*;
+import ecsploit.utils.debug.Console;
+
+import java.nio.ByteBuffer;
+
+public class DeltaReplicationTest {
+
+    private static final Console CONSOLE = Console.getConsole(DeltaReplicationTest.class);
+
+    private static final int N = 10_000;
+
+    public static class Health extends ColumnComponent {}
+
+    private static final ComponentCodec<Transform> TRANSFORM_CODEC = new ComponentCodec<>() {
+        public int maxEncodedSize() {
+            return 2 * Integer.BYTES;
+        }
+
+        public void encode(Transform transform, ByteBuffer out) {
+            out.putInt(transform.getX()).putInt(transform.getY());
+        }
+
+        public void decode(Transform transform, ByteBuffer in) {
+            transform.setPos(in.getInt(), in.getInt());
+        }
+    };
+
+    public static void main(String[] args) {
+        Manager server = new Manager();
+        ComponentType<Transform> transformType = server.type(Transform.class);
+        ComponentType<Velocity> velocityType = server.type(Velocity.class);
+        ComponentType<Health> healthType = server.type(Health.class);
+        transformType.registerCodec(TRANSFORM_CODEC);
+        IntColumn hp = healthType.intColumn("hp");
+
+        Manager client = new Manager();
+        ComponentType<Transform> clientTransformType = client.type(Transform.class);
+        ComponentType<Velocity> clientVelocityType = client.type(Velocity.class);
+        ComponentType<Health> clientHealthType = client.type(Health.class);
+        clientTransformType.registerCodec(TRANSFORM_CODEC);
+        IntColumn clientHp = clientHealthType.intColumn("hp");
+        client.entityID(); //Client ids are offset from the server ids
+
+        DeltaEncoder encoder = new DeltaEncoder(server, transformType, velocityType, healthType);
+        DeltaDecoder decoder = new DeltaDecoder(client, clientTransformType, clientVelocityType, clientHealthType);
+
+        int firstID = server.createEntities(N, transformType, velocityType, healthType);
+        for (int id = firstID; id < firstID + N; id++) {
+            transformType.retrieve(id).setPos(id, 0);
+            hp.set(id, 100);
+        }
+        ByteBuffer delta = encoder.encode();
+        int fullSize = delta.remaining();
+        decoder.apply(delta);
+        CONSOLE.info("Full state: " + fullSize + " bytes, mismatches (expected 0): " + mismatches(server, client, decoder, hp, clientHp));
+
+        for (int tick = 0; tick < 5; tick++) {
+            for (int id = firstID + tick; id < firstID + N; id += 100) { //1% of the entities move
+                transformType.retrieve(id).setPos(id, tick + 1);
+                transformType.markChanged(id);
+            }
+            server.destroyID(firstID + 500 + tick);
+            server.detachT(firstID + 600 + tick, velocityType);
+            int spawned = server.entityID(); //Reuses the destroyed id with a new generation
+            server.attachT(spawned, transformType).setPos(-1, -1);
+            hp.set(firstID + 700 + tick, 50);
+            healthType.markChanged(firstID + 700 + tick);
+            server.update();
+
+            delta = encoder.encode();
+            int deltaSize = delta.remaining();
+            decoder.apply(delta);
+            CONSOLE.info("Delta " + tick + ": " + deltaSize + " bytes, mismatches (expected 0): " + mismatches(server, client, decoder, hp, clientHp));
+        }
+        CONSOLE.info("Empty delta size (expected 5): " + encoder.encode().remaining());
+
+        encoder.reset();
+        decoder.apply(encoder.encode());
+        CONSOLE.info("After resync entities (expected " + server.sizeOfEntities() + "): " + (client.sizeOfEntities() - 1)
+                + " mismatches (expected 0): " + mismatches(server, client, decoder, hp, clientHp));
+    }
+
+    private static int mismatches(Manager server, Manager client, DeltaDecoder decoder, IntColumn hp, IntColumn clientHp) {
+        ComponentType<Transform> transformType = server.type(Transform.class);
+        ComponentType<Velocity> velocityType = server.type(Velocity.class);
+        ComponentType<Health> healthType = server.type(Health.class);
+        ComponentType<Transform> clientTransformType = client.type(Transform.class);
+        int[] mismatches = {server.sizeOfEntities() == client.sizeOfEntities() - 1 ? 0 : 1};
+        server.categoryT(transformType).forEachEntity(id -> {
+            int localID = decoder.resolve(id);
+            if (localID == -1 || !clientTransformType.has(localID)) {
+                mismatches[0]++;
+                return;
+            }
+            Transform transform = transformType.retrieve(id);
+            Transform localTransform = clientTransformType.retrieve(localID);
+            if (transform.getX() != localTransform.getX() || transform.getY() != localTransform.getY()) mismatches[0]++;
+            if (velocityType.has(id) != client.type(Velocity.class).has(localID)) mismatches[0]++;
+            if (healthType.has(id) && hp.get(id) != clientHp.get(localID)) mismatches[0]++;
+        });
+        return mismatches[0];
+    }
+}
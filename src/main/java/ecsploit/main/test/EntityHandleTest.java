@@ -0,0 +1,26 @@
+package ecsploit.main.test;
+
+import ecsploit.ecs.core.Entity;
+import ecsploit.ecs.core.EntityHandle;
+import ecsploit.ecs.core.Manager;
+
+public class EntityHandleTest {
+
+    public static void main(String[] args) {
+        Manager manager = new Manager();
+
+        Entity target = manager.entity();
+        long targetHandle = target.getHandle();
+        System.out.println(EntityHandle.toString(targetHandle) + " alive=" + manager.isAlive(targetHandle));
+
+        manager.destroy(target);
+        Entity recycled = manager.entity(); //Recycles the id of the target immediately
+        System.out.println("Recycled id=" + recycled.getID() + " same object=" + (recycled == target));
+        System.out.println("Old handle alive (expected false): " + manager.isAlive(targetHandle));
+        System.out.println("Old handle resolve (expected -1): " + manager.resolve(targetHandle));
+        System.out.println("Stale entity alive (expected false): " + target.isAlive());
+        System.out.println("New handle alive (expected true): " + manager.isAlive(recycled.getHandle()));
+        System.out.println("Destroy by stale handle (expected false): " + manager.destroyHandle(targetHandle));
+        System.out.println("Null handle alive (expected false): " + manager.isAlive(EntityHandle.NULL));
+    }
+}
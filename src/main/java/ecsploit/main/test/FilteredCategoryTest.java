@@ -0,0 +1,65 @@
+package ecsploit.main.test;
+
+import ecsploit.ecs.core.*;
+import ecsploit.main.test.TestGameLib.*;
+
+import java.util.function.IntPredicate;
+
+public class FilteredCategoryTest {
+
+    private static final int N = 1000;
+
+    public static void main(String[] args) {
+        Manager manager = new Manager();
+        ComponentType<Transform> transformType = manager.type(Transform.class);
+        int first = manager.createEntities(N, transformType);
+        boolean[] flagged = new boolean[N];
+        for (int i = 0; i < N; i += 2) flagged[i] = true;
+
+        IntPredicate isFlagged = entityID -> flagged[entityID - first];
+        FilteredCategory flaggedCat = transformType.filter(isFlagged);
+        FilteredCategory sharedCat = transformType.filter(isFlagged);
+        System.out.println("Same predicate shares category (expected true): " + (flaggedCat == sharedCat)
+                + " references (expected 2): " + flaggedCat.getReferenceCount());
+        System.out.println("Flagged (expected " + N / 2 + "): " + flaggedCat.size()
+                + " change observers (expected 1): " + transformType.changeStream().getObserverCount());
+
+        IntPredicate isLow = entityID -> entityID - first < 10;
+        FilteredCategory flaggedLowCat = flaggedCat.filter(isLow);
+        System.out.println("Flagged and low (expected 5): " + flaggedLowCat.size());
+
+        //Changes of entities which still pass must not remove them
+        transformType.notifyChangeObservers(first);
+        System.out.println("Flagged after change of a passing entity (expected " + N / 2 + "): " + flaggedCat.size()
+                + " has (expected true): " + flaggedCat.has(first));
+
+        flagged[1] = true;
+        flagged[0] = false;
+        transformType.notifyChangeObservers(first + 1);
+        transformType.notifyChangeObservers(first);
+        System.out.println("Flagged after re-evaluation (expected " + N / 2 + "): " + flaggedCat.size()
+                + " has 1 (expected true): " + flaggedCat.has(first + 1) + " has 0 (expected false): " + flaggedCat.has(first));
+        System.out.println("Nested category follows (expected 5): " + flaggedLowCat.size()
+                + " has 1 (expected true): " + flaggedLowCat.has(first + 1));
+
+        manager.destroyID(first + 1);
+        System.out.println("Flagged after destroy (expected " + (N / 2 - 1) + "): " + flaggedCat.size());
+
+        flaggedCat.dispose();
+        System.out.println("Still connected after one dispose (expected 1): " + transformType.changeStream().getObserverCount());
+        sharedCat.dispose();
+        System.out.println("Disposed (expected true): " + flaggedCat.isDisposed()
+                + " change observers (expected 0): " + transformType.changeStream().getObserverCount()
+                + " add observers (expected 0): " + transformType.attachStream().getObserverCount());
+
+        for (int i = 0; i < 10_000; i++) transformType.filter(entityID -> true).dispose();
+        System.out.println("Observers after repeated filter and dispose (expected 0): " + transformType.attachStream().getObserverCount());
+
+        try {
+            flaggedCat.dispose();
+            System.out.println("Dispose twice should have failed");
+        } catch (IllegalStateException e) {
+            System.out.println("Dispose twice fails (expected): " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package ecsploit.main.test;
+
+import ecsploit.ecs.core.*;
+import ecsploit.ecs.injection.CatTarget;
+import ecsploit.ecs.injection.TypeTarget;
+import ecsploit.main.test.TestGameLib.*;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class FlightRecorderTest {
+
+    private static final int TICKS = 10;
+
+    public static void main(String[] args) throws IOException {
+        Manager manager = new Manager();
+        manager.createEntities(1000, manager.type(Transform.class), manager.type(Velocity.class), manager.type(Sprite.class));
+        manager.system(new MoveSystem());
+        manager.system(new SleepSystem());
+        manager.update(); //Not recorded
+
+        Path path = Files.createTempFile("ecsploit", ".jfr");
+        try (Recording recording = new Recording()) {
+            for (String event: new String[] {"ecsploit.Tick", "ecsploit.SystemExecute", "ecsploit.Clean", "ecsploit.CategoryCreation"}) {
+                recording.enable(event).withoutThreshold();
+            }
+            recording.start();
+            for (int i = 0; i < TICKS; i++) manager.update();
+            manager.filter().allT(manager.type(Transform.class)).none(Velocity.class).category();
+            recording.stop();
+            recording.dump(path);
+        }
+
+        Map<String, Integer> counts = new TreeMap<>();
+        String lastSystem = null;
+        for (RecordedEvent event: RecordingFile.readAllEvents(path)) {
+            counts.merge(event.getEventType().getName(), 1, Integer::sum);
+            if (event.getEventType().getName().equals("ecsploit.SystemExecute")) lastSystem = event.getString("system");
+        }
+        System.out.println("Events: " + counts);
+        System.out.println("Ticks (expected " + TICKS + "): " + counts.getOrDefault("ecsploit.Tick", 0));
+        System.out.println("System executions (expected " + 2 * TICKS + "): " + counts.getOrDefault("ecsploit.SystemExecute", 0) + " last=" + lastSystem);
+        System.out.println("Cleans (expected " + 2 * TICKS + "): " + counts.getOrDefault("ecsploit.Clean", 0));
+        System.out.println("Category creations (expected 1): " + counts.getOrDefault("ecsploit.CategoryCreation", 0));
+        Files.delete(path);
+    }
+
+    public static final class MoveSystem extends ExecuteSystem {
+
+        @TypeTarget(Transform.class) protected ComponentType<Transform> transformType;
+        @CatTarget({Transform.class, Velocity.class}) protected Category movables;
+
+        protected void execute() {
+            movables.forEachEntity(eID -> transformType.retrieve(eID).setPos(eID, 0));
+        }
+    }
+
+    public static final class SleepSystem extends ExecuteSystem {
+
+        @TypeTarget(Velocity.class) protected ComponentType<Velocity> velocityType;
+
+        private Manager manager;
+
+        public void init(Manager manager) {
+            this.manager = manager;
+        }
+
+        protected void execute() {
+            manager.detachT(velocityType.entityAt(0), velocityType); //Leaves a deferred command to clean
+        }
+    }
+}
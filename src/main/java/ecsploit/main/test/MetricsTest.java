@@ -0,0 +1,69 @@
+package ecsploit.main.test;
+
+import ecsploit.ecs.core.*;
+import ecsploit.main.test.TestGameLib.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class MetricsTest {
+
+    private static final int N = 1000;
+
+    public static void main(String[] args) throws Exception {
+        Manager manager = new Manager();
+        ComponentType<Transform> transformType = manager.type(Transform.class);
+        ComponentType<Velocity> velocityType = manager.type(Velocity.class);
+        Category movables = manager.category(Transform.class, Velocity.class);
+        movables.filter(entityID -> true); //Connects one observer to each stream of the category
+
+        manager.createEntities(N, transformType);
+        System.out.println("Entities created while disabled (expected 0): " + manager.metrics().getEntitiesCreated());
+
+        manager.metrics().setEnabled(true);
+        int first = manager.createEntities(N, transformType);
+        for (int i = 0; i < N; i++) manager.attachT(first + i, velocityType);
+        for (int i = 0; i < N / 2; i++) manager.destroyID(first + i);
+
+        MetricsSnapshot snapshot = manager.metrics().snapshot();
+        System.out.println("Entities created (expected " + N + "): " + snapshot.getEntitiesCreated());
+        System.out.println("Entities destroyed (expected " + N / 2 + "): " + snapshot.getEntitiesDestroyed());
+        System.out.println("Active entities (expected " + (2 * N - N / 2) + "): " + snapshot.getActiveEntities());
+        MetricsSnapshot.Entry velocityEntry = find(snapshot.getComponentTypes(), velocityType.getComponentName());
+        System.out.println("Velocity attaches (expected " + N + "): " + velocityEntry.getAdditions());
+        System.out.println("Velocity detaches (expected " + N / 2 + "): " + velocityEntry.getRemovals());
+        MetricsSnapshot.Entry movablesEntry = snapshot.getCategories().get(0);
+        System.out.println("Movables additions (expected " + N + "): " + movablesEntry.getAdditions());
+        System.out.println("Movables observer invocations (expected " + (N + N / 2) + "): " + movablesEntry.getObserverInvocations());
+        System.out.println(snapshot.toJson());
+
+        Path exportPath = Files.createTempFile("ecsploit-metrics", ".jsonl");
+        manager.metrics().exportEvery(exportPath, 5);
+        for (int i = 0; i < 20; i++) manager.update();
+        manager.metrics().stopExport();
+        Thread.sleep(200);
+        System.out.println("Exported snapshots (expected 4): " + Files.readAllLines(exportPath).size());
+        Files.delete(exportPath);
+
+        Path exportDirectory = Files.createTempDirectory("ecsploit-metrics"); //Appending to a directory fails
+        manager.metrics().exportEvery(exportDirectory, 1);
+        manager.update();
+        for (int i = 0; i < 50 && manager.metrics().getExportFailure() == null; i++) Thread.sleep(10);
+        manager.update();
+        manager.update();
+        System.out.println("Export failure recorded (expected true): " + (manager.metrics().getExportFailure() != null));
+        Files.delete(exportDirectory);
+
+        manager.metrics().reset();
+        System.out.println("Notifications after reset (expected 0): " + manager.metrics().getNotifications()
+                + " / " + velocityType.attachStream().getNotifications());
+    }
+
+    private static MetricsSnapshot.Entry find(List<MetricsSnapshot.Entry> entries, String name) {
+        for (MetricsSnapshot.Entry entry: entries) {
+            if (entry.getName().equals(name)) return entry;
+        }
+        throw new IllegalStateException("No entry named " + name);
+    }
+}
@@ -0,0 +1,103 @@
+package ecsploit.main.test;
+
+import ecsploit.ecs.core.*;
+import ecsploit.main.test.TestGameLib.*;
+import ecsploit.utils.debug.Console;
+import ecsploit.utils.debug.SimpleProfiler;
+
+import java.util.Random;
+
+public class OwningGroupTest {
+
+    private static final Console CONSOLE = Console.getConsole(OwningGroupTest.class);
+
+    private static final int N = 1_000_000;
+
+    public static void main(String[] args) {
+        Manager manager = new Manager();
+        ComponentType<Transform> transformType = manager.type(Transform.class);
+        ComponentType<Velocity> velocityType = manager.type(Velocity.class);
+        ComponentType<Sprite> spriteType = manager.type(Sprite.class);
+
+        Random random = new Random(7);
+        for (int i = 0; i < N; i++) {
+            int entityID = manager.entityID();
+            if (random.nextInt(4) != 0) manager.attachT(entityID, transformType);
+            if (random.nextInt(4) != 0) manager.attachT(entityID, velocityType).setVelocity(1, 1);
+            manager.attachT(entityID, spriteType);
+        }
+        Category movables = manager.categoryT(transformType, velocityType);
+        OwningGroup group = manager.group(transformType, velocityType);
+        CONSOLE.info("Group size=" + group.size() + " category size=" + movables.size());
+
+        for (int i = 0; i < N / 10; i++) { //Churn the owned types
+            int entityID = random.nextInt(N);
+            if (random.nextBoolean()) {
+                manager.detachT(entityID, velocityType);
+            } else {
+                manager.attachT(entityID, velocityType).setVelocity(1, 1);
+            }
+            if (i % 3 == 0) manager.detachT(entityID, transformType);
+        }
+        for (int i = 0; i < N / 10; i++) manager.destroyID(i * 7); //Distinct ids spread over the whole range
+
+        CONSOLE.info("Group size=" + group.size() + " category size (expected equal)=" + movables.size()
+                + " misplaced (expected 0)=" + countMisplaced(group, movables, transformType, velocityType));
+
+        manager.system(new BrakeSystem(group, velocityType));
+        manager.update(); //Detaches velocities while iterating the group with the deferred strategy
+        CONSOLE.info("Group size after brake=" + group.size() + " category size (expected equal)=" + movables.size()
+                + " misplaced (expected 0)=" + countMisplaced(group, movables, transformType, velocityType));
+
+        SimpleProfiler profiler = new SimpleProfiler();
+        for (int n = 0; n < 20; n++) {
+            profiler.start();
+            movables.forEachEntity(eID -> {
+                Transform transform = transformType.retrieve(eID);
+                Velocity velocity = velocityType.retrieve(eID);
+                transform.setPos(transform.getX() + velocity.getVx(), transform.getY() + velocity.getVy());
+            });
+            long categoryTime = profiler.stop();
+
+            profiler.start();
+            for (int i = 0; i < group.size(); i++) {
+                Transform transform = transformType.getAt(i);
+                Velocity velocity = velocityType.getAt(i);
+                transform.setPos(transform.getX() + velocity.getVx(), transform.getY() + velocity.getVy());
+            }
+            long groupTime = profiler.stop();
+            if (n == 19) CONSOLE.info("Category join: " + categoryTime + " ms, owning group walk: " + groupTime + " ms");
+        }
+    }
+
+    private static int countMisplaced(OwningGroup group, Category movables, ComponentType<Transform> transformType, ComponentType<Velocity> velocityType) {
+        int misplaced = 0;
+        for (int i = 0; i < group.size(); i++) {
+            int entityID = transformType.entityAt(i);
+            if (velocityType.entityAt(i) != entityID || !movables.has(entityID)) misplaced++;
+        }
+        return misplaced;
+    }
+
+    private static final class BrakeSystem extends ExecuteSystem {
+
+        private final OwningGroup group;
+        private final ComponentType<Velocity> velocityType;
+        private Manager manager;
+
+        BrakeSystem(OwningGroup group, ComponentType<Velocity> velocityType) {
+            this.group = group;
+            this.velocityType = velocityType;
+        }
+
+        public void init(Manager manager) {
+            this.manager = manager;
+        }
+
+        protected void execute() {
+            group.forEachEntity(eID -> {
+                if (eID % 2 == 0) manager.detachT(eID, velocityType);
+            });
+        }
+    }
+}
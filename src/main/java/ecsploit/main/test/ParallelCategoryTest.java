@@ -0,0 +1,97 @@
+package ecsploit.main.test;
+
+import ecsploit.ecs.core.*;
+import ecsploit.ecs.injection.CatTarget;
+import ecsploit.ecs.injection.TypeTarget;
+import ecsploit.main.test.TestGameLib.*;
+import ecsploit.utils.debug.Console;
+import ecsploit.utils.debug.SimpleProfiler;
+
+import java.util.concurrent.ForkJoinPool;
+
+public class ParallelCategoryTest {
+
+    private static final Console CONSOLE = Console.getConsole(ParallelCategoryTest.class);
+
+    private static final int N_ENTITIES = 1_000_000;
+    private static final int N_UPDATES = 50;
+
+    public static void main(String[] args) {
+        Manager manager = new Manager();
+
+        ComponentType<Transform> transformType = manager.type(Transform.class);
+        transformType.registerConstructor(Transform::new);
+        ComponentType<Velocity> velocityType = manager.type(Velocity.class);
+        velocityType.registerConstructor(Velocity::new);
+
+        for (int i = 0; i < N_ENTITIES; i++) {
+            int entityID = manager.entityID();
+            manager.attachT(entityID, transformType).setPos(0, 0);
+            manager.attachT(entityID, velocityType).setVelocity(1, i % 10);
+        }
+        Category movingCat = manager.categoryT(transformType, velocityType);
+
+        SimpleProfiler profiler = new SimpleProfiler();
+        profiler.start();
+        for (int i = 0; i < N_UPDATES; i++) {
+            movingCat.forEachEntity(eID -> move(transformType.retrieve(eID), velocityType.retrieve(eID)));
+        }
+        CONSOLE.info("Sequential forEachEntity: " + profiler.stop() + " ms");
+
+        profiler.start();
+        for (int i = 0; i < N_UPDATES; i++) {
+            movingCat.parallelForEachEntity(eID -> move(transformType.retrieve(eID), velocityType.retrieve(eID)));
+        }
+        CONSOLE.info("parallelForEachEntity: " + profiler.stop() + " ms with a parallelism of " + ForkJoinPool.commonPool().getParallelism()
+                + " (runs on the calling thread at 1)");
+
+        //Structural changes from workers are buffered and merged once the pass ends
+        movingCat.parallelForEachEntity(eID -> {
+            if (velocityType.retrieve(eID).getVy() == 0) manager.detachT(eID, velocityType);
+        });
+        CONSOLE.info("Detached outside of a system: expected=" + (N_ENTITIES - N_ENTITIES / 10) + " actual=" + movingCat.size());
+
+        //Existing categories can be looked up from workers but new categories can't be created
+        int[] lookups = new int[2];
+        int probeID = movingCat.getEntityIDs()[0];
+        movingCat.parallelForEachEntity(eID -> {
+            if (eID != probeID) return;
+            if (manager.categoryT(transformType, velocityType) == movingCat) lookups[0]++;
+            try {
+                manager.categoryT(velocityType);
+            } catch (IllegalStateException e) {
+                lookups[1]++;
+            }
+        });
+        CONSOLE.info("Lookups during a parallel pass: found=" + lookups[0] + " (expected 1) rejected creations="
+                + lookups[1] + " (expected 1)");
+
+        manager.system(new StopSystem());
+        manager.update();
+        CONSOLE.info("Detached inside of a system: expected=" + (N_ENTITIES - 2 * N_ENTITIES / 10) + " actual=" + movingCat.size());
+    }
+
+    private static void move(Transform transform, Velocity velocity) {
+        transform.setPos(transform.getX() + velocity.getVx(), transform.getY() + velocity.getVy());
+    }
+
+    public static final class StopSystem extends ExecuteSystem {
+
+        @TypeTarget(Velocity.class) protected ComponentType<Velocity> velocityType;
+        @CatTarget({Transform.class, Velocity.class}) protected Category movingCat;
+
+        private Manager manager;
+
+        public void init(Manager manager) {
+            this.manager = manager;
+        }
+
+        protected void execute() {
+            int sizeBefore = movingCat.size();
+            movingCat.parallelForEachEntity(eID -> {
+                if (velocityType.retrieve(eID).getVy() == 1) manager.detachT(eID, velocityType);
+            }, 1024);
+            if (movingCat.size() != sizeBefore) throw new IllegalStateException("Category changed before clean");
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package ecsploit.main.test;
+
+import ecsploit.ecs.core.*;
+import ecsploit.ecs.injection.CatTarget;
+import ecsploit.ecs.injection.ExecuteAfter;
+import ecsploit.ecs.injection.ReadOnly;
+import ecsploit.ecs.injection.TypeTarget;
+import ecsploit.main.test.TestGameLib.*;
+
+import java.util.concurrent.ForkJoinPool;
+
+public class ParallelSystemTest {
+
+    public static void main(String[] args) {
+        Manager manager = new Manager();
+        manager.setWorkerPool(new ForkJoinPool(4));
+
+        for (int i = 0; i < 10_000; i++) {
+            int entityID = manager.entityID();
+            manager.attach(entityID, Transform.class);
+            manager.attach(entityID, Velocity.class).setVelocity(1, 1);
+            manager.attach(entityID, Sprite.class);
+        }
+
+        //Movement and Animation don't share written components and run in the same level, Render waits for both
+        manager.system(new MovementSystem());
+        manager.system(new AnimationSystem());
+        manager.system(new RenderCountSystem());
+        manager.setParallelSystems(true);
+
+        for (int i = 0; i < 10; i++) manager.update();
+        System.out.println("Renderable after 10 ticks (expected 10000): " + manager.category(Transform.class, Sprite.class).size());
+
+        Manager failing = new Manager();
+        failing.setWorkerPool(new ForkJoinPool(4));
+        CallerFailingSystem transformSystem = new TransformFailingSystem();
+        CallerFailingSystem velocitySystem = new VelocityFailingSystem();
+        failing.system(transformSystem);
+        failing.system(velocitySystem);
+        failing.setParallelSystems(true);
+        String failure = null;
+        try {
+            failing.update();
+        } catch (IllegalStateException e) {
+            failure = e.getMessage();
+        }
+        System.out.println("Failure rethrown (expected failed): " + failure + " worker system finished first (expected true): "
+                + (transformSystem.finished || velocitySystem.finished));
+    }
+
+    /**
+     * Fails on the calling thread, which takes part in the level, and finishes slowly on a worker thread
+     */
+    public abstract static class CallerFailingSystem extends ExecuteSystem {
+
+        private final Thread callingThread = Thread.currentThread();
+        volatile boolean finished = false;
+
+        protected void execute() {
+            if (Thread.currentThread() == callingThread) throw new IllegalStateException("failed");
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            this.finished = true;
+        }
+    }
+
+    public static final class TransformFailingSystem extends CallerFailingSystem {
+
+        @ReadOnly @TypeTarget(Transform.class) protected ComponentType<Transform> transformType; //Shares the level
+    }
+
+    public static final class VelocityFailingSystem extends CallerFailingSystem {
+
+        @ReadOnly @TypeTarget(Velocity.class) protected ComponentType<Velocity> velocityType;
+    }
+
+    public static final class MovementSystem extends ExecuteSystem {
+
+        @TypeTarget(Transform.class) protected ComponentType<Transform> transformType;
+        @ReadOnly @TypeTarget(Velocity.class) protected ComponentType<Velocity> velocityType;
+        @ReadOnly @CatTarget({Transform.class, Velocity.class}) protected Category movingCat;
+
+        protected void execute() {
+            System.out.println("Movement on " + Thread.currentThread().getName());
+            movingCat.forEachEntity(eID -> {
+                Transform transform = transformType.retrieve(eID);
+                Velocity velocity = velocityType.retrieve(eID);
+                transform.setPos(transform.getX() + velocity.getVx(), transform.getY() + velocity.getVy());
+            });
+        }
+    }
+
+    public static final class AnimationSystem extends ExecuteSystem {
+
+        @TypeTarget(Sprite.class) protected ComponentType<Sprite> spriteType;
+
+        private Manager manager;
+
+        public void init(Manager manager) {
+            this.manager = manager;
+        }
+
+        protected void execute() {
+            System.out.println("Animation on " + Thread.currentThread().getName());
+            spriteType.forEachEntity(eID -> {
+                manager.detachT(eID, spriteType);
+                manager.attachT(eID, spriteType).setImagePath("frame.png");
+            });
+        }
+    }
+
+    @ExecuteAfter(MovementSystem.class)
+    public static final class RenderCountSystem extends ExecuteSystem {
+
+        @ReadOnly @CatTarget({Transform.class, Sprite.class}) protected Category renderCat;
+
+        protected void execute() {
+            System.out.println("Render on " + Thread.currentThread().getName() + " renderable=" + renderCat.size());
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package ecsploit.main.test;
+
+import ecsploit.ecs.core.*;
+import ecsploit.main.test.TestGameLib.*;
+import ecsploit.net.ReplicationClient;
+import ecsploit.net.ReplicationServer;
+import ecsploit.utils.debug.Console;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+
+public class ReplicationLoopbackTest {
+
+    private static final Console CONSOLE = Console.getConsole(ReplicationLoopbackTest.class);
+
+    private static final int N = 20_000;
+
+    private static Manager newManager() {
+        Manager manager = new Manager();
+        manager.type(Transform.class).registerCodec(new ComponentCodec<>() {
+            public int maxEncodedSize() {
+                return 2 * Integer.BYTES;
+            }
+
+            public void encode(Transform transform, ByteBuffer out) {
+                out.putInt(transform.getX()).putInt(transform.getY());
+            }
+
+            public void decode(Transform transform, ByteBuffer in) {
+                transform.setPos(in.getInt(), in.getInt());
+            }
+        });
+        return manager;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Manager world = newManager();
+        ComponentType<Transform> transformType = world.type(Transform.class);
+        int firstID = world.createEntities(N, transformType);
+
+        ReplicationServer server = new ReplicationServer(world, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), transformType);
+        server.setMaxPendingBytes(16 * 1024); //Small enough for the full state to stall the slow client
+        Manager fastWorld = newManager();
+        Manager slowWorld = newManager();
+        ReplicationClient fastClient = new ReplicationClient(fastWorld, fastWorld.type(Transform.class));
+        ReplicationClient slowClient = new ReplicationClient(slowWorld, slowWorld.type(Transform.class));
+        fastClient.connect(server.getLocalAddress());
+        slowClient.connect(server.getLocalAddress());
+
+        int stalledTicks = 0;
+        for (int tick = 1; tick <= 200; tick++) {
+            for (int id = firstID + tick % 2; id < firstID + N; id += 2) {
+                transformType.retrieve(id).setPos(id, tick);
+                transformType.markChanged(id);
+            }
+            world.update();
+            if (server.tick() < server.getConnectionCount()) stalledTicks++;
+            fastClient.poll();
+            if (tick > 150) slowClient.poll(); //The slow client does not read for most of the run
+        }
+        for (int i = 0; i < 50; i++) { //Let the loopback drain
+            server.tick();
+            fastClient.poll();
+            slowClient.poll();
+            Thread.sleep(2);
+        }
+
+        CONSOLE.info("Connections (expected 2): " + server.getConnectionCount() + " ticks with a stalled client (expected > 0): " + stalledTicks);
+        CONSOLE.info("Fast client mismatches (expected 0): " + mismatches(world, fastWorld, fastClient) + " received " + fastClient.getTotalReceivedBytes() / 1024 + " KB");
+        CONSOLE.info("Slow client mismatches (expected 0): " + mismatches(world, slowWorld, slowClient) + " received " + slowClient.getTotalReceivedBytes() / 1024 + " KB");
+
+        fastClient.close();
+        slowClient.close();
+        for (int i = 0; i < 10 && server.getConnectionCount() > 0; i++) {
+            server.tick();
+            Thread.sleep(2);
+        }
+        CONSOLE.info("Connections after clients closed (expected 0): " + server.getConnectionCount());
+        server.close();
+    }
+
+    private static int mismatches(Manager world, Manager clientWorld, ReplicationClient client) {
+        ComponentType<Transform> transformType = world.type(Transform.class);
+        ComponentType<Transform> clientTransformType = clientWorld.type(Transform.class);
+        int[] mismatches = {world.sizeOfEntities() == clientWorld.sizeOfEntities() ? 0 : 1};
+        world.categoryT(transformType).forEachEntity(id -> {
+            int localID = client.getDecoder().resolve(id);
+            if (localID == -1 || !clientTransformType.has(localID)
+                    || clientTransformType.retrieve(localID).getY() != transformType.retrieve(id).getY()) mismatches[0]++;
+        });
+        return mismatches[0];
+    }
+}
@@ -0,0 +1,78 @@
+package ecsploit.main.test;
+
+import ecsploit.ecs.core.*;
+import ecsploit.ecs.injection.TypeTarget;
+import ecsploit.main.test.TestGameLib.*;
+
+public class SystemProfilerTest {
+
+    private static final int N = 1000;
+
+    public static void main(String[] args) {
+        Manager manager = new Manager();
+        manager.createEntities(N, manager.type(Transform.class));
+        SlowSystem slowSystem = new SlowSystem();
+        AllocatingSystem allocatingSystem = new AllocatingSystem();
+        ToggleVelocitySystem toggleSystem = new ToggleVelocitySystem();
+        manager.system(slowSystem);
+        manager.system(allocatingSystem);
+        manager.system(toggleSystem);
+
+        manager.update();
+        System.out.println("Stats while disabled (expected null): " + manager.profiler().getStats(slowSystem));
+
+        manager.profiler().setEnabled(true);
+        for (int i = 0; i < 20; i++) manager.update();
+        SystemProfiler.SystemStats slowStats = manager.profiler().getStats(slowSystem);
+        SystemProfiler.SystemStats allocatingStats = manager.profiler().getStats(allocatingSystem);
+        SystemProfiler.SystemStats toggleStats = manager.profiler().getStats(toggleSystem);
+
+        System.out.println(manager.profiler().report());
+        System.out.println("Slow system samples (expected 20): " + slowStats.getTotalSamples());
+        System.out.println("Slow system takes at least 2 ms (expected true): " + (slowStats.getAverageExecuteNanos() >= 2_000_000));
+        System.out.println("Allocations tracked (expected true): " + (!SystemProfiler.isAllocationTrackingSupported()
+                || allocatingStats.getAverageAllocatedBytes() >= 1024 * 1024));
+        System.out.println("Deferred commands of the toggle system (expected " + N + "): " + toggleStats.getLastDeferredCommands());
+        System.out.println("Tick covers the slow system (expected true): " + (manager.profiler().getLastTickNanos() >= slowStats.getLastExecuteNanos()));
+    }
+
+    public static final class SlowSystem extends ExecuteSystem {
+
+        protected void execute() {
+            long end = System.nanoTime() + 2_000_000;
+            while (System.nanoTime() < end) Thread.onSpinWait();
+        }
+    }
+
+    public static final class AllocatingSystem extends ExecuteSystem {
+
+        static byte[] sink;
+
+        protected void execute() {
+            sink = new byte[1024 * 1024];
+        }
+    }
+
+    public static final class ToggleVelocitySystem extends ExecuteSystem {
+
+        @TypeTarget(Transform.class) protected ComponentType<Transform> transformType;
+        @TypeTarget(Velocity.class) protected ComponentType<Velocity> velocityType;
+
+        private Manager manager;
+
+        public void init(Manager manager) {
+            this.manager = manager;
+        }
+
+        protected void execute() {
+            for (int i = 0; i < transformType.size(); i++) {
+                int entityID = transformType.entityAt(i);
+                if (velocityType.has(entityID)) {
+                    manager.detachT(entityID, velocityType);
+                } else {
+                    manager.attachT(entityID, velocityType);
+                }
+            }
+        }
+    }
+}
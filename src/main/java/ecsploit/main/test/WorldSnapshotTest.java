@@ -0,0 +1,155 @@
+package ecsploit.main.test;
+
+import ecsploit.ecs.core.*;
+import ecsploit.main.test.TestGameLib.*;
+import ecsploit.utils.debug.Console;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.IntPredicate;
+
+public class WorldSnapshotTest {
+
+    private static final Console CONSOLE = Console.getConsole(WorldSnapshotTest.class);
+
+    private static final int N = 1_000_000;
+
+    public static class Body extends ColumnComponent {}
+
+    private static void registerCodecs(Manager manager) {
+        manager.type(Transform.class).registerCodec(new ComponentCodec<>() {
+            public int maxEncodedSize() {
+                return 2 * Integer.BYTES;
+            }
+
+            public void encode(Transform transform, ByteBuffer out) {
+                out.putInt(transform.getX()).putInt(transform.getY());
+            }
+
+            public void decode(Transform transform, ByteBuffer in) {
+                transform.setPos(in.getInt(), in.getInt());
+            }
+        });
+        manager.type(Velocity.class).registerCodec(new ComponentCodec<>() {
+            public int maxEncodedSize() {
+                return 2 * Integer.BYTES;
+            }
+
+            public void encode(Velocity velocity, ByteBuffer out) {
+                out.putInt(velocity.getVx()).putInt(velocity.getVy());
+            }
+
+            public void decode(Velocity velocity, ByteBuffer in) {
+                velocity.setVelocity(in.getInt(), in.getInt());
+            }
+        });
+        manager.type(Sprite.class).registerCodec(new ComponentCodec<>() {
+            public int maxEncodedSize() {
+                return Integer.BYTES + 64;
+            }
+
+            public void encode(Sprite sprite, ByteBuffer out) {
+                byte[] bytes = sprite.getImagePath().getBytes();
+                out.putInt(bytes.length).put(bytes);
+            }
+
+            public void decode(Sprite sprite, ByteBuffer in) {
+                byte[] bytes = new byte[in.getInt()];
+                in.get(bytes);
+                sprite.setImagePath(new String(bytes));
+            }
+        });
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path path = Files.createTempFile("world", ".snapshot");
+
+        Manager uncoded = new Manager(); //Velocity has fields but no codec
+        uncoded.createEntities(1, uncoded.type(Velocity.class));
+        boolean refused = false;
+        try {
+            uncoded.saveSnapshot(path);
+        } catch (IllegalStateException e) {
+            refused = true;
+        }
+        CONSOLE.info("Save without codec refused (expected true): " + refused + " file size (expected 0): " + Files.size(path));
+
+        Manager manager = new Manager();
+        registerCodecs(manager);
+        ComponentType<Transform> transformType = manager.type(Transform.class);
+        ComponentType<Velocity> velocityType = manager.type(Velocity.class);
+        ComponentType<Sprite> spriteType = manager.type(Sprite.class);
+        ComponentType<Body> bodyType = manager.type(Body.class);
+        FloatColumn mass = bodyType.floatColumn("mass");
+
+        int firstID = manager.createEntities(N, transformType, velocityType, bodyType);
+        for (int id = firstID; id < firstID + N; id++) {
+            transformType.retrieve(id).setPos(id, -id);
+            velocityType.retrieve(id).setVelocity(id % 5, 1);
+            mass.set(id, id * 0.5f);
+            if (id % 10 == 0) manager.attachT(id, spriteType).setImagePath("sprite" + id % 7 + ".png");
+        }
+        for (int id = firstID; id < firstID + N; id += 3) manager.destroyID(id);
+        long handle = manager.handle(firstID + 1);
+
+        long start = System.nanoTime();
+        manager.saveSnapshot(path);
+        CONSOLE.info("Saved " + manager.sizeOfEntities() + " entities in " + (System.nanoTime() - start) / 1_000_000 + " ms, " + Files.size(path) / 1024 + " KB");
+
+        Manager unregistered = new Manager(); //Body isn't registered, the load must fail before changing anything
+        registerCodecs(unregistered);
+        ComponentType<Transform> unregisteredTransformType = unregistered.type(Transform.class);
+        unregistered.type(Velocity.class);
+        boolean rejected = false;
+        try {
+            unregistered.loadSnapshot(path);
+        } catch (IOException e) {
+            rejected = true;
+        }
+        CONSOLE.info("Unregistered class rejected (expected true): " + rejected + " entities (expected 0): " + unregistered.sizeOfEntities()
+                + " transforms (expected 0): " + unregisteredTransformType.size());
+
+        Manager restored = new Manager();
+        registerCodecs(restored);
+        restored.type(Body.class);
+        ComponentType<Transform> restoredTransformType = restored.type(Transform.class);
+        ComponentType<Sprite> restoredSpriteType = restored.type(Sprite.class);
+        Category restoredRenderables = restored.category(Transform.class, Sprite.class);
+        OwningGroup restoredMovables = restored.group(restoredTransformType, restored.type(Velocity.class));
+        IntPredicate evenTens = eID -> eID % 20 == 0;
+        FilteredCategory restoredEvenRenderables = restoredRenderables.filter(evenTens);
+        int[] addNotifications = new int[1];
+        restoredTransformType.onComponentAttach(eID -> addNotifications[0]++);
+
+        start = System.nanoTime();
+        restored.loadSnapshot(path);
+        CONSOLE.info("Loaded in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+
+        FloatColumn restoredMass = restored.type(Body.class).floatColumn("mass");
+        int mismatches = 0;
+        for (int id = firstID; id < firstID + N; id++) {
+            boolean active = id % 3 != 0;
+            if (restoredTransformType.has(id) != active) mismatches++;
+            if (!active) continue;
+            Transform transform = restoredTransformType.retrieve(id);
+            if (transform.getX() != id || transform.getY() != -id || restoredMass.get(id) != id * 0.5f) mismatches++;
+            if (restored.type(Velocity.class).retrieve(id).getVx() != id % 5) mismatches++;
+            if (id % 10 == 0 && !restoredSpriteType.retrieve(id).getImagePath().equals("sprite" + id % 7 + ".png")) mismatches++;
+        }
+        CONSOLE.info("Entities (expected " + manager.sizeOfEntities() + "): " + restored.sizeOfEntities() + " mismatches (expected 0): " + mismatches);
+        CONSOLE.info("Renderables (expected " + manager.category(Transform.class, Sprite.class).size() + "): " + restoredRenderables.size()
+                + " attach notifications (expected 0): " + addNotifications[0]);
+        FilteredCategory cachedEvenRenderables = restoredRenderables.filter(evenTens);
+        CONSOLE.info("Filtered renderables (expected " + manager.category(Transform.class, Sprite.class).filter(evenTens).size() + "): "
+                + cachedEvenRenderables.size() + " cached (expected true): " + (cachedEvenRenderables == restoredEvenRenderables));
+        int misplaced = 0;
+        for (int i = 0; i < restoredMovables.size(); i++) {
+            if (restoredTransformType.entityAt(i) != restored.type(Velocity.class).entityAt(i)) misplaced++;
+        }
+        CONSOLE.info("Movables (expected " + manager.sizeOfEntities() + "): " + restoredMovables.size() + " misplaced (expected 0): " + misplaced);
+        CONSOLE.info("Handle still alive (expected true): " + restored.isAlive(handle) + " recycled id (expected " + firstID + "): " + restored.entityID());
+        Files.delete(path);
+    }
+}
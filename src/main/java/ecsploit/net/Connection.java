@@ -0,0 +1,84 @@
+package ecsploit.net;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Server side of a single client: whether it received every delta so far and a send buffer which queues every frame
+ * the socket could not take yet.
+ */
+final class Connection {
+
+    final SocketChannel channel;
+    final SelectionKey key;
+
+    private ByteBuffer sendBuffer = ByteBuffer.allocateDirect(16 * 1024).order(ByteOrder.LITTLE_ENDIAN); //Write mode
+    private final ByteBuffer receiveBuffer = ByteBuffer.allocate(256);
+    int stalledTicks = 0;
+    boolean synced = false; //False while the client needs the full state
+
+    Connection(SocketChannel channel, SelectionKey key) {
+        this.channel = channel;
+        this.key = key;
+    }
+
+    /**
+     * @return number of bytes queued but not yet accepted by the socket
+     */
+    int pendingBytes() {
+        return sendBuffer.position();
+    }
+
+    /**
+     * Queues a length prefixed frame behind the pending bytes.
+     */
+    void queueFrame(ByteBuffer payload) {
+        int frameLength = Integer.BYTES + payload.remaining();
+        if (sendBuffer.remaining() < frameLength) {
+            ByteBuffer grown = ByteBuffer.allocateDirect(Math.max(sendBuffer.capacity() * 2, sendBuffer.position() + frameLength)).order(ByteOrder.LITTLE_ENDIAN);
+            this.sendBuffer.flip();
+            grown.put(sendBuffer);
+            this.sendBuffer = grown;
+        }
+        this.sendBuffer.putInt(payload.remaining()).put(payload);
+    }
+
+    /**
+     * Writes as many pending bytes as the socket accepts without blocking and only listens for writability while
+     * bytes are left.
+     */
+    void flush() throws IOException {
+        this.sendBuffer.flip();
+        this.channel.write(sendBuffer);
+        this.sendBuffer.compact();
+        int interestOps = sendBuffer.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ;
+        if (key.interestOps() != interestOps) key.interestOps(interestOps);
+    }
+
+    /**
+     * Reads the requests sent by the client.
+     *
+     * @return false once the client closed the connection
+     */
+    boolean receive() throws IOException {
+        int read;
+        while ((read = channel.read(receiveBuffer)) > 0) {
+            this.receiveBuffer.flip();
+            while (receiveBuffer.hasRemaining()) {
+                if (receiveBuffer.get() == ReplicationClient.RESYNC_REQUEST) this.synced = false;
+            }
+            this.receiveBuffer.clear();
+        }
+        return read != -1;
+    }
+
+    void close() {
+        this.key.cancel();
+        try {
+            this.channel.close();
+        } catch (IOException ignored) {}
+    }
+}
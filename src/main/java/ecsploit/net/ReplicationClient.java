@@ -0,0 +1,166 @@
+package ecsploit.net;
+
+import ecsploit.ecs.core.ComponentType;
+import ecsploit.ecs.core.DeltaDecoder;
+import ecsploit.ecs.core.Manager;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Client of a {@link ReplicationServer} which applies the received deltas to a local manager. Reading never blocks
+ * so {@link #poll()} can be called from the tick thread.
+ * <p>
+ *     Example Usage:
+ *     <pre>
+ *         {@code
+ *         ReplicationClient client = new ReplicationClient(clientManager, transformType);
+ *         client.connect(new InetSocketAddress("localhost", 7777));
+ *         while (running) {
+ *             client.poll();
+ *             clientManager.update();
+ *         }
+ *         }
+ *     </pre>
+ * </p>
+ * <p>
+ *     Note: When a delta can't be applied, e.g. because it refers to an entity the client never received, the client
+ *     asks the server for the full state and ignores every delta until the full state arrives.
+ * </p>
+ */
+public final class ReplicationClient implements Closeable {
+
+    static final byte RESYNC_REQUEST = 1;
+
+    private final DeltaDecoder decoder;
+
+    private SocketChannel channel;
+    private ByteBuffer receiveBuffer = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN); //Write mode
+    private boolean awaitingFullState = true;
+    private boolean resyncPending = false; //Resync request the socket did not accept yet
+    private long totalReceivedBytes = 0;
+    private int totalResyncs = 0;
+
+    /**
+     * @param manager local manager the deltas are applied to
+     * @param componentTypes replicated component types in the same order as the server
+     */
+    public ReplicationClient(Manager manager, ComponentType<?>... componentTypes) {
+        this.decoder = new DeltaDecoder(manager, componentTypes);
+    }
+
+    /**
+     * Connects to the server, blocking until the connection is established.
+     *
+     * @param serverAddress address of the server
+     * @throws IOException when the server can't be reached
+     */
+    public void connect(InetSocketAddress serverAddress) throws IOException {
+        if (channel != null) throw new IllegalStateException("Client is already connected");
+        this.channel = SocketChannel.open(serverAddress);
+        this.channel.socket().setTcpNoDelay(true);
+        this.channel.configureBlocking(false);
+    }
+
+    public boolean isConnected() {
+        return channel != null && channel.isOpen();
+    }
+
+    /**
+     * @return decoder used to {@link DeltaDecoder#resolve(int) resolve} the ids of server entities
+     */
+    public DeltaDecoder getDecoder() {
+        return decoder;
+    }
+
+    public long getTotalReceivedBytes() {
+        return totalReceivedBytes;
+    }
+
+    /**
+     * @return number of times the client had to ask for the full state
+     */
+    public int getTotalResyncs() {
+        return totalResyncs;
+    }
+
+    /**
+     * Reads everything received so far without blocking and applies every complete delta in order. Should be called
+     * outside of the system update.
+     *
+     * @return number of deltas applied
+     * @throws IOException when the connection fails or is closed by the server
+     */
+    public int poll() throws IOException {
+        if (!this.isConnected()) throw new IOException("Client is not connected");
+        if (resyncPending) this.sendResyncRequest();
+        int totalApplied = 0;
+        while (true) {
+            int read = channel.read(receiveBuffer);
+            if (read == -1) {
+                this.close();
+                throw new IOException("Connection closed by the server");
+            }
+            this.totalReceivedBytes += read;
+            totalApplied += this.applyFrames();
+            if (read == 0) return totalApplied;
+        }
+    }
+
+    /**
+     * Applies every complete length prefixed frame and keeps a trailing partial frame for the next read.
+     */
+    private int applyFrames() throws IOException {
+        int totalApplied = 0;
+        this.receiveBuffer.flip();
+        while (receiveBuffer.remaining() >= Integer.BYTES) {
+            int frameLength = receiveBuffer.getInt(receiveBuffer.position());
+            if (frameLength < 0) throw new IOException("Malformed frame length " + frameLength);
+            if (receiveBuffer.remaining() < Integer.BYTES + frameLength) break;
+
+            ByteBuffer delta = receiveBuffer.duplicate();
+            delta.position(receiveBuffer.position() + Integer.BYTES).limit(receiveBuffer.position() + Integer.BYTES + frameLength);
+            this.receiveBuffer.position(delta.limit());
+            boolean fullState = DeltaDecoder.isFullState(delta);
+            if (awaitingFullState && !fullState) continue;
+            try {
+                decoder.apply(delta);
+                this.awaitingFullState = false;
+                if (fullState) this.resyncPending = false;
+                totalApplied++;
+            } catch (DeltaDecoder.UnknownEntityException e) {
+                this.requestResync();
+            }
+        }
+        this.receiveBuffer.compact();
+        if (!receiveBuffer.hasRemaining()) { //A frame larger than the buffer is pending
+            ByteBuffer grown = ByteBuffer.allocate(receiveBuffer.capacity() * 2).order(ByteOrder.LITTLE_ENDIAN);
+            this.receiveBuffer.flip();
+            grown.put(receiveBuffer);
+            this.receiveBuffer = grown;
+        }
+        return totalApplied;
+    }
+
+    private void requestResync() throws IOException {
+        this.awaitingFullState = true;
+        this.totalResyncs++;
+        this.resyncPending = true;
+        this.sendResyncRequest();
+    }
+
+    /**
+     * Retried on every {@link #poll() poll} until the socket accepts the request.
+     */
+    private void sendResyncRequest() throws IOException {
+        if (channel.write(ByteBuffer.wrap(new byte[] {RESYNC_REQUEST})) == 1) this.resyncPending = false;
+    }
+
+    public void close() throws IOException {
+        if (channel != null) channel.close();
+    }
+}
@@ -0,0 +1,211 @@
+package ecsploit.net;
+
+import ecsploit.ecs.core.ComponentType;
+import ecsploit.ecs.core.DeltaDecoder;
+import ecsploit.ecs.core.DeltaEncoder;
+import ecsploit.ecs.core.Manager;
+import ecsploit.utils.collections.DenseList;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+
+/**
+ * Non-blocking server which replicates the state of a manager to every connected {@link ReplicationClient}. The
+ * changes of a tick are encoded once and the same delta is queued for every client which received all previous
+ * deltas. Clients which are new, asked for a resync or missed a delta receive the full state instead, which is also
+ * encoded at most once per tick. All sockets are multiplexed by a single Selector which is polled from
+ * {@link #tick()}, so the tick thread never blocks on a slow client.
+ * <p>
+ *     Example Usage:
+ *     <pre>
+ *         {@code
+ *         ReplicationServer server = new ReplicationServer(manager, new InetSocketAddress(7777), transformType);
+ *         while (running) {
+ *             manager.update();
+ *             server.tick();
+ *         }
+ *         }
+ *     </pre>
+ * </p>
+ * <p>
+ *     Backpressure: Every delta is written as a length prefixed frame into the send buffer of the client and the buffer
+ *     is flushed once per tick. While more than {@link #setMaxPendingBytes(int) maxPendingBytes} are still queued, no
+ *     delta is queued for the client and it receives the full state once it has caught up. Clients which stay stalled
+ *     for more than {@link #setMaxStalledTicks(int) maxStalledTicks} ticks are disconnected.
+ * </p>
+ */
+public final class ReplicationServer implements Closeable {
+
+    public static final int DEFAULT_MAX_PENDING_BYTES = 1 << 20;
+    public static final int DEFAULT_MAX_STALLED_TICKS = 600;
+
+    private final DeltaEncoder deltaEncoder;
+    private final DeltaEncoder fullStateEncoder;
+
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final DenseList<Connection> connections = new DenseList<>(16);
+
+    private int maxPendingBytes = DEFAULT_MAX_PENDING_BYTES;
+    private int maxStalledTicks = DEFAULT_MAX_STALLED_TICKS;
+
+    /**
+     * @param manager manager whose state is replicated
+     * @param bindAddress local address to listen on, port 0 picks a free port
+     * @param componentTypes replicated component types in the order expected by the clients
+     * @throws IOException when the address can't be bound
+     */
+    public ReplicationServer(Manager manager, InetSocketAddress bindAddress, ComponentType<?>... componentTypes) throws IOException {
+        this.deltaEncoder = new DeltaEncoder(manager, componentTypes);
+        this.fullStateEncoder = new DeltaEncoder(manager, componentTypes);
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        this.serverChannel.configureBlocking(false);
+        this.serverChannel.bind(bindAddress);
+        this.serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * @return address the server listens on, including the chosen port
+     */
+    public InetSocketAddress getLocalAddress() throws IOException {
+        return (InetSocketAddress) serverChannel.getLocalAddress();
+    }
+
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    /**
+     * @param maxPendingBytes number of unsent bytes above which no new delta is queued for a client
+     */
+    public void setMaxPendingBytes(int maxPendingBytes) {
+        if (maxPendingBytes <= 0) throw new IllegalArgumentException("Max pending bytes must be positive: " + maxPendingBytes);
+        this.maxPendingBytes = maxPendingBytes;
+    }
+
+    /**
+     * @param maxStalledTicks number of consecutive ticks without a delta after which a client is disconnected
+     */
+    public void setMaxStalledTicks(int maxStalledTicks) {
+        if (maxStalledTicks <= 0) throw new IllegalArgumentException("Max stalled ticks must be positive: " + maxStalledTicks);
+        this.maxStalledTicks = maxStalledTicks;
+    }
+
+    /**
+     * Accepts new clients, handles their requests and queues and flushes one delta per client. Never blocks. Should be
+     * called once per tick, outside of the system update.
+     * <p>
+     *     Note: The full state is encoded right after the shared delta, so clients which receive it can apply the
+     *     shared delta of the next tick.
+     * </p>
+     *
+     * @return number of clients a delta was queued for
+     * @throws IOException when the selector fails. Failures of single clients only disconnect the client
+     */
+    public int tick() throws IOException {
+        this.selector.selectNow();
+        Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+        while (selectedKeys.hasNext()) {
+            SelectionKey key = selectedKeys.next();
+            selectedKeys.remove();
+            if (!key.isValid()) continue;
+            if (key.isAcceptable()) {
+                this.accept();
+                continue;
+            }
+            Connection connection = (Connection) key.attachment();
+            try {
+                if (key.isReadable() && !connection.receive()) {
+                    this.disconnect(connection);
+                } else if (key.isValid() && key.isWritable()) {
+                    connection.flush();
+                }
+            } catch (IOException e) {
+                this.disconnect(connection);
+            }
+        }
+
+        boolean anyReady = false;
+        boolean anyResyncing = false;
+        for (int i = connections.size() - 1; i >= 0; i--) { //Backwards since connections may be removed
+            Connection connection = connections.fastGet(i);
+            if (connection.pendingBytes() > maxPendingBytes) {
+                if (++connection.stalledTicks > maxStalledTicks) this.disconnect(connection);
+                continue;
+            }
+            connection.stalledTicks = 0;
+            anyReady = true;
+            anyResyncing |= !connection.synced;
+        }
+        if (!anyReady) return 0;
+
+        ByteBuffer delta = deltaEncoder.encode();
+        ByteBuffer fullState = null;
+        if (anyResyncing) fullState = DeltaDecoder.isFullState(delta) ? delta : this.encodeFullState(); //First delta is a full state
+        int totalSent = 0;
+        for (int i = connections.size() - 1; i >= 0; i--) {
+            Connection connection = connections.fastGet(i);
+            if (connection.stalledTicks > 0) {
+                connection.synced = false; //Misses this delta
+                continue;
+            }
+            connection.queueFrame(connection.synced ? delta.duplicate() : fullState.duplicate());
+            connection.synced = true;
+            totalSent++;
+            try {
+                connection.flush();
+            } catch (IOException e) {
+                this.disconnect(connection);
+            }
+        }
+        return totalSent;
+    }
+
+    private ByteBuffer encodeFullState() {
+        this.fullStateEncoder.reset();
+        return fullStateEncoder.encode();
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            Connection connection = new Connection(channel, key);
+            key.attach(connection);
+            this.connections.add(connection);
+        }
+    }
+
+    private void disconnect(Connection connection) {
+        connection.close();
+        for (int i = 0; i < connections.size(); i++) {
+            if (connections.fastGet(i) != connection) continue;
+            this.connections.fastRemove(i);
+            return;
+        }
+    }
+
+    /**
+     * Disconnects every client and stops listening.
+     */
+    public void close() throws IOException {
+        for (int i = connections.size() - 1; i >= 0; i--) {
+            connections.fastGet(i).close();
+        }
+        this.connections.clear();
+        this.deltaEncoder.disconnect();
+        this.fullStateEncoder.disconnect();
+        this.serverChannel.close();
+        this.selector.close();
+    }
+}
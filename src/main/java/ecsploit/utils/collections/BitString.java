@@ -1,123 +1,224 @@
 package ecsploit.utils.collections;
 
 import java.util.Arrays;
+import java.util.function.IntConsumer;
 
 //Inspired by Artemis Framework
 public class BitString {
-	
-	private long[] words; //a word is 8 bytes = 64 bits
-	
-	public BitString() {
-		this(0);
-	}
-	
+
+	//The first two words are stored inline so worlds with up to 128 component types never touch an array.
+	//A word is 8 bytes = 64 bits
+	private long word0;
+	private long word1;
+	private long[] extraWords; //Word i is stored at index i - 2. NULL until a bit past 127 is set
+
+	public BitString() {}
+
 	public BitString(int numBits) {
-		this.words = new long[numBits];
+		int numWords = (numBits + 63) >>> 6;
+		if (numWords > 2) this.extraWords = new long[numWords - 2];
 	}
-	
+
 	public BitString(BitString other) {
-		words = Arrays.copyOf(other.words, other.words.length);
+		this.word0 = other.word0;
+		this.word1 = other.word1;
+		if (other.extraWords != null) this.extraWords = Arrays.copyOf(other.extraWords, other.extraWords.length);
+	}
+
+	private long getWord(int wordIndex) {
+		if (wordIndex == 0) return word0;
+		if (wordIndex == 1) return word1;
+		if (extraWords == null || wordIndex - 2 >= extraWords.length) return 0;
+		return extraWords[wordIndex - 2];
 	}
-	 
+
+	private int totalWords() {
+		return extraWords == null ? 2 : extraWords.length + 2;
+	}
+
 	private void assertSize(int wordIndex) {
-		words = Arrays.copyOf(words, wordIndex + 1);
+		if (extraWords == null) {
+			this.extraWords = new long[wordIndex - 1];
+		} else if (wordIndex - 2 >= extraWords.length) {
+			this.extraWords = Arrays.copyOf(extraWords, wordIndex - 1);
+		}
 	}
 
 	public boolean isEmpty() {
-		for (long word: this.words) {
+		if ((word0 | word1) != 0) return false;
+		if (extraWords == null) return true;
+		for (long word: this.extraWords) {
 			if (word != 0) return false;
 		}
 		return true;
 	}
-	
+
 	public void set(int index) {
 		int wordIndex = index >>> 6;
-		if (wordIndex >= words.length) this.assertSize(wordIndex);
-		this.words[wordIndex] = this.words[wordIndex] | (1L << index);
+		if (wordIndex == 0) {
+			this.word0 |= 1L << index;
+		} else if (wordIndex == 1) {
+			this.word1 |= 1L << index;
+		} else {
+			this.assertSize(wordIndex);
+			this.extraWords[wordIndex - 2] |= 1L << index;
+		}
 	}
-	
+
 	public void clear(int index) {
 		int wordIndex = index >>> 6;
-		if (wordIndex >= words.length) this.assertSize(wordIndex);
-		this.words[wordIndex] = this.words[wordIndex] & ~(1L << index);
+		if (wordIndex == 0) {
+			this.word0 &= ~(1L << index);
+		} else if (wordIndex == 1) {
+			this.word1 &= ~(1L << index);
+		} else if (extraWords != null && wordIndex - 2 < extraWords.length) {
+			this.extraWords[wordIndex - 2] &= ~(1L << index);
+		}
+	}
+
+	/**
+	 * Clears every bit without releasing the underlying words
+	 */
+	public void clearAll() {
+		this.word0 = 0;
+		this.word1 = 0;
+		if (extraWords != null) Arrays.fill(extraWords, 0);
+	}
+
+	/**
+	 * Sets every bit which is set in the other BitString
+	 */
+	public void or(BitString other) {
+		this.word0 |= other.word0;
+		this.word1 |= other.word1;
+		if (other.extraWords == null) return;
+		this.assertSize(other.extraWords.length + 1);
+		for (int i = 0; i < other.extraWords.length; i++) {
+			this.extraWords[i] |= other.extraWords[i];
+		}
 	}
-	
+
 	public boolean get(int index) {
-		int wordIndex = index >>> 6;
-		if (wordIndex >= words.length) return false;
-		return (this.words[wordIndex] & (1L << index)) != 0;
+		return (this.getWord(index >>> 6) & (1L << index)) != 0;
 	}
 
+	/**
+	 * @return index of the lowest set bit or -1 if no bits are set
+	 */
 	public int indexOfLSB() {
-		for (long word: this.words) {
-			if (word == 0) continue;
-			long b = word - 1;
-			long c = (word | b) ^ b;
-
-			int index = 0;
-			while (c > 1) {
-				c = c >> 1;
-				index++;
+		return this.nextSetBit(0);
+	}
+
+	/**
+	 * Example Usage:
+	 * <pre>
+	 *     {@code
+	 *     for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {...}
+	 *     }
+	 * </pre>
+	 *
+	 * @param fromIndex index to start searching from (inclusive)
+	 * @return index of the first set bit at or after fromIndex or -1 if there is none
+	 */
+	public int nextSetBit(int fromIndex) {
+		int wordIndex = fromIndex >>> 6;
+		int totalWords = this.totalWords();
+		if (wordIndex >= totalWords) return -1;
+
+		long word = this.getWord(wordIndex) & (-1L << fromIndex);
+		while (true) {
+			if (word != 0) return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+			if (++wordIndex >= totalWords) return -1;
+			word = this.getWord(wordIndex);
+		}
+	}
+
+	/**
+	 * Invoke an action for every set bit from lowest to highest. Bits are read one word at a time, so clearing bits of
+	 * this BitString from within the action is safe.
+	 *
+	 * @param action invoked with the index of every set bit
+	 */
+	public void forEachSetBit(IntConsumer action) {
+		int totalWords = this.totalWords();
+		for (int wordIndex = 0; wordIndex < totalWords; wordIndex++) {
+			long word = this.getWord(wordIndex);
+			while (word != 0) {
+				action.accept((wordIndex << 6) + Long.numberOfTrailingZeros(word));
+				word &= word - 1;
 			}
-			return index;
 		}
-		return -1;
 	}
-	
-	public boolean includes(BitString other) {
-		int minLen = Math.min(this.words.length, other.words.length);
-		for (int i = 0; i < minLen; i++) {
-			if ((other.words[i] & this.words[i]) != other.words[i]) return false;
+
+	/**
+	 * @return total number of set bits
+	 */
+	public int cardinality() {
+		int count = Long.bitCount(word0) + Long.bitCount(word1);
+		if (extraWords != null) {
+			for (long word: extraWords) count += Long.bitCount(word);
 		}
-		
-		if (this.words.length > other.words.length) return true;
-		
-		for (int i = this.words.length; i < other.words.length; i++) {
-			if (other.words[i] != 0) return false;
+		return count;
+	}
+
+	public boolean includes(BitString other) {
+		if (((other.word0 & ~this.word0) | (other.word1 & ~this.word1)) != 0) return false;
+		if (other.extraWords == null) return true;
+
+		long[] otherWords = other.extraWords;
+		for (int i = 0; i < otherWords.length; i++) {
+			long word = this.extraWords != null && i < this.extraWords.length ? this.extraWords[i] : 0;
+			if ((otherWords[i] & ~word) != 0) return false;
 		}
 		return true;
 	}
-	
+
+	public boolean intersects(BitString other) {
+		if (((other.word0 & this.word0) | (other.word1 & this.word1)) != 0) return true;
+		if (this.extraWords == null || other.extraWords == null) return false;
+
+		int minLen = Math.min(this.extraWords.length, other.extraWords.length);
+		for (int i = 0; i < minLen; i++) {
+			if ((other.extraWords[i] & this.extraWords[i]) != 0) return true;
+		}
+		return false;
+	}
+
 	public int hashCode() {
-		return Arrays.hashCode(this.words);
+		int hash = 31 * Long.hashCode(word0) + Long.hashCode(word1);
+		if (extraWords == null) return hash;
+
+		int length = this.extraWords.length;
+		while (length > 0 && this.extraWords[length - 1] == 0) length--; //Trailing empty words must not affect equality
+		for (int i = 0; i < length; i++) {
+			hash = 31 * hash + Long.hashCode(this.extraWords[i]);
+		}
+		return hash;
 	}
-	
+
 	public boolean equals(Object object) {
 		if (object != null && this.getClass() == object.getClass()) {
-			long[] otherWords = ((BitString) object).words;
-			
-			long[] maxWords;
-			long[] minWords;
-			if (this.words.length > otherWords.length) {
-				maxWords = this.words;
-				minWords = otherWords;
-			} else {
-				maxWords = otherWords;
-				minWords = this.words;
-			}
-			for (int i = 0; i < minWords.length; i++) {
-				if (words[i] != otherWords[i]) return false;
-			}
-			
-			for (int i = minWords.length; i < maxWords.length; i++) {
-				if (maxWords[i] != 0) return false;
+			BitString other = (BitString) object;
+			if (this.word0 != other.word0 || this.word1 != other.word1) return false;
+
+			int maxLen = Math.max(this.totalWords(), other.totalWords());
+			for (int i = 2; i < maxLen; i++) {
+				if (this.getWord(i) != other.getWord(i)) return false;
 			}
 			return true;
 		}
 		return false;
 	}
-	
+
 	public String toString() {
-		StringBuilder out = new StringBuilder();
-		for (int i = 0; i < words.length; i++) {
-			String line = Long.toBinaryString(words[i]);
-			out.insert(0, line);
-			if (i + 1 < words.length) {
-				for (int j = 0; j < 64 - line.length(); j++) {
-					out = new StringBuilder("0" + line);
-				}
-			}
+		int highestWord = this.totalWords() - 1;
+		while (highestWord > 0 && this.getWord(highestWord) == 0) highestWord--;
+
+		StringBuilder out = new StringBuilder(Long.toBinaryString(this.getWord(highestWord)));
+		for (int i = highestWord - 1; i >= 0; i--) {
+			String line = Long.toBinaryString(this.getWord(i));
+			out.append("0".repeat(64 - line.length())).append(line);
 		}
 		return out.toString();
 	}
-}
\ No newline at end of file
+}
@@ -69,6 +69,15 @@ public class DenseList<T> {
 		this.data[index] = item;
 	}
 
+	/**
+	 * Grows the data array once so that the list can hold at least the given number of items without resizing.
+	 *
+	 * @param capacity minimum number of items the list should be able to hold
+	 */
+	public void ensureCapacity(int capacity) {
+		if (capacity > this.data.length) this.data = Arrays.copyOf(this.data, capacity);
+	}
+
 	public void add(T item) {
 		if (this.size >= this.data.length) this.data = CollectionUtils.grow(this.data);
 		this.data[size++] = item;
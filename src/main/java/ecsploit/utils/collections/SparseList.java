@@ -88,6 +88,27 @@ public class SparseList {
         this.size++;
     }
 
+    /**
+     * Adds every id from firstID (inclusive) to firstID + count (exclusive), growing the lists at most once. None of
+     * the ids should already be contained in the list.
+     *
+     * @param firstID first id of the range
+     * @param count number of ids in the range
+     */
+    public void addRange(int firstID, int count) {
+        if (this.size + count > this.innerList.length) {
+            this.innerList = Arrays.copyOf(this.innerList, Math.max(this.size + count, CollectionUtils.getGrowLength(this.size)));
+        }
+        if (firstID + count > this.outerList.length) {
+            this.outerList = Arrays.copyOf(this.outerList, Math.max(firstID + count, CollectionUtils.getGrowLength(firstID)));
+        }
+        for (int i = 0; i < count; i++) {
+            this.innerList[size] = firstID + i;
+            this.outerList[firstID + i] = size;
+            this.size++;
+        }
+    }
+
     /**
      * Quickly remove an id from the list. Does not check whether or not list contains the id and in this case, it can
      * lead to undefined behavior. Use with extreme caution.
@@ -100,6 +121,21 @@ public class SparseList {
         this.outerList[index] = this.outerList[id];
     }
 
+    /**
+     * Swaps the ids stored at two indices of the innerList. Indices are not bounds checked.
+     *
+     * @param indexA index of the first id
+     * @param indexB index of the second id
+     */
+    public void swap(int indexA, int indexB) {
+        int idA = this.innerList[indexA];
+        int idB = this.innerList[indexB];
+        this.innerList[indexA] = idB;
+        this.innerList[indexB] = idA;
+        this.outerList[idA] = indexB;
+        this.outerList[idB] = indexA;
+    }
+
     public boolean contains(int id) {
         if (id >= this.outerList.length || id < 0) return false;
         int index = this.outerList[id];
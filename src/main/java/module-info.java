@@ -1,5 +1,9 @@
 module ecsploit.ecs {
     exports ecsploit.ecs.core;
     exports ecsploit.ecs.injection;
+    exports ecsploit.net;
     exports ecsploit.utils.debug;
+
+    requires jdk.jfr;
+    requires jdk.management;
 }
\ No newline at end of file